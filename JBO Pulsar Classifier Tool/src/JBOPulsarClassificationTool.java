@@ -33,7 +33,10 @@ import uk.ac.man.jb.pct.io.Logging;
 import uk.ac.man.jb.pct.mvc.Constants;
 import uk.ac.man.jb.pct.mvc.controllers.AutoClassificationController;
 import uk.ac.man.jb.pct.mvc.controllers.AutoTrainerController;
+import uk.ac.man.jb.pct.mvc.controllers.DistributedTrainerController;
+import uk.ac.man.jb.pct.mvc.controllers.DistributedWorkerController;
 import uk.ac.man.jb.pct.mvc.controllers.I_Controller;
+import uk.ac.man.jb.pct.mvc.controllers.IncrementalTrainerController;
 import uk.ac.man.jb.pct.mvc.model.CommandLineInputData;
 import uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData;
 import uk.ac.man.jb.pct.test.Experiments;
@@ -121,6 +124,24 @@ public class JBOPulsarClassificationTool
 	{
 	    System.out.println("AUTOMATED_TESTING");
 	}
+	else if(input.getActionPossibleFromInputs().equals(Constants.INCREMENTAL_TRAINING))
+	{
+	    System.out.println("INCREMENTAL_TRAINING");
+	    I_Controller c = new IncrementalTrainerController(input);
+	    c.run();
+	}
+	else if(input.getActionPossibleFromInputs().equals(Constants.DISTRIBUTED_TRAINING))
+	{
+	    System.out.println("DISTRIBUTED_TRAINING");
+	    I_Controller c = new DistributedTrainerController(input);
+	    c.run();
+	}
+	else if(input.getActionPossibleFromInputs().equals(Constants.DISTRIBUTED_WORKER))
+	{
+	    System.out.println("DISTRIBUTED_WORKER");
+	    I_Controller c = new DistributedWorkerController(input);
+	    c.run();
+	}
 	else // BUILD GUI
 	{
 	    System.out.println("No Arguments supplied.\n");
@@ -139,6 +160,23 @@ public class JBOPulsarClassificationTool
 	    System.out.println(" -k=            Value of K for a KNN classifier (between 2 and 9 arbitrarily)." );
 	    System.out.println(" -tests=        The number of tests to run." );
 	    System.out.println(" -w=            The width of the self organizing map, defaults to 10." );
+	    System.out.println(" -threads=      The number of threads, or of networks auto trained at once, below 1 uses all processors." );
+	    System.out.println(" -training=     The training algorithm to use, 0 is online, 1 is batch, 2 is Hogwild (online, lock free on every thread)." );
+	    System.out.println(" -epsilon=      Neighbourhood weight below which neurons aren't trained, defaults to 0." );
+	    System.out.println(" -epochs=       The maximum number of passes over the training data, 0 for no limit." );
+	    System.out.println(" -time=         The maximum time to train for in seconds, 0 for no limit." );
+	    System.out.println(" -patience=     Stop after this many passes without improvement, 0 to never stop early." );
+	    System.out.println(" -precision=    Precision of the network weights, 32 or 64 bit, defaults to 64." );
+	    System.out.println(" -update=       Steps to train a loaded network for on new data in the training set." );
+	    System.out.println(" -index=        1 to find winning neurons using a search tree, faster on large maps." );
+	    System.out.println(" -init=         Initialisation of the network weights, 0 is random, 1 is linear (principal components)." );
+	    System.out.println(" -staleness=    The most mini-batches a thread may get ahead of the others by during Hogwild training." );
+	    System.out.println(" -workers=      The number of worker processes holding the training data to wait for." );
+	    System.out.println(" -port=         The port to wait for the workers on, defaults to 7531." );
+	    System.out.println(" -coordinator=  Work for the coordinator at host:port, on the training set file or directory." );
+	    System.out.println(" -checkpoint=   Write a training checkpoint every n epochs, beside the path the network is saved to." );
+	    System.out.println(" -resume=       Carry on training from a checkpoint, with the options it was started with." );
+	    System.out.println(" -schedule=     The learning rate and neighbourhood decay over -epochs=, 0 original, 1 exponential, 2 linear, 3 inverse time." );
 	    System.out.println(" -settings=     The path to a settings file that may contain these arguments.");
 	    System.out.println("********************************************************************************\n");
 
@@ -207,9 +245,12 @@ public class JBOPulsarClassificationTool
 			int min_k = 1;
 			int max_k = 21;
 			int tieBreakingParameter = 1;//Randomly
+			String vDataPath = "/Users/rob/git/JBO-Pulsar-Classifier/JBO Pulsar Classifier Tool/Resources/validation_set.pat";
+			String outputFilePath = "/Users/rob/RESULTS/READ.txt";
+			String stats_output_file = "/Users/rob/RESULTS/STATS_knn_btr.txt";
 			
-			//Experiments.classificationTestsStaticK(pathToTrainingFiles, pathToClassificationFiles, classifier_type, mapWidth, k);
-			Experiments.classificationTestsVariableK(pathToTrainingFiles,pathToClassificationFiles,mapWidth,k,tieBreakingParameter);			
+			//Experiments.classificationTestsStaticK(pathToTrainingFiles, pathToClassificationFiles, vDataPath, outputFilePath, "/Users/rob/RESULTS/STATS.txt", classifier_type, mapWidth);
+			Experiments.classificationTestsVariableK(pathToTrainingFiles,pathToClassificationFiles,vDataPath,outputFilePath,stats_output_file,mapWidth,tieBreakingParameter);			
 			
 			System.exit(0);
 			//**************************************************
@@ -239,6 +280,23 @@ public class JBOPulsarClassificationTool
 	System.out.println(" -k=            Value of K for a KNN classifier (between 2 and 9 arbitrarily)." );
 	System.out.println(" -tests=        The number of tests to run." );
 	System.out.println(" -w=            The width of the self organizing map, defaults to 10." );
+	System.out.println(" -threads=      The number of threads, or of networks auto trained at once, below 1 uses all processors." );
+	System.out.println(" -training=     The training algorithm to use, 0 is online, 1 is batch, 2 is Hogwild (online, lock free on every thread)." );
+	System.out.println(" -epsilon=      Neighbourhood weight below which neurons aren't trained, defaults to 0." );
+	System.out.println(" -epochs=       The maximum number of passes over the training data, 0 for no limit." );
+	System.out.println(" -time=         The maximum time to train for in seconds, 0 for no limit." );
+	System.out.println(" -patience=     Stop after this many passes without improvement, 0 to never stop early." );
+	System.out.println(" -precision=    Precision of the network weights, 32 or 64 bit, defaults to 64." );
+	System.out.println(" -update=       Steps to train a loaded network for on new data in the training set." );
+	System.out.println(" -index=        1 to find winning neurons using a search tree, faster on large maps." );
+	System.out.println(" -init=         Initialisation of the network weights, 0 is random, 1 is linear (principal components)." );
+	System.out.println(" -staleness=    The most mini-batches a thread may get ahead of the others by during Hogwild training." );
+	System.out.println(" -workers=      The number of worker processes holding the training data to wait for." );
+	System.out.println(" -port=         The port to wait for the workers on, defaults to 7531." );
+	System.out.println(" -coordinator=  Work for the coordinator at host:port, on the training set file or directory." );
+	System.out.println(" -checkpoint=   Write a training checkpoint every n epochs, beside the path the network is saved to." );
+	System.out.println(" -resume=       Carry on training from a checkpoint, with the options it was started with." );
+	System.out.println(" -schedule=     The learning rate and neighbourhood decay over -epochs=, 0 original, 1 exponential, 2 linear, 3 inverse time." );
 	System.out.println(" -settings=     The path to a settings file that may contain these arguments.");
 	System.out.println("********************************************************************************\n\n");
 	System.out.println("Done.");
@@ -0,0 +1,356 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	BatchCoordinator.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Trains a self organising map with the batch algorithm, on training data shared
+ * between a number of worker processes, so that no one process need hold it all.
+ * See BatchWorker for the other end of the connection.
+ *
+ * The batch algorithm only needs, from each pass over the data, the sum of the patterns
+ * won by each neuron and the number of patterns each neuron won (see BatchTrainer). These
+ * sums can be calculated for each part of the data separately, and added. So each epoch the
+ * coordinator sends the map's weights to every worker, each worker finds the winners of its
+ * own patterns and sends back its sums, and the coordinator adds them up and updates the
+ * weights, exactly as BatchTrainer would have done with all of the data in one place. The
+ * neighbourhood function is applied once, by the coordinator, so the workers only send one
+ * sum per neuron, however wide the neighbourhood.
+ *
+ * Before training, each worker also sends the sum of each attribute over its patterns,
+ * so that the coordinator can work out the column means of the whole of the training data.
+ * Every worker normalises its patterns by these, as NormalisePatterns() would have.
+ *
+ * The workers connect over plain TCP, so may run on the same machine or elsewhere. The
+ * connection is not authenticated, so the coordinator should only be run on a trusted
+ * network. If a worker fails, training fails too, as it does if a worker doesn't connect,
+ * or doesn't send its sums, within the timeout.
+ *
+ * @author Rob Lyon
+ */
+public class BatchCoordinator
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Sent by each worker when it connects, to check it is talking to a coordinator.
+     */
+    static final int PROTOCOL = 0x534f4d31;
+
+    /**
+     * The commands sent to the workers.
+     */
+    static final int STOP = 0;
+    static final int EPOCH = 1;
+
+    /**
+     * The default timeout, in milliseconds.
+     */
+    static final int DEFAULT_TIMEOUT = 10 * 60 * 1000;
+
+    /**
+     * The map being trained.
+     */
+    private final SelfOrganizingMap map;
+
+    /**
+     * The number of workers to wait for.
+     */
+    private final int workerCount;
+
+    /**
+     * The socket the workers connect to.
+     */
+    private final ServerSocket server;
+
+    /**
+     * How long, in milliseconds, to wait for each worker to connect, and for each
+     * worker to reply to the coordinator, before training fails. Zero waits forever.
+     */
+    private int timeout = DEFAULT_TIMEOUT;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor, starts listening for workers.
+     * @param m the map to train. Its width, seed and number of threads should be set, the
+     * number of attributes and the column means are taken from the workers' data.
+     * @param port the port to listen on, zero for any free port.
+     * @param workers the number of workers to wait for.
+     * @throws IOException if the port can't be listened on.
+     */
+    public BatchCoordinator(SelfOrganizingMap m, int port, int workers) throws IOException
+    {
+	map = m;
+	workerCount = workers;
+	server = new ServerSocket(port);
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * @return the port listened on.
+     */
+    public int getPort() { return server.getLocalPort(); }
+
+    public int getTimeout() { return timeout; }
+    public void setTimeout(int timeout) { this.timeout = timeout; }
+
+    /**
+     * Waits for every worker to connect, then builds and trains the map. Training runs
+     * for the map's number of batch epochs, or until the average correction made to the
+     * weights during a pass, once the neighbourhood has shrunk to its final size, falls
+     * below the maximum error. The workers are then told to stop, and the socket closed.
+     *
+     * @param maxError The maximum permissible error rate for the network.
+     * @return the number of patterns trained on, over all of the workers.
+     * @throws IOException if a worker fails, sends something unexpected, or doesn't
+     * connect or reply within the timeout.
+     */
+    public int train(double maxError) throws IOException
+    {
+	Socket[] sockets = new Socket[workerCount];
+	DataInputStream[] in = new DataInputStream[workerCount];
+	DataOutputStream[] out = new DataOutputStream[workerCount];
+
+	try
+	{
+	    int attributes = -1;
+	    int patterns = 0;
+	    double[] columnSums = null;
+
+	    // Each worker says how much data it has, and what its columns sum to.
+	    for (int w = 0; w < workerCount; w++)
+	    {
+		server.setSoTimeout(timeout);
+
+		try { sockets[w] = server.accept(); }
+		catch (SocketTimeoutException e)
+		{
+		    throw new IOException("Only " + w + " of " + workerCount + " workers connected within " + timeout + "ms");
+		}
+
+		sockets[w].setSoTimeout(timeout);
+		in[w] = new DataInputStream(new BufferedInputStream(sockets[w].getInputStream()));
+		out[w] = new DataOutputStream(new BufferedOutputStream(sockets[w].getOutputStream()));
+
+		try
+		{
+		    if (in[w].readInt() != PROTOCOL)
+			throw new IOException("Worker " + w + " is not a batch worker");
+
+		    int a = in[w].readInt();
+
+		    if (attributes < 0)
+		    {
+			attributes = a;
+			columnSums = new double[a];
+		    }
+		    else if (a != attributes)
+			throw new IOException("Worker " + w + " has " + a + " attributes, expected " + attributes);
+
+		    patterns += in[w].readInt();
+		    add(columnSums, readDoubles(in[w], attributes));
+		}
+		catch (SocketTimeoutException e) { throw timedOut(w); }
+
+		System.out.println("Worker " + w + " connected from " + sockets[w].getInetAddress());
+	    }
+
+	    if (patterns < 1)
+		throw new IOException("The workers have no training data");
+
+	    double[] columnMeans = new double[attributes];
+
+	    for (int a = 0; a < attributes; a++)
+		columnMeans[a] = columnSums[a] / patterns;
+
+	    // Training is carried out in double precision, as the weights are sent as doubles.
+	    boolean single = map.isSinglePrecision();
+	    map.setSinglePrecision(false);
+	    map.setAttributes(attributes);
+	    map.setColumnMeans(columnMeans);
+	    map.Build();
+
+	    for (int w = 0; w < workerCount; w++)
+	    {
+		out[w].writeInt(map.mapWidth);
+		writeDoubles(out[w], columnMeans);
+		out[w].flush();
+	    }
+
+	    map.startWorkers();
+
+	    try
+	    {
+		epochs(in, out, patterns, maxError);
+	    }
+	    finally
+	    {
+		map.stopWorkers();
+		map.weightsChanged();
+	    }
+
+	    for (int w = 0; w < workerCount; w++)
+	    {
+		out[w].writeInt(STOP);
+		out[w].flush();
+	    }
+
+	    if (single)
+		map.convertPrecision(true);
+
+	    return patterns;
+	}
+	finally
+	{
+	    for (int w = 0; w < workerCount; w++)
+		if (sockets[w] != null)
+		    sockets[w].close();
+
+	    server.close();
+	}
+    }
+
+    /**
+     * Runs the epochs of the batch algorithm, as BatchTrainer.train() does.
+     * @param in the streams from the workers.
+     * @param out the streams to the workers.
+     * @param patterns the number of patterns over all of the workers.
+     * @param maxError The maximum permissible error rate for the network.
+     * @throws IOException if a worker fails.
+     */
+    private void epochs(DataInputStream[] in, DataOutputStream[] out, int patterns, double maxError) throws IOException
+    {
+	BatchTrainer trainer = new BatchTrainer(map);
+	int epochs = map.batchEpochs;
+
+	for (int epoch = 0; epoch < epochs && !map.isCancelled(); epoch++)
+	{
+	    // Send out the weights, then collect the sums, in worker order so
+	    // that the result doesn't depend on which worker finishes first.
+	    for (int w = 0; w < out.length; w++)
+	    {
+		out[w].writeInt(EPOCH);
+		writeDoubles(out[w], map.codebook);
+		out[w].flush();
+	    }
+
+	    trainer.clear();
+
+	    for (int w = 0; w < in.length; w++)
+	    {
+		try
+		{
+		    add(trainer.sums, readDoubles(in[w], trainer.sums.length));
+
+		    for (int n = 0; n < trainer.hits.length; n++)
+			trainer.hits[n] += in[w].readInt();
+		}
+		catch (SocketTimeoutException e) { throw timedOut(w); }
+	    }
+
+	    double radius = BatchTrainer.radius(epoch, epochs, map.mapWidth, map.ordered);
+	    double error = trainer.update(radius);
+
+	    map.iteration += patterns;
+
+	    System.out.println("Epoch " + (epoch + 1) + " of " + epochs + ", average weight correction: " + error);
+
+	    if (radius <= 1 && error < maxError)
+		break;
+	}
+    }
+
+    /**
+     * @param w the worker that didn't reply.
+     * @return the exception training fails with.
+     */
+    private IOException timedOut(int w)
+    {
+	return new IOException("Worker " + w + " did not reply within " + timeout + "ms");
+    }
+
+    /**
+     * Adds one array to another.
+     * @param total the array added to.
+     * @param values the values to add.
+     */
+    private static void add(double[] total, double[] values)
+    {
+	for (int i = 0; i < total.length; i++)
+	    total[i] += values[i];
+    }
+
+    /**
+     * Reads an array of doubles.
+     * @param in the stream to read from.
+     * @param length the number of doubles.
+     * @return the doubles.
+     * @throws IOException if the stream fails.
+     */
+    static double[] readDoubles(DataInputStream in, int length) throws IOException
+    {
+	double[] values = new double[length];
+
+	for (int i = 0; i < length; i++)
+	    values[i] = in.readDouble();
+
+	return values;
+    }
+
+    /**
+     * Writes an array of doubles.
+     * @param out the stream to write to.
+     * @param values the doubles.
+     * @throws IOException if the stream fails.
+     */
+    static void writeDoubles(DataOutputStream out, double[] values) throws IOException
+    {
+	for (int i = 0; i < values.length; i++)
+	    out.writeDouble(values[i]);
+    }
+}
@@ -0,0 +1,332 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	BatchTrainer.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Trains a self organising map using the batch algorithm.
+ * 
+ * Each epoch first finds the winning neuron of every pattern, with the map held fixed.
+ * The patterns are then summed per winning neuron, and every neuron's weights are set
+ * to the neighbourhood weighted mean of those sums:
+ * 
+ *    w(n) = sum over c of h(n,c) * S(c)  /  sum over c of h(n,c) * N(c)
+ * 
+ * where S(c) is the sum of the patterns won by neuron c, N(c) is how many patterns
+ * neuron c won, and h is a Gaussian of the distance between n and c in the map. The
+ * width of the Gaussian shrinks from half the map width down to one over the epochs
+ * (from an eighth of the map width if the map was initialised linearly).
+ * 
+ * Unlike the online algorithm, the result does not depend on the order the patterns are
+ * presented in, and both the winner search and the update can be shared between threads.
+ * Given the same starting map the result is the same regardless of the thread count.
+ * 
+ * @author Rob Lyon
+ */
+class BatchTrainer
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The map being trained.
+     */
+    private SelfOrganizingMap map;
+
+    /**
+     * The number of neurons in the map.
+     */
+    private int neurons;
+
+    /**
+     * The sum of the patterns won by each neuron, with attributes values per neuron.
+     */
+    double[] sums;
+
+    /**
+     * The number of patterns won by each neuron.
+     */
+    int[] hits;
+
+    /**
+     * The neighbourhood function, indexed by squared distance in the map.
+     */
+    private double[] kernel;
+
+    /**
+     * The average correction made to the weights of each neuron by the last update.
+     */
+    private double[] neuronError;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param m the map to train.
+     */
+    BatchTrainer(SelfOrganizingMap m)
+    {
+	map = m;
+	neurons = map.mapWidth * map.mapWidth;
+	sums = new double[neurons * map.attributes];
+	hits = new int[neurons];
+	kernel = new double[(2 * (map.mapWidth - 1) * (map.mapWidth - 1)) + 1];
+	neuronError = new double[neurons];
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Trains the map.
+     * @param data the training data.
+     * @param epochs the number of passes to make over the data.
+     * @param maxError the average weight correction below which training stops,
+     * once the neighbourhood has reached its final size.
+     */
+    void train(ArrayList<double[]> data, int epochs, double maxError)
+    {
+	// Carry on after the last epoch checkpointed, if resuming.
+	Checkpoint resumed = map.resumed();
+	int first = resumed == null ? 0 : resumed.epoch;
+
+	for (int epoch = first; epoch < epochs && !map.isCancelled(); epoch++)
+	{
+	    clear();
+	    accumulate(data);
+
+	    double radius = radius(epoch, epochs, map.mapWidth, map.ordered);
+	    double error = update(radius);
+
+	    map.iteration += data.size();
+	    map.checkpoint(epoch + 1, null);
+
+	    if (radius <= 1 && error < maxError)
+		break;
+	}
+    }
+
+    /**
+     * Clears the accumulated sums.
+     */
+    void clear()
+    {
+	Arrays.fill(sums, 0);
+	Arrays.fill(hits, 0);
+    }
+
+    /**
+     * Finds the winning neuron of each pattern, and adds the pattern to the
+     * sums of its winning neuron. The winner search is shared between the
+     * map's worker threads, the sums are then accumulated in pattern order.
+     * @param data the patterns.
+     */
+    void accumulate(final ArrayList<double[]> data)
+    {
+	final int[] winners = new int[data.size()];
+	int chunks = map.getWorkerCount();
+	ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+	for (int c = 0; c < chunks; c++)
+	{
+	    final int first = (c * data.size()) / chunks;
+	    final int end = ((c + 1) * data.size()) / chunks;
+
+	    tasks.add(new Callable<Object>()
+	    {
+		public Object call()
+		{
+		    for (int i = first; i < end; i++)
+			winners[i] = map.scanWinningIndex(data.get(i));
+		    return null;
+		}
+	    });
+	}
+
+	map.invokeTasks(tasks);
+
+	int attributes = map.attributes;
+
+	for (int i = 0; i < winners.length; i++)
+	{
+	    double[] pattern = data.get(i);
+	    int offset = winners[i] * attributes;
+
+	    for (int a = 0; a < attributes; a++)
+		sums[offset + a] += pattern[a];
+
+	    hits[winners[i]]++;
+	}
+    }
+
+    /**
+     * Sets the weights of every neuron to the neighbourhood weighted mean of
+     * the accumulated sums. The rows of the map are shared between the map's
+     * worker threads.
+     * @param radius the width of the neighbourhood function.
+     * @return the average correction made to the weights of each neuron.
+     */
+    double update(double radius)
+    {
+	for (int d = 0; d < kernel.length; d++)
+	    kernel[d] = Math.exp(-d / (2 * radius * radius));
+
+	// Only neurons that won a pattern contribute to the update.
+	int count = 0;
+	final int[] occupied = new int[neurons];
+
+	for (int n = 0; n < neurons; n++)
+	    if (hits[n] > 0)
+		occupied[count++] = n;
+
+	final int occupiedCount = count;
+	int bandCount = Math.min(map.getWorkerCount(), map.mapWidth);
+	ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+	for (int b = 0; b < bandCount; b++)
+	{
+	    final int firstRow = (b * map.mapWidth) / bandCount;
+	    final int endRow = ((b + 1) * map.mapWidth) / bandCount;
+
+	    tasks.add(new Callable<Object>()
+	    {
+		public Object call()
+		{
+		    updateRows(occupied, occupiedCount, firstRow, endRow);
+		    return null;
+		}
+	    });
+	}
+
+	map.invokeTasks(tasks);
+
+	double error = 0;
+
+	for (int n = 0; n < neurons; n++)
+	    error += neuronError[n];
+
+	return error / neurons;
+    }
+
+    /**
+     * Updates the weights of the neurons in the specified rows of the map.
+     * @param occupied the neurons that won at least one pattern.
+     * @param occupiedCount the number of entries in occupied.
+     * @param firstRow the first row to update.
+     * @param endRow the row after the last row to update.
+     */
+    private void updateRows(int[] occupied, int occupiedCount, int firstRow, int endRow)
+    {
+	int width = map.mapWidth;
+	int attributes = map.attributes;
+	double[] codebook = map.codebook;
+	float[] floatCodebook = map.floatCodebook;
+	double[] numerator = new double[attributes];
+
+	for (int n = firstRow * width; n < endRow * width; n++)
+	{
+	    int x = n / width;
+	    int y = n % width;
+	    double denominator = 0;
+	    Arrays.fill(numerator, 0);
+
+	    for (int i = 0; i < occupiedCount; i++)
+	    {
+		int c = occupied[i];
+		int dx = x - (c / width);
+		int dy = y - (c % width);
+		double h = kernel[(dx * dx) + (dy * dy)];
+
+		denominator += h * hits[c];
+
+		int offset = c * attributes;
+		for (int a = 0; a < attributes; a++)
+		    numerator[a] += h * sums[offset + a];
+	    }
+
+	    // If the neighbourhood is so narrow that no pattern
+	    // reaches this neuron, leave its weights as they are.
+	    double sum = 0;
+
+	    if (denominator > 0)
+	    {
+		int offset = n * attributes;
+		for (int a = 0; a < attributes; a++)
+		{
+		    double weight = numerator[a] / denominator;
+
+		    if (floatCodebook != null)
+		    {
+			sum += Math.abs(weight - floatCodebook[offset + a]);
+			floatCodebook[offset + a] = (float) weight;
+		    }
+		    else
+		    {
+			sum += Math.abs(weight - codebook[offset + a]);
+			codebook[offset + a] = weight;
+		    }
+		}
+	    }
+
+	    neuronError[n] = sum / attributes;
+	}
+    }
+
+    /**
+     * The width of the neighbourhood function during an epoch. This decays
+     * exponentially from half the map width during the first epoch, to one
+     * during the last. A map initialised linearly is already ordered, so
+     * doesn't need the wide neighbourhood to unfold it, and starts from an
+     * eighth of the map width instead. It then needs far fewer epochs.
+     * @param epoch the current epoch.
+     * @param epochs the total number of epochs.
+     * @param mapWidth the width of the map.
+     * @param ordered true if the map was initialised linearly.
+     * @return the width of the neighbourhood function.
+     */
+    static double radius(int epoch, int epochs, int mapWidth, boolean ordered)
+    {
+	double start = Math.max(mapWidth / (ordered ? 8.0 : 2.0), 1);
+
+	if (epochs < 2)
+	    return 1;
+
+	return start * Math.pow(1 / start, (double) epoch / (epochs - 1));
+    }
+}
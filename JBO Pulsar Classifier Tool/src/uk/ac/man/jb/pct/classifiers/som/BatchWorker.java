@@ -0,0 +1,201 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	BatchWorker.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * Holds part of the training data of a map trained by a BatchCoordinator. Each
+ * epoch the worker is sent the map's weights, finds the winning neuron of each
+ * of its patterns, and sends back the sum of the patterns won by each neuron and
+ * the number of patterns each neuron won. See BatchCoordinator for details.
+ *
+ * @author Rob Lyon
+ */
+public class BatchWorker
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The number of times a connection to the coordinator is tried, a second
+     * apart, so the workers may be started before the coordinator.
+     */
+    private static final int CONNECT_ATTEMPTS = 60;
+
+    /**
+     * The worker's share of the training data, not yet normalised.
+     */
+    private final ArrayList<double[]> data;
+
+    /**
+     * The number of threads used to find the winning neurons.
+     */
+    private int threads = 1;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param d the worker's share of the training data, which is normalised in place.
+     */
+    public BatchWorker(ArrayList<double[]> d)
+    {
+	if (d == null || d.isEmpty())
+	    throw new IllegalArgumentException("A batch worker needs some training data");
+
+	data = d;
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    /**
+     * Connects to the coordinator, and works for it until training is finished.
+     * @param host the host the coordinator is running on.
+     * @param port the port the coordinator is listening on.
+     * @return the number of epochs worked.
+     * @throws IOException if the coordinator can't be reached, or fails.
+     */
+    public int run(String host, int port) throws IOException
+    {
+	Socket socket = connect(host, port);
+
+	try
+	{
+	    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+	    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	    int attributes = data.get(0).length;
+
+	    // Say how much data there is, and what the columns sum to.
+	    double[] columnSums = new double[attributes];
+
+	    for (double[] pattern : data)
+		for (int a = 0; a < attributes; a++)
+		    columnSums[a] += pattern[a];
+
+	    out.writeInt(BatchCoordinator.PROTOCOL);
+	    out.writeInt(attributes);
+	    out.writeInt(data.size());
+	    BatchCoordinator.writeDoubles(out, columnSums);
+	    out.flush();
+
+	    // The map, and the means of the whole of the training data.
+	    int width = in.readInt();
+	    double[] columnMeans = BatchCoordinator.readDoubles(in, attributes);
+
+	    SelfOrganizingMap map = new SelfOrganizingMap(data);
+	    map.setAttributes(attributes);
+	    map.setMapWidth(width);
+	    map.setColumnMeans(columnMeans);
+	    map.setThreads(threads);
+
+	    for (double[] pattern : data)
+		map.NormalisePattern(pattern);
+
+	    BatchTrainer trainer = new BatchTrainer(map);
+	    int epochs = 0;
+
+	    map.startWorkers();
+
+	    try
+	    {
+		while (in.readInt() == BatchCoordinator.EPOCH)
+		{
+		    map.codebook = BatchCoordinator.readDoubles(in, width * width * attributes);
+
+		    trainer.clear();
+		    trainer.accumulate(data);
+
+		    BatchCoordinator.writeDoubles(out, trainer.sums);
+
+		    for (int n = 0; n < trainer.hits.length; n++)
+			out.writeInt(trainer.hits[n]);
+
+		    out.flush();
+		    epochs++;
+		}
+	    }
+	    finally { map.stopWorkers(); }
+
+	    return epochs;
+	}
+	finally { socket.close(); }
+    }
+
+    /**
+     * Connects to the coordinator, waiting for it to start if need be.
+     * @param host the host the coordinator is running on.
+     * @param port the port the coordinator is listening on.
+     * @return the connection.
+     * @throws IOException if the coordinator can't be reached.
+     */
+    private static Socket connect(String host, int port) throws IOException
+    {
+	for (int attempt = 1; ; attempt++)
+	{
+	    try
+	    {
+		return new Socket(host, port);
+	    }
+	    catch (ConnectException e)
+	    {
+		if (attempt >= CONNECT_ATTEMPTS)
+		    throw e;
+	    }
+
+	    try
+	    {
+		Thread.sleep(1000);
+	    }
+	    catch (InterruptedException e)
+	    {
+		Thread.currentThread().interrupt();
+		throw new IOException("Interrupted while connecting to the coordinator");
+	    }
+	}
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	Checkpoint.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The state of a map part way through training, taken between two epochs, so that
+ * training can be carried on from where it left off if the process dies. It holds
+ * everything training depends on: the weights, the iteration counter, the state of
+ * the random number generator and the current order of the patterns, the number of
+ * epochs completed, and the errors the convergence monitor has seen so far. Training
+ * resumed from a checkpoint, on the same data and with the same options, produces
+ * the same map as training that was never interrupted.
+ *
+ * Checkpoints are written in a compact binary format, rather than as XML, the weights
+ * in the precision the map holds them in. A checkpoint is first written to a temporary
+ * file beside the real one, then renamed over it, so a process that dies while writing
+ * leaves the previous checkpoint intact.
+ *
+ * @author Rob Lyon
+ */
+class Checkpoint
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The first bytes of every checkpoint, and the version of the format.
+     */
+    private static final int MAGIC = 0x534f4d43;
+    private static final int VERSION = 1;
+
+    /**
+     * The shape of the map.
+     */
+    int mapWidth;
+    int attributes;
+    boolean singlePrecision;
+    boolean ordered;
+
+    /**
+     * The weights, only one of which is set, depending on the precision.
+     */
+    double[] codebook;
+    float[] floatCodebook;
+
+    /**
+     * The means the training data was normalised by, null if unknown.
+     */
+    double[] columnMeans;
+
+    /**
+     * The iteration counter, and the number of epochs of the current training run completed.
+     */
+    int iteration;
+    int epoch;
+
+    /**
+     * The state of the random number generator, serialised.
+     */
+    byte[] random;
+
+    /**
+     * The order the patterns were presented in during the last epoch, null if not yet used.
+     */
+    int[] order;
+
+    /**
+     * The time spent training so far in milliseconds, and the quantization and topographic
+     * errors of each epoch, as seen by the convergence monitor. Empty for batch training.
+     */
+    long elapsed;
+    double[] quantizationErrors = new double[0];
+    double[] topographicErrors = new double[0];
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Constructor used when reading a checkpoint.
+     */
+    private Checkpoint(){}
+
+    /**
+     * Primary constructor, takes a copy of the map's state.
+     * @param map the map being trained.
+     * @param epochs the number of epochs of the current training run completed.
+     * @param monitor the monitor of the current training run, null if there isn't one.
+     * @param r the map's random number generator.
+     * @param o the map's current order of the patterns, may be null.
+     * @throws IOException if the random number generator can't be serialised.
+     */
+    Checkpoint(SelfOrganizingMap map, int epochs, ConvergenceMonitor monitor, Random r, int[] o) throws IOException
+    {
+	mapWidth = map.mapWidth;
+	attributes = map.attributes;
+	singlePrecision = map.singlePrecision;
+	ordered = map.ordered;
+	codebook = map.codebook == null ? null : map.codebook.clone();
+	floatCodebook = map.floatCodebook == null ? null : map.floatCodebook.clone();
+	columnMeans = map.columnMeans;
+	iteration = map.iteration;
+	epoch = epochs;
+	order = o == null ? null : o.clone();
+
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	ObjectOutputStream out = new ObjectOutputStream(bytes);
+	out.writeObject(r);
+	out.close();
+	random = bytes.toByteArray();
+
+	if (monitor != null)
+	{
+	    elapsed = monitor.getElapsedTime();
+	    quantizationErrors = toArray(monitor.getQuantizationErrors());
+	    topographicErrors = toArray(monitor.getTopographicErrors());
+	}
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * @return a random number generator in the state the map's was in.
+     * @throws IOException if the state can't be deserialised.
+     */
+    Random random() throws IOException
+    {
+	ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(random));
+
+	try
+	{
+	    return (Random) in.readObject();
+	}
+	catch (ClassNotFoundException e)
+	{
+	    throw new IOException("Invalid random number generator state");
+	}
+	finally { in.close(); }
+    }
+
+    /**
+     * Writes the checkpoint, replacing any previous checkpoint at the same path.
+     * @param path the path to write to.
+     * @throws IOException if the checkpoint can't be written.
+     */
+    void write(String path) throws IOException
+    {
+	File file = new File(path);
+	File temporary = new File(path + ".tmp");
+	FileOutputStream stream = new FileOutputStream(temporary);
+
+	try
+	{
+	    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+
+	    out.writeInt(MAGIC);
+	    out.writeInt(VERSION);
+	    out.writeInt(mapWidth);
+	    out.writeInt(attributes);
+	    out.writeBoolean(singlePrecision);
+	    out.writeBoolean(ordered);
+	    out.writeInt(iteration);
+	    out.writeInt(epoch);
+	    out.writeLong(elapsed);
+
+	    out.writeInt(random.length);
+	    out.write(random);
+
+	    out.writeInt(order == null ? -1 : order.length);
+	    for (int i = 0; order != null && i < order.length; i++)
+		out.writeInt(order[i]);
+
+	    out.writeBoolean(columnMeans != null);
+	    if (columnMeans != null)
+		BatchCoordinator.writeDoubles(out, columnMeans);
+
+	    out.writeInt(quantizationErrors.length);
+	    BatchCoordinator.writeDoubles(out, quantizationErrors);
+	    BatchCoordinator.writeDoubles(out, topographicErrors);
+
+	    if (singlePrecision)
+		for (int k = 0; k < floatCodebook.length; k++)
+		    out.writeFloat(floatCodebook[k]);
+	    else
+		BatchCoordinator.writeDoubles(out, codebook);
+
+	    // Make sure the checkpoint is on disk before it replaces the last one.
+	    out.flush();
+	    stream.getFD().sync();
+	}
+	finally { stream.close(); }
+
+	// Renaming is atomic on the same file system, but on Windows
+	// fails if the file exists, so it has to be deleted first there.
+	if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file)))
+	    throw new IOException("Could not rename " + temporary + " to " + file);
+    }
+
+    /**
+     * Reads a checkpoint.
+     * @param path the path to read from.
+     * @return the checkpoint.
+     * @throws IOException if the file can't be read, or isn't a checkpoint.
+     */
+    static Checkpoint read(String path) throws IOException
+    {
+	DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+
+	try
+	{
+	    if (in.readInt() != MAGIC)
+		throw new IOException(path + " is not a checkpoint");
+
+	    int version = in.readInt();
+
+	    if (version != VERSION)
+		throw new IOException(path + " is a version " + version + " checkpoint, expected version " + VERSION);
+
+	    Checkpoint c = new Checkpoint();
+	    c.mapWidth = in.readInt();
+	    c.attributes = in.readInt();
+	    c.singlePrecision = in.readBoolean();
+	    c.ordered = in.readBoolean();
+	    c.iteration = in.readInt();
+	    c.epoch = in.readInt();
+	    c.elapsed = in.readLong();
+
+	    c.random = new byte[in.readInt()];
+	    in.readFully(c.random);
+
+	    int patterns = in.readInt();
+
+	    if (patterns >= 0)
+	    {
+		c.order = new int[patterns];
+
+		for (int i = 0; i < patterns; i++)
+		    c.order[i] = in.readInt();
+	    }
+
+	    if (in.readBoolean())
+		c.columnMeans = BatchCoordinator.readDoubles(in, c.attributes);
+
+	    int epochs = in.readInt();
+	    c.quantizationErrors = BatchCoordinator.readDoubles(in, epochs);
+	    c.topographicErrors = BatchCoordinator.readDoubles(in, epochs);
+
+	    int weights = c.mapWidth * c.mapWidth * c.attributes;
+
+	    if (c.singlePrecision)
+	    {
+		c.floatCodebook = new float[weights];
+
+		for (int k = 0; k < weights; k++)
+		    c.floatCodebook[k] = in.readFloat();
+	    }
+	    else
+		c.codebook = BatchCoordinator.readDoubles(in, weights);
+
+	    return c;
+	}
+	finally { in.close(); }
+    }
+
+    /**
+     * @param values a list of values.
+     * @return the values as an array.
+     */
+    private static double[] toArray(ArrayList<Double> values)
+    {
+	double[] array = new double[values.size()];
+
+	for (int i = 0; i < array.length; i++)
+	    array[i] = values.get(i);
+
+	return array;
+    }
+}
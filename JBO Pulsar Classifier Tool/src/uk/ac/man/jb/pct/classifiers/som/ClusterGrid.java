@@ -0,0 +1,216 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	ClusterGrid.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Where in the map the labelled training patterns of a SOMClassifier were located,
+ * held as a count of the positive and negative patterns at each neuron, and the set
+ * of neurons at which any were located. Recording or looking up a pattern is a
+ * single array access, where the lists of co-ordinates and the heat map the
+ * classifier persists have to be searched.
+ *
+ * The positions recorded for the classification algorithms are counted separately
+ * from the heat map, as locateClustersSimplified() records each position only once,
+ * but still counts every positive pattern in the heat map.
+ *
+ * @author Rob Lyon
+ */
+class ClusterGrid
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The width of the map.
+     */
+    private final int mapWidth;
+
+    /**
+     * The number of positive and negative positions recorded at each neuron.
+     */
+    private final int[][] positives;
+    private final int[][] negatives;
+
+    /**
+     * The number of positive patterns won by each neuron, the heat map.
+     */
+    private final int[][] frequencies;
+
+    /**
+     * The neurons at which any position is recorded, indexed as the codebook is.
+     */
+    private final BitSet occupied;
+
+    /**
+     * The total number of positions recorded.
+     */
+    private int patterns = 0;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor, creates an empty grid.
+     * @param width the width of the map.
+     */
+    ClusterGrid(int width)
+    {
+	mapWidth = width;
+	positives = new int[width][width];
+	negatives = new int[width][width];
+	frequencies = new int[width][width];
+	occupied = new BitSet(width * width);
+    }
+
+    /**
+     * Creates the grid the lists of co-ordinates and the heat map of a classifier
+     * describe, for instance one loaded from disk.
+     * @param width the width of the map.
+     * @param positiveCoords the positions of the positive patterns, may be null.
+     * @param negativeCoords the positions of the negative patterns, may be null.
+     * @param heatMap the number of positive patterns won by each neuron, may be null.
+     */
+    ClusterGrid(int width, List<Point> positiveCoords, List<Point> negativeCoords, List<FrequencyPoint> heatMap)
+    {
+	this(width);
+
+	for (int i = 0; positiveCoords != null && i < positiveCoords.size(); i++)
+	    record(positives, positiveCoords.get(i), false);
+
+	for (int i = 0; negativeCoords != null && i < negativeCoords.size(); i++)
+	    record(negatives, negativeCoords.get(i), false);
+
+	for (int i = 0; heatMap != null && i < heatMap.size(); i++)
+	    frequencies[heatMap.get(i).X][heatMap.get(i).Y] += heatMap.get(i).frequency;
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Getters
+    //*****************************************
+    //*****************************************
+
+    int getMapWidth() { return mapWidth; }
+    int getPatterns() { return patterns; }
+    int getPositives(int x, int y) { return positives[x][y]; }
+    int getNegatives(int x, int y) { return negatives[x][y]; }
+
+    /**
+     * @return the neurons at which any position is recorded. Not to be modified.
+     */
+    BitSet getOccupied() { return occupied; }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Records the position of a positive pattern, and counts it in the heat map.
+     * @param p the position of the pattern's winning neuron.
+     * @param unique true to record each position only once.
+     */
+    void addPositive(Point p, boolean unique)
+    {
+	record(positives, p, unique);
+	frequencies[p.x][p.y]++;
+    }
+
+    /**
+     * Records the position of a negative pattern.
+     * @param p the position of the pattern's winning neuron.
+     * @param unique true to record each position only once.
+     */
+    void addNegative(Point p, boolean unique) { record(negatives, p, unique); }
+
+    /**
+     * @return the positions of the positive patterns, sorted by row then column.
+     */
+    ArrayList<Point> getPositiveCoords() { return coords(positives); }
+
+    /**
+     * @return the positions of the negative patterns, sorted by row then column.
+     */
+    ArrayList<Point> getNegativeCoords() { return coords(negatives); }
+
+    /**
+     * @return the number of positive patterns won by each neuron that won any,
+     * sorted by row then column.
+     */
+    ArrayList<FrequencyPoint> getHeatMap()
+    {
+	ArrayList<FrequencyPoint> heatMap = new ArrayList<FrequencyPoint>();
+
+	for (int x = 0; x < mapWidth; x++)
+	    for (int y = 0; y < mapWidth; y++)
+		if (frequencies[x][y] > 0)
+		    heatMap.add(new FrequencyPoint(x, y, frequencies[x][y]));
+
+	return heatMap;
+    }
+
+    /**
+     * @param counts the number of positions recorded at each neuron.
+     * @param p a position.
+     * @param unique true to record each position only once.
+     */
+    private void record(int[][] counts, Point p, boolean unique)
+    {
+	if (unique && counts[p.x][p.y] > 0)
+	    return;
+
+	counts[p.x][p.y]++;
+	occupied.set((p.x * mapWidth) + p.y);
+	patterns++;
+    }
+
+    /**
+     * @param counts the number of positions recorded at each neuron.
+     * @return each position as many times as it was recorded, sorted by row then column.
+     */
+    private ArrayList<Point> coords(int[][] counts)
+    {
+	ArrayList<Point> coords = new ArrayList<Point>(patterns);
+
+	for (int c = occupied.nextSetBit(0); c >= 0; c = occupied.nextSetBit(c + 1))
+	    for (int i = 0; i < counts[c / mapWidth][c % mapWidth]; i++)
+		coords.add(new Point(c / mapWidth, c % mapWidth));
+
+	return coords;
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	ConvergenceMonitor.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.util.ArrayList;
+
+/**
+ * Monitors the progress of online training, one pass over the data (epoch) at a time,
+ * and decides when training should stop.
+ * 
+ * For each epoch the quantization error (the mean distance between each pattern and
+ * its winning neuron) and the topographic error (the fraction of patterns whose two
+ * closest neurons are not adjacent in the map) are recorded. Both are measured as each
+ * pattern is trained on, just before the map is updated, so they cost no extra pass
+ * over the data.
+ * 
+ * Training stops when the first of the following happens:
+ * 
+ * 1. The error used by the original algorithm falls to the maximum permissible error.
+ * 2. The maximum number of epochs has been run.
+ * 3. The time allowed for training has run out.
+ * 4. The quantization error has failed to improve for patience epochs in a row.
+ * 
+ * A limit of zero disables the corresponding check. Training may also be cancelled
+ * part way through an epoch, see SelfOrganizingMap.cancel(). The reason training
+ * stopped is printed, and kept for inspection via getStopReason().
+ * 
+ * @author Rob Lyon
+ */
+public class ConvergenceMonitor
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The relative reduction in quantization error that counts as an improvement.
+     */
+    private static final double MIN_IMPROVEMENT = 0.0001;
+
+    /**
+     * The maximum number of epochs to train for, zero for no limit.
+     */
+    private int maxEpochs;
+
+    /**
+     * The maximum time to train for in milliseconds, zero for no limit.
+     */
+    private long timeLimit;
+
+    /**
+     * The number of epochs without improvement after which training stops, zero to never stop early.
+     */
+    private int patience;
+
+    /**
+     * The time training started, in milliseconds.
+     */
+    private long startTime;
+
+    /**
+     * The lowest quantization error seen so far.
+     */
+    private double bestError = Double.MAX_VALUE;
+
+    /**
+     * The number of epochs since the quantization error last improved.
+     */
+    private int epochsWithoutImprovement = 0;
+
+    /**
+     * The quantization and topographic errors of each epoch.
+     */
+    private ArrayList<Double> quantizationErrors = new ArrayList<Double>();
+    private ArrayList<Double> topographicErrors = new ArrayList<Double>();
+
+    /**
+     * Why training stopped, null if it has not.
+     */
+    private String stopReason = null;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param epochs the maximum number of epochs to train for, zero for no limit.
+     * @param seconds the maximum time to train for in seconds, zero for no limit.
+     * @param p the number of epochs without improvement after which training stops, zero to never stop early.
+     */
+    public ConvergenceMonitor(int epochs, int seconds, int p)
+    {
+	maxEpochs = epochs;
+	timeLimit = seconds * 1000L;
+	patience = p;
+	startTime = System.currentTimeMillis();
+    }
+
+    //*****************************************
+    //*****************************************
+    //          Getters & Setters
+    //*****************************************
+    //*****************************************
+
+    public int getEpochs() { return quantizationErrors.size(); }
+    public ArrayList<Double> getQuantizationErrors() { return quantizationErrors; }
+    public ArrayList<Double> getTopographicErrors() { return topographicErrors; }
+    public String getStopReason() { return stopReason; }
+
+    /**
+     * @return the quantization error of the last epoch, or -1 if no epochs have run.
+     */
+    public double getQuantizationError() { return quantizationErrors.isEmpty() ? -1 : quantizationErrors.get(quantizationErrors.size() - 1); }
+
+    /**
+     * @return the topographic error of the last epoch, or -1 if no epochs have run.
+     */
+    public double getTopographicError() { return topographicErrors.isEmpty() ? -1 : topographicErrors.get(topographicErrors.size() - 1); }
+
+    /**
+     * @return the time spent training so far, in milliseconds.
+     */
+    public long getElapsedTime() { return System.currentTimeMillis() - startTime; }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Records the results of an epoch, and decides whether training should stop.
+     * @param error the error used by the original algorithm, the summed weight corrections.
+     * @param maxError the maximum permissible error.
+     * @param quantizationError the quantization error of the epoch.
+     * @param topographicError the topographic error of the epoch.
+     * @return true if training should stop, else false.
+     */
+    public boolean endEpoch(double error, double maxError, double quantizationError, double topographicError)
+    {
+	record(quantizationError, topographicError);
+
+	int epochs = getEpochs();
+
+	if (error <= maxError)
+	    stopReason = "error " + error + " is within the maximum permissible error " + maxError;
+	else if (maxEpochs > 0 && epochs >= maxEpochs)
+	    stopReason = "the maximum of " + maxEpochs + " epochs was reached";
+	else if (timeLimit > 0 && System.currentTimeMillis() - startTime >= timeLimit)
+	    stopReason = "the time limit of " + (timeLimit / 1000) + " seconds was reached";
+	else if (patience > 0 && epochsWithoutImprovement >= patience)
+	    stopReason = "the quantization error has not improved for " + patience + " epochs";
+	else
+	    return false;
+
+	System.out.println("Training stopped after " + epochs + " epochs, " + stopReason +
+		" (quantization error: " + quantizationError + ", topographic error: " + topographicError + ")");
+
+	return true;
+    }
+
+    /**
+     * Records the errors of an epoch, and whether the quantization error improved.
+     * @param quantizationError the quantization error of the epoch.
+     * @param topographicError the topographic error of the epoch.
+     */
+    private void record(double quantizationError, double topographicError)
+    {
+	quantizationErrors.add(quantizationError);
+	topographicErrors.add(topographicError);
+
+	if (quantizationError < bestError * (1 - MIN_IMPROVEMENT))
+	{
+	    bestError = quantizationError;
+	    epochsWithoutImprovement = 0;
+	}
+	else
+	    epochsWithoutImprovement++;
+    }
+
+    /**
+     * Carries on monitoring a training run resumed from a checkpoint, as though
+     * it had never stopped. The epochs already run count towards the limits.
+     * @param quantization the quantization error of each epoch already run.
+     * @param topographic the topographic error of each epoch already run.
+     * @param elapsed the time already spent training, in milliseconds.
+     */
+    void resume(double[] quantization, double[] topographic, long elapsed)
+    {
+	for (int i = 0; i < quantization.length; i++)
+	    record(quantization[i], topographic[i]);
+
+	startTime = System.currentTimeMillis() - elapsed;
+    }
+
+    /**
+     * Records that training was cancelled before the current epoch finished. The
+     * partial epoch's errors are not recorded.
+     * @return true, training should stop.
+     */
+    public boolean cancel()
+    {
+	stopReason = "training was cancelled";
+	System.out.println("Training cancelled after " + getEpochs() + " epochs");
+	return true;
+    }
+}
@@ -0,0 +1,399 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	DecisionTable.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.util.BitSet;
+import java.util.Random;
+import uk.ac.man.jb.pct.mvc.Constants;
+
+/**
+ * The decisions of the SOMClassifier's classification algorithms, worked out in
+ * advance for every neuron in the map.
+ *
+ * A pattern is classified using only the position of its winning neuron, and the
+ * positions of the winning neurons of the labelled training patterns. There are only
+ * mapWidth * mapWidth positions, so the class each algorithm would give a pattern
+ * won by each neuron can be worked out once, and classification reduced to finding
+ * the winner and reading the table.
+ *
+ * The training patterns are counted per neuron in a ClusterGrid. The nearest neighbours
+ * of a neuron are then found by walking outward from it, ring by ring, where a ring is
+ * every position in the map at the same squared distance from the neuron, and stopping
+ * once K rings holding any training patterns have been found. Each such ring is a shell
+ * of neighbours at equal distance, just as sorting every training pattern by its distance
+ * would have grouped them. The distance weighted vote of the KNN algorithm is summed in
+ * the same order as before, one neighbour at a time, so the tables agree exactly with
+ * the algorithms they replace.
+ *
+ * For discreetKNNClassify() and discreetKNNClassifyUniqueK(), whose choice among tied
+ * neighbours is random, the shells are found by the same walk for each pattern, and
+ * the random choice made from them.
+ *
+ * @author Rob Lyon
+ */
+class DecisionTable
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The width of the map.
+     */
+    private final int mapWidth;
+
+    /**
+     * The number of positive and negative training patterns won by each neuron.
+     */
+    private final int[] positives;
+    private final int[] negatives;
+
+    /**
+     * The number of training patterns located in the map.
+     */
+    private final int patterns;
+
+    /**
+     * Whether each algorithm classifies a pattern won by each neuron as a pulsar,
+     * indexed by algorithm then neuron.
+     */
+    private final boolean[][] decisions = new boolean[3][];
+
+    /**
+     * The rings of positions around a neuron, nearest first. Ring r holds the offsets
+     * from the neuron at squared distance ringDistances[r], which are the offsets
+     * ringStarts[r] to ringStarts[r + 1] - 1 of offsetX and offsetY.
+     */
+    private final int[] ringDistances;
+    private final int[] ringStarts;
+    private final int[] offsetX;
+    private final int[] offsetY;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor, builds the tables of the classify() algorithms.
+     * @param grid the positions of the training patterns, which are copied.
+     * @param k the value of K used by the KNN algorithms.
+     */
+    DecisionTable(ClusterGrid grid, int k)
+    {
+	mapWidth = grid.getMapWidth();
+	patterns = grid.getPatterns();
+
+	int cells = mapWidth * mapWidth;
+	BitSet cellsOccupied = grid.getOccupied();
+	positives = new int[cells];
+	negatives = new int[cells];
+
+	for (int c = cellsOccupied.nextSetBit(0); c >= 0; c = cellsOccupied.nextSetBit(c + 1))
+	{
+	    positives[c] = grid.getPositives(c / mapWidth, c % mapWidth);
+	    negatives[c] = grid.getNegatives(c / mapWidth, c % mapWidth);
+	}
+
+	// Bucket every offset within the map by its squared distance.
+	int furthest = 2 * (mapWidth - 1) * (mapWidth - 1);
+	int[] ringSizes = new int[furthest + 1];
+
+	for (int dx = 1 - mapWidth; dx < mapWidth; dx++)
+	    for (int dy = 1 - mapWidth; dy < mapWidth; dy++)
+		ringSizes[(dx * dx) + (dy * dy)]++;
+
+	int rings = 0;
+	for (int d = 0; d <= furthest; d++)
+	    if (ringSizes[d] > 0)
+		rings++;
+
+	ringDistances = new int[rings];
+	ringStarts = new int[rings + 1];
+	offsetX = new int[((2 * mapWidth) - 1) * ((2 * mapWidth) - 1)];
+	offsetY = new int[offsetX.length];
+
+	int[] next = new int[furthest + 1];
+	for (int d = 0, r = 0, start = 0; d <= furthest; d++)
+	{
+	    next[d] = start;
+
+	    if (ringSizes[d] > 0)
+	    {
+		ringDistances[r] = d;
+		ringStarts[r++] = start;
+		start += ringSizes[d];
+	    }
+	}
+
+	ringStarts[rings] = offsetX.length;
+
+	for (int dx = 1 - mapWidth; dx < mapWidth; dx++)
+	    for (int dy = 1 - mapWidth; dy < mapWidth; dy++)
+	    {
+		int o = next[(dx * dx) + (dy * dy)]++;
+		offsetX[o] = dx;
+		offsetY[o] = dy;
+	    }
+
+	for (int a = 0; a < decisions.length; a++)
+	    decisions[a] = new boolean[cells];
+
+	int[] shell = new int[3 * Math.max(k, 0)];
+
+	for (int c = 0; c < cells; c++)
+	{
+	    decisions[0][c] = positives[c] > 0;
+	    decisions[1][c] = vote(shell, nearestShells(c / mapWidth, c % mapWidth, k, shell));
+	    decisions[2][c] = adjacentPositives(c) >= k;
+	}
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * @param algorithm the classify() algorithm, 0 naive, 1 KNN, 2 simplified KNN.
+     * @param x the row of the winning neuron.
+     * @param y the column of the winning neuron.
+     * @return true if the algorithm classifies a pattern won by the neuron as a pulsar.
+     */
+    boolean isPulsar(int algorithm, int x, int y) { return decisions[algorithm][(x * mapWidth) + y]; }
+
+    /**
+     * @return the number of training patterns located in the map.
+     */
+    int getPatterns() { return patterns; }
+
+    /**
+     * Finds the first k shells of nearest neighbours of a neuron, by walking outward
+     * from it ring by ring until k rings holding any training patterns are found, or
+     * the map is exhausted. Each shell is written to the buffer as a triple of its
+     * squared distance, and the number of positive and negative training patterns in
+     * it, nearest first.
+     * @param x the row of the neuron.
+     * @param y the column of the neuron.
+     * @param k the number of shells.
+     * @param shells the buffer to write the shells to, at least 3 * k long.
+     * @return the number of shells found, k unless there are fewer.
+     */
+    int nearestShells(int x, int y, int k, int[] shells)
+    {
+	int found = 0;
+
+	for (int r = 0; r < ringDistances.length && found < k; r++)
+	{
+	    int positive = 0, negative = 0;
+
+	    for (int o = ringStarts[r]; o < ringStarts[r + 1]; o++)
+	    {
+		int i = x + offsetX[o], j = y + offsetY[o];
+
+		if (i >= 0 && i < mapWidth && j >= 0 && j < mapWidth)
+		{
+		    positive += positives[(i * mapWidth) + j];
+		    negative += negatives[(i * mapWidth) + j];
+		}
+	    }
+
+	    if (positive + negative > 0)
+	    {
+		shells[3 * found] = ringDistances[r];
+		shells[(3 * found) + 1] = positive;
+		shells[(3 * found) + 2] = negative;
+		found++;
+	    }
+	}
+
+	return found;
+    }
+
+    /**
+     * Draws k nearest neighbours at random from the shells of neighbours nearest a
+     * pattern, without replacement, and classifies the pattern by a majority vote
+     * of them, as discreetKNNClassify() describes. The drawn classes are counted
+     * as they are drawn, rather than collected.
+     * @param shells the shells, as found by nearestShells().
+     * @param found the number of shells.
+     * @param k the number of neighbours to draw.
+     * @param tieBreakingParameter if equal to 0 then assign the class of the nearest neighbour in the event of a tie,
+     * if equal to 1, then break ties randomly.
+     * @param random the random number generator.
+     * @return the classification.
+     */
+    static String draw(int[] shells, int found, int k, int tieBreakingParameter, Random random)
+    {
+	int chosen = 0, positive = 0, negative = 0;
+	String nearest = null;
+
+	for (int s = 0; s < found && chosen < k; s++)
+	{
+	    int p = shells[(3 * s) + 1], n = shells[(3 * s) + 2];
+	    int draws = Math.min(p + n, k - chosen);
+
+	    for (int d = 0; d < draws; d++)
+	    {
+		boolean pulsar = random.nextInt(p + n) < p;
+
+		if (pulsar) { p--; positive++; }
+		else { n--; negative++; }
+
+		if (nearest == null)
+		    nearest = pulsar ? Constants.PULSAR : Constants.RFI;
+	    }
+
+	    chosen += draws;
+	}
+
+	if (negative > positive)
+	    return Constants.RFI;
+	else if (positive > negative)
+	    return Constants.PULSAR;
+	else if (tieBreakingParameter == 0)
+	    return nearest;
+	else if (tieBreakingParameter == 1)
+	    return coin(random);
+	else
+	    return "";
+    }
+
+    /**
+     * Classifies a pattern from the first k shells of neighbours nearest it, as
+     * discreetKNNClassifyUniqueK() describes. Each shell votes for the class of one
+     * of its neighbours, chosen at random, and the pattern is given the majority class
+     * of the votes.
+     * @param shells the shells, as found by nearestShells().
+     * @param found the number of shells, at most k.
+     * @param tieBreakingParameter if equal to 0 then assign the class of the nearest neighbour in the event of a tie,
+     * if equal to 1, then break ties randomly.
+     * @param random the random number generator.
+     * @return the classification.
+     */
+    static String drawUnique(int[] shells, int found, int tieBreakingParameter, Random random)
+    {
+	int positive = 0, negative = 0;
+
+	for (int s = 0; s < found; s++)
+	{
+	    if (drawPulsar(shells, s, random))
+		positive++;
+	    else
+		negative++;
+	}
+
+	if (negative > positive)
+	    return Constants.RFI;
+	else if (positive > negative)
+	    return Constants.PULSAR;
+	else if (tieBreakingParameter == 0)
+	    return drawPulsar(shells, 0, random) ? Constants.PULSAR : Constants.RFI;
+	else if (tieBreakingParameter == 1)
+	    return coin(random);
+	else
+	    return "";
+    }
+
+    /**
+     * @param shells the shells, as found by nearestShells().
+     * @param s a shell.
+     * @param random the random number generator.
+     * @return true if a neighbour drawn at random from the shell is a pulsar.
+     */
+    private static boolean drawPulsar(int[] shells, int s, Random random)
+    {
+	int p = shells[(3 * s) + 1], n = shells[(3 * s) + 2];
+	return random.nextInt(p + n) < p;
+    }
+
+    /**
+     * Breaks a tie at random.
+     * @param random the random number generator.
+     * @return the class chosen.
+     */
+    private static String coin(Random random)
+    {
+	double d = random.nextDouble();
+
+	// Just in case d is equal to the split point.
+	while (Double.compare(d, 0.5) == 0)
+	    d = random.nextDouble();
+
+	return Double.compare(d, 0.5) > 0 ? Constants.PULSAR : Constants.RFI;
+    }
+
+    /**
+     * The distance weighted vote of classifyKNN(). Each neighbour in the shells votes
+     * for its class with the reciprocal of its distance, or one if at distance zero,
+     * and ties go to the pulsar class.
+     * @param shell the shells of nearest neighbours of a neuron.
+     * @param found the number of shells.
+     * @return true if the vote is for the pulsar class.
+     */
+    private static boolean vote(int[] shell, int found)
+    {
+	double positive_weight = 0.0;
+	double negative_weight = 0.0;
+
+	for (int s = 0; s < 3 * found; s += 3)
+	{
+	    double distance = Math.sqrt(shell[s]);
+	    double weight = Double.compare(distance, 0.0) == 0 ? 1 : 1.0 / distance;
+
+	    // One neighbour at a time, summed in the order they were before.
+	    for (int i = 0; i < shell[s + 1]; i++)
+		positive_weight = positive_weight + weight;
+
+	    for (int i = 0; i < shell[s + 2]; i++)
+		negative_weight = negative_weight + weight;
+	}
+
+	return Double.compare(positive_weight, negative_weight) >= 0;
+    }
+
+    /**
+     * @param cell a neuron.
+     * @return the number of positive training patterns won by the neuron and the
+     * neurons within a distance of 1.1 of it, as counted by classifyKNNSimplified().
+     */
+    private int adjacentPositives(int cell)
+    {
+	int x = cell / mapWidth, y = cell % mapWidth;
+	int count = 0;
+
+	for (int i = Math.max(0, x - 1); i <= Math.min(mapWidth - 1, x + 1); i++)
+	    for (int j = Math.max(0, y - 1); j <= Math.min(mapWidth - 1, y + 1); j++)
+		if (SOMClassifier.distanceBetweenPoints(x, y, i, j) < 1.1)
+		    count += positives[(i * mapWidth) + j];
+
+	return count;
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	DistanceKernel.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+/**
+ * The distance kernels used to find the neuron closest to a pattern.
+ * 
+ * Both kernels compute the squared Euclidean distance between a pattern and the
+ * weights of a neuron held in a codebook, abandoning the sum once it reaches a bound.
+ * No term is negative, so a neuron whose partial sum reaches the distance of the best
+ * neuron seen so far can't be closer, and the rest of its attributes can be skipped.
+ * The scalar kernel adds one term at a time, so every addition waits on the one
+ * before it. The unrolled kernel works through the attributes four at a time, into four
+ * independent sums, which lets the processor (and the JIT's vectoriser) work on several
+ * attributes at once. The bound is checked once per block of four.
+ * 
+ * The sums are added in a different order, so the two kernels may differ in the last
+ * bit of their results.
+ * 
+ * A single precision version of the unrolled kernel is used by maps that store their
+ * weights as floats. It reads half as many bytes per neuron, and the processor can fit
+ * twice as many floats as doubles into each of its vector registers.
+ * 
+ * @author Rob Lyon
+ */
+public final class DistanceKernel
+{
+    //*****************************************
+    //*****************************************
+    //              Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Static methods only.
+     */
+    private DistanceKernel(){}
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Calculates the squared Euclidean distance between a pattern and a neuron, four attributes at a time.
+     * @param pattern the input pattern.
+     * @param codebook the weights of the neurons.
+     * @param offset the index in the codebook at which the neuron's weights begin.
+     * @param bound the distance at which to stop summing, Double.MAX_VALUE for none.
+     * @return the squared distance, or a partial sum at least as large as the bound.
+     */
+    public static double squaredDistance(double[] pattern, double[] codebook, int offset, double bound)
+    {
+	double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+	int i = 0;
+
+	for (int end = pattern.length - 3; i < end; i += 4, offset += 4)
+	{
+	    double d0 = pattern[i] - codebook[offset];
+	    double d1 = pattern[i + 1] - codebook[offset + 1];
+	    double d2 = pattern[i + 2] - codebook[offset + 2];
+	    double d3 = pattern[i + 3] - codebook[offset + 3];
+
+	    s0 += d0 * d0;
+	    s1 += d1 * d1;
+	    s2 += d2 * d2;
+	    s3 += d3 * d3;
+
+	    if ((s0 + s1) + (s2 + s3) >= bound)
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	double distance = (s0 + s1) + (s2 + s3);
+
+	//Any attributes left over.
+	for (; i < pattern.length; i++, offset++)
+	{
+	    double d = pattern[i] - codebook[offset];
+	    distance += d * d;
+	}
+
+	return distance;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between a pattern and a neuron, four
+     * attributes at a time, in single precision.
+     * @param pattern the input pattern.
+     * @param codebook the weights of the neurons.
+     * @param offset the index in the codebook at which the neuron's weights begin.
+     * @param bound the distance at which to stop summing, Double.MAX_VALUE for none.
+     * @return the squared distance, or a partial sum at least as large as the bound.
+     */
+    public static double squaredDistance(float[] pattern, float[] codebook, int offset, double bound)
+    {
+	float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+	int i = 0;
+
+	for (int end = pattern.length - 3; i < end; i += 4, offset += 4)
+	{
+	    float d0 = pattern[i] - codebook[offset];
+	    float d1 = pattern[i + 1] - codebook[offset + 1];
+	    float d2 = pattern[i + 2] - codebook[offset + 2];
+	    float d3 = pattern[i + 3] - codebook[offset + 3];
+
+	    s0 += d0 * d0;
+	    s1 += d1 * d1;
+	    s2 += d2 * d2;
+	    s3 += d3 * d3;
+
+	    if ((s0 + s1) + (s2 + s3) >= bound)
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	float distance = (s0 + s1) + (s2 + s3);
+
+	//Any attributes left over.
+	for (; i < pattern.length; i++, offset++)
+	{
+	    float d = pattern[i] - codebook[offset];
+	    distance += d * d;
+	}
+
+	return distance;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between a pattern and a neuron, one attribute at a time.
+     * @param pattern the input pattern.
+     * @param codebook the weights of the neurons.
+     * @param offset the index in the codebook at which the neuron's weights begin.
+     * @param bound the distance at which to stop summing, Double.MAX_VALUE for none.
+     * @return the squared distance, or a partial sum at least as large as the bound.
+     */
+    public static double squaredDistanceScalar(double[] pattern, double[] codebook, int offset, double bound)
+    {
+	double distance = 0;
+
+	for (int i = 0; i < pattern.length && distance < bound; i++)
+	{
+	    double d = pattern[i] - codebook[offset + i];
+	    distance += d * d;
+	}
+
+	return distance;
+    }
+}
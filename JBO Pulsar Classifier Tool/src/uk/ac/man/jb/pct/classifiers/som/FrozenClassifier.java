@@ -0,0 +1,218 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	FrozenClassifier.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.man.jb.pct.data.I_InputPattern;
+import uk.ac.man.jb.pct.mvc.Constants;
+
+/**
+ * An immutable view of a trained SOMClassifier, which any number of threads may
+ * classify with at once, without locking. Create one with SOMClassifier.freeze().
+ *
+ * The view holds its own copy of the map's weights, and the decision table built from
+ * the located clusters, neither of which is changed once built, so training the map
+ * or updating the clusters afterwards doesn't affect it. Unlike the map it doesn't
+ * cache winners, as the cache has to be locked.
+ *
+ * The classifications of classify() are the same as those of the SOMClassifier. Those
+ * of discreetKNNClassify() draw neighbours at random in the same way, but rather than
+ * creating a new random number generator for each draw, each thread draws from a
+ * generator of its own, seeded from the seed the view was created with. A generator
+ * may also be passed in, to reproduce a classification.
+ *
+ * @author Rob Lyon
+ */
+public final class FrozenClassifier
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The copy of the map's weights.
+     */
+    private final SelfOrganizingMap map;
+
+    /**
+     * The tree over the weights, null if the map isn't indexed.
+     */
+    private final VantagePointTree tree;
+
+    /**
+     * The decisions of the classification algorithms for each neuron.
+     */
+    private final DecisionTable table;
+
+    /**
+     * Seeds the random number generator of each thread.
+     */
+    private final AtomicLong seeds;
+
+    /**
+     * The random number generator of each thread, and a buffer to find
+     * nearest neighbours in.
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>()
+    {
+	protected Scratch initialValue() { return new Scratch(new Random(seeds.getAndAdd(0x9E3779B97F4A7C15L))); }
+    };
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param m the copy of the map's weights, which is not changed.
+     * @param t the decision table of the classifier.
+     * @param seed the seed of the random number generators.
+     */
+    FrozenClassifier(SelfOrganizingMap m, DecisionTable t, long seed)
+    {
+	map = m;
+	tree = m.indexed ? new VantagePointTree(m) : null;
+	table = t;
+	seeds = new AtomicLong(seed);
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * @return the width of the map.
+     */
+    public int getMapWidth() { return map.mapWidth; }
+
+    /**
+     * Classifies an input pattern using the specified algorithm,
+     * as SOMClassifier.classify() does.
+     * @param p the input pattern.
+     * @param algorithm the algorithm to use for classification, 0 naive,
+     * 1 KNN and 2 simplified KNN.
+     * @return the classification, and the co-ordinate of the winning neuron.
+     */
+    public Object[] classify(I_InputPattern p, int algorithm)
+    {
+	Point coord = getWinningCoordinate(p.getData());
+
+	if(table.isPulsar(algorithm < 0 || algorithm > 2 ? 0 : algorithm, coord.x, coord.y))
+	    return new Object[]{Constants.PULSAR,coord};
+	else
+	    return new Object[]{Constants.RFI,coord};
+    }
+
+    /**
+     * Classifies an input pattern as SOMClassifier.discreetKNNClassify() does,
+     * drawing neighbours with the calling thread's random number generator.
+     * @param p the input pattern.
+     * @param k the number of nearest neighbours, at least one.
+     * @param tieBreakingParameter if equal to 0 then assign the class of the nearest neighbour in the event of a tie,
+     * if equal to 1, then break ties randomly.
+     * @return the classification, and the co-ordinate of the winning neuron,
+     * or null if k is larger than the number of neighbours.
+     */
+    public Object[] discreetKNNClassify(I_InputPattern p, int k, int tieBreakingParameter)
+    {
+	Scratch s = scratch.get();
+	return discreetKNNClassify(p, k, tieBreakingParameter, s.random, s);
+    }
+
+    /**
+     * Classifies an input pattern as SOMClassifier.discreetKNNClassify() does,
+     * drawing neighbours with the given random number generator.
+     * @param p the input pattern.
+     * @param k the number of nearest neighbours, at least one.
+     * @param tieBreakingParameter if equal to 0 then assign the class of the nearest neighbour in the event of a tie,
+     * if equal to 1, then break ties randomly.
+     * @param random the random number generator, used by this thread alone.
+     * @return the classification, and the co-ordinate of the winning neuron,
+     * or null if k is larger than the number of neighbours.
+     */
+    public Object[] discreetKNNClassify(I_InputPattern p, int k, int tieBreakingParameter, Random random)
+    {
+	return discreetKNNClassify(p, k, tieBreakingParameter, random, scratch.get());
+    }
+
+    /**
+     * @param p the input pattern.
+     * @param k the number of nearest neighbours.
+     * @param tieBreakingParameter how ties are broken.
+     * @param random the random number generator.
+     * @param s the calling thread's scratch space.
+     * @return the classification, and the co-ordinate of the winning neuron.
+     */
+    private Object[] discreetKNNClassify(I_InputPattern p, int k, int tieBreakingParameter, Random random, Scratch s)
+    {
+	if(k < 1)
+	    throw new IllegalArgumentException("K must be at least one, not " + k);
+
+	Point coord = getWinningCoordinate(p.getData());
+
+	if(k > table.getPatterns())
+	    return null;
+
+	if(s.shells.length < 3 * k)
+	    s.shells = new int[3 * k];
+
+	int found = table.nearestShells(coord.x, coord.y, k, s.shells);
+	return new Object[]{DecisionTable.draw(s.shells, found, k, tieBreakingParameter, random),coord};
+    }
+
+    /**
+     * Finds the position in the map of the neuron that fires upon
+     * reading the specified pattern.
+     * @param pattern the input pattern data.
+     * @return the co-ordinate of the winning neuron.
+     */
+    private Point getWinningCoordinate(double[] pattern)
+    {
+	int winner = tree != null ? tree.nearest(pattern) : map.scanWinningIndex(pattern);
+	return new Point(map.getX(winner), map.getY(winner));
+    }
+
+    /**
+     * The random number generator of a thread, and a buffer to
+     * find nearest neighbours in.
+     */
+    private static final class Scratch
+    {
+	final Random random;
+	int[] shells = new int[0];
+
+	Scratch(Random r) { random = r; }
+    }
+}
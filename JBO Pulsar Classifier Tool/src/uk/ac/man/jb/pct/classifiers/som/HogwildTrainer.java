@@ -0,0 +1,380 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	HogwildTrainer.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Makes a pass over the training data with the online algorithm, training on
+ * several patterns at once without any locking ("Hogwild" training).
+ *
+ * Each of the map's worker threads repeatedly claims the next mini-batch of patterns
+ * from the pass's order, and trains on them one at a time, exactly as the online
+ * algorithm would: find the winner, then move the neighbourhood towards the pattern.
+ * The workers read and write the shared codebook without synchronising with each
+ * other, so a worker may find a winner using weights another worker is part way
+ * through updating, and two workers updating the same neuron at once may lose one
+ * of the two corrections. Each step only moves the weights a little, and training
+ * tolerates this noise, so the map that results is about as good as one trained
+ * sequentially, but it differs from run to run.
+ *
+ * A worker's view of the weights is stale by the patterns being trained on by the other
+ * workers. To bound this, a worker may not start a mini-batch more than a set number of
+ * mini-batches beyond the oldest mini-batch still being trained on, and waits for the
+ * slower workers to catch up if it would. A waiting worker parks, for longer each time
+ * it finds it must still wait, and the worker with the oldest mini-batch unparks the
+ * waiting workers whenever it moves on. Each pattern is trained with the learning rate
+ * and neighbourhood of its position in the pass, as in sequential training.
+ *
+ * @author Rob Lyon
+ */
+class HogwildTrainer
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The map being trained.
+     */
+    private final SelfOrganizingMap map;
+
+    /**
+     * The number of patterns claimed by a worker at a time.
+     */
+    private final int batchSize;
+
+    /**
+     * The most patterns a worker may start beyond the oldest mini-batch still being trained on.
+     */
+    private final int bound;
+
+    /**
+     * The position in the pass of the next mini-batch to be claimed.
+     */
+    private AtomicInteger next;
+
+    /**
+     * The position in the pass of the mini-batch each worker is training
+     * on, or no later than it, and Integer.MAX_VALUE once it has finished.
+     */
+    private AtomicIntegerArray claimed;
+
+    /**
+     * The thread of each worker waiting for the others to catch up, else null.
+     */
+    private AtomicReferenceArray<Thread> waiting;
+
+    /**
+     * The shortest and the longest a waiting worker parks for at a time, in nanoseconds.
+     */
+    private static final long MIN_PARK = 10000, MAX_PARK = 1000000;
+
+    /**
+     * The summed distance between each pattern and its winner, and the number of patterns
+     * whose two closest neurons are not adjacent, during the last pass over the data.
+     */
+    double distance;
+    int topographicErrors;
+
+    /**
+     * The number of patterns trained on during the last pass, fewer than
+     * the number of patterns only if training was cancelled.
+     */
+    int patterns;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param m the map to train.
+     * @param size the number of patterns claimed by a worker at a time.
+     * @param staleness the most mini-batches a worker may start beyond the
+     * oldest mini-batch still being trained on.
+     */
+    HogwildTrainer(SelfOrganizingMap m, int size, int staleness)
+    {
+	map = m;
+	batchSize = Math.max(size, 1);
+	bound = Math.max(staleness, 0) * batchSize;
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Makes a single pass over the data, shared between the map's worker threads.
+     * @param data the training data.
+     * @param order the order in which to present the patterns, as indexes into the data.
+     * @return the summed weight corrections made during the pass, as for online training.
+     */
+    double epoch(ArrayList<double[]> data, int[] order)
+    {
+	int workers = map.getWorkerCount();
+	next = new AtomicInteger(0);
+	claimed = new AtomicIntegerArray(workers);
+	waiting = new AtomicReferenceArray<Thread>(workers);
+
+	ArrayList<Worker> tasks = new ArrayList<Worker>();
+
+	for (int w = 0; w < workers; w++)
+	{
+	    claimed.set(w, Integer.MAX_VALUE);
+	    tasks.add(new Worker(w, data, order));
+	}
+
+	map.invokeTasks(tasks);
+
+	double error = 0;
+	distance = 0;
+	topographicErrors = 0;
+	patterns = 0;
+
+	for (Worker w : tasks)
+	{
+	    error += w.error;
+	    distance += w.distance;
+	    topographicErrors += w.topographicErrors;
+	    patterns += w.patterns;
+	}
+
+	return error;
+    }
+
+    /**
+     * Waits until a mini-batch is within the staleness bound of the oldest
+     * mini-batch still being trained on.
+     * @param number the worker waiting.
+     * @param start the position in the pass of the mini-batch.
+     */
+    private void waitForOthers(int number, int start)
+    {
+	// The worker with the oldest mini-batch never waits.
+	if (start - oldest(-1) <= bound)
+	    return;
+
+	long park = MIN_PARK;
+	waiting.set(number, Thread.currentThread());
+
+	try
+	{
+	    // Checked again once registered, so an unpark can't be missed. The park
+	    // is timed too, so that a cancelled pass is noticed.
+	    while (start - oldest(-1) > bound && !map.isCancelled())
+	    {
+		LockSupport.parkNanos(park);
+		park = Math.min(park * 2, MAX_PARK);
+	    }
+	}
+	finally { waiting.set(number, null); }
+    }
+
+    /**
+     * Moves a worker on to a later position in the pass. If it was the oldest
+     * mini-batch still being trained on, the waiting workers are unparked to
+     * check whether they are now within the staleness bound.
+     * @param number the worker.
+     * @param position its new position.
+     */
+    private void advance(int number, int position)
+    {
+	int previous = claimed.get(number);
+	claimed.set(number, position);
+
+	if (previous > oldest(number))
+	    return;
+
+	for (int w = 0; w < waiting.length(); w++)
+	{
+	    Thread t = waiting.get(w);
+
+	    if (t != null)
+		LockSupport.unpark(t);
+	}
+    }
+
+    /**
+     * @param except a worker to leave out, or -1 for none.
+     * @return the position of the oldest mini-batch still being trained on.
+     */
+    private int oldest(int except)
+    {
+	int oldest = Integer.MAX_VALUE;
+
+	for (int w = 0; w < claimed.length(); w++)
+	    if (w != except)
+		oldest = Math.min(oldest, claimed.get(w));
+
+	return oldest;
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Workers
+    //*****************************************
+    //*****************************************
+
+    /**
+     * One of the worker threads, with its own kernel and buffers.
+     */
+    private class Worker implements Callable<Object>
+    {
+	private final int number;
+	private final ArrayList<double[]> data;
+	private final int[] order;
+
+	private final NeighbourhoodKernel kernel = new NeighbourhoodKernel();
+	private final double[] neuronError;
+	private float[] floatPattern;
+
+	/**
+	 * The iteration of the first pattern in the pass.
+	 */
+	private final int firstIteration;
+
+	/**
+	 * The worker's share of the errors measured during the pass.
+	 */
+	double error;
+	double distance;
+	int topographicErrors;
+	int patterns;
+
+	Worker(int n, ArrayList<double[]> d, int[] o)
+	{
+	    number = n;
+	    data = d;
+	    order = o;
+	    neuronError = new double[map.mapWidth * map.mapWidth];
+	    firstIteration = map.iteration;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Callable#call()
+	 */
+	public Object call()
+	{
+	    try
+	    {
+		while (!map.isCancelled())
+		{
+		    // Publish a position no later than the mini-batch about to be
+		    // claimed, so that no other worker can overlook this one.
+		    advance(number, next.get());
+		    int start = next.getAndAdd(batchSize);
+
+		    if (start >= order.length)
+			break;
+
+		    advance(number, start);
+		    waitForOthers(number, start);
+
+		    int end = Math.min(start + batchSize, order.length);
+
+		    for (int i = start; i < end; i++)
+			train(data.get(order[i]), firstIteration + i);
+		}
+	    }
+	    finally { advance(number, Integer.MAX_VALUE); }
+
+	    return null;
+	}
+
+	/**
+	 * Performs a single training step on a pattern, as the online algorithm does.
+	 * @param pattern the pattern to train on.
+	 * @param iteration the iteration to train the pattern with.
+	 */
+	private void train(double[] pattern, int iteration)
+	{
+	    int width = map.mapWidth;
+
+	    if (map.singlePrecision)
+		floatPattern = SelfOrganizingMap.toFloat(pattern, floatPattern);
+
+	    // Find the two closest neurons, as RowBand does for the whole map.
+	    int winner = -1, runnerUp = -1;
+	    double closest = Double.MAX_VALUE, secondClosest = Double.MAX_VALUE;
+
+	    for (int n = 0; n < width * width; n++)
+	    {
+		double d = map.singlePrecision ? DistanceKernel.squaredDistance(floatPattern, map.floatCodebook, n * map.attributes, secondClosest) :
+		    DistanceKernel.squaredDistance(pattern, map.codebook, n * map.attributes, secondClosest);
+
+		if (d < closest)
+		{
+		    runnerUp = winner;
+		    secondClosest = closest;
+		    winner = n;
+		    closest = d;
+		}
+		else if (d < secondClosest)
+		{
+		    runnerUp = n;
+		    secondClosest = d;
+		}
+	    }
+
+	    if (runnerUp < 0)
+		runnerUp = winner;
+
+	    distance += Math.sqrt(closest);
+
+	    int winnerX = map.getX(winner), winnerY = map.getY(winner);
+
+	    if (Math.abs(winnerX - map.getX(runnerUp)) > 1 || Math.abs(winnerY - map.getY(runnerUp)) > 1)
+		topographicErrors++;
+
+	    kernel.prepare(map.activeSchedule, iteration, width, map.neighbourhoodThreshold, -1);
+	    map.updateRows(kernel, pattern, floatPattern, neuronError, winnerX, winnerY, 0, width);
+
+	    // Only the neurons within reach were updated.
+	    double patternError = 0;
+	    int reach = kernel.reach();
+
+	    for (int j = Math.max(0, winnerX - reach); j < Math.min(width, winnerX + reach + 1); j++)
+		for (int k = Math.max(0, winnerY - reach); k < Math.min(width, winnerY + reach + 1); k++)
+		    patternError += neuronError[(j * width) + k];
+
+	    error += Math.abs(patternError / (width * width));
+	    patterns++;
+	}
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	NeighbourhoodKernel.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+/**
+ * Lookup table holding the learning rate and Gaussian neighbourhood function
+ * used by online training, for a single training iteration.
+ * 
+ * The neighbourhood function depends only on the offset between a neuron and the
+ * winning neuron, and on the iteration. Since the Gaussian of the squared distance
+ * dx*dx + dy*dy is the product of the Gaussians of dx*dx and dy*dy, one table of
+ * mapWidth values, indexed by the offset along a single axis, covers every neuron
+ * in the map. The table is built once per iteration, leaving the weight update with
+ * nothing but multiplications and additions.
+ * 
+ * A threshold can be set to truncate the neighbourhood. Neurons whose neighbourhood
+ * weight is at or below the threshold are left alone, and since no weight along one
+ * axis exceeds one, all of the neurons that are updated lie within reach() of the
+ * winner along both axes. Late in training, when the neighbourhood is small, only
+ * that box around the winner need be visited.
+ * 
+ * The learning rate and the width of the neighbourhood follow the original algorithm,
+ * unless a Schedule is given.
+ * 
+ * @author Rob Lyon
+ */
+class NeighbourhoodKernel
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The learning rate multiplied by the neighbourhood function, indexed by
+     * the offset from the winning neuron along one axis of the map. The learning
+     * rate is folded in once, so a neuron's factor is rows[dx] * columns[dy].
+     */
+    private double[] rows;
+
+    /**
+     * The neighbourhood function, indexed by the offset from the winning neuron
+     * along one axis of the map.
+     */
+    private double[] columns;
+
+    /**
+     * The neighbourhood weight at or below which neurons are not updated.
+     */
+    private double threshold;
+
+    /**
+     * The furthest offset from the winner, along either axis, of any neuron to be updated.
+     */
+    private int reach;
+
+    /**
+     * The learning rate the tables were built for, less than zero for the original algorithm's.
+     */
+    private double fixedRate = -1;
+
+    /**
+     * The schedule the tables were built for, null for the original algorithm's.
+     */
+    private Schedule schedule;
+
+    /**
+     * The iteration, and map width, that the tables were built for.
+     */
+    private int iteration = -1, mapWidth = -1;
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Builds the tables for the specified iteration, if they have not been
+     * built already.
+     * @param plan the schedule to follow, or null to follow the original algorithm.
+     * @param it the current training iteration.
+     * @param width the width of the map.
+     * @param epsilon the neighbourhood weight at or below which neurons are not
+     * updated, zero or less to update the whole map.
+     * @param rate the learning rate to use, or less than zero to use the learning
+     * rate of the original algorithm for the iteration.
+     */
+    void prepare(Schedule plan, int it, int width, double epsilon, double rate)
+    {
+	if (it == iteration && width == mapWidth && epsilon == threshold && rate == fixedRate && plan == schedule)
+	    return;
+
+	if (columns == null || columns.length != width)
+	{
+	    rows = new double[width];
+	    columns = new double[width];
+	}
+
+	//Learning rate, as used by the original algorithm unless scheduled.
+	double learningRate = rate >= 0 ? rate : plan == null ? Math.exp(-it / 1000) * 0.1 : plan.learningRate(it);
+
+	//Decreasing factor, the width of the neighbourhood.
+	double sigma = plan == null ? Math.exp(-it / (1000 / Math.log(width))) * width : plan.radius(it);
+	double sigmaSquared = sigma * sigma;
+
+	for (int d = 0; d < width; d++)
+	{
+	    columns[d] = Math.exp(-(double) (d * d) / sigmaSquared);
+	    rows[d] = learningRate * columns[d];
+	}
+
+	//The winner itself is always updated.
+	reach = width - 1;
+
+	if (epsilon > 0)
+	    while (reach > 0 && columns[reach] <= epsilon)
+		reach--;
+
+	threshold = epsilon;
+	fixedRate = rate;
+	schedule = plan;
+	iteration = it;
+	mapWidth = width;
+    }
+
+    /**
+     * @return the furthest offset from the winner, along either axis, of any neuron to be updated.
+     */
+    int reach() { return reach; }
+
+    /**
+     * @param dx the offset from the winning neuron along the rows of the map.
+     * @param dy the offset from the winning neuron along the columns of the map.
+     * @return true if the neuron at the offset should be updated.
+     */
+    boolean updates(int dx, int dy) { return threshold <= 0 || columns[dx] * columns[dy] > threshold || (dx == 0 && dy == 0); }
+
+    /**
+     * @param dx the offset from the winning neuron along the rows of the map.
+     * @return the learning rate multiplied by the neighbourhood function for the offset.
+     */
+    double row(int dx) { return rows[dx]; }
+
+    /**
+     * @param dy the offset from the winning neuron along the columns of the map.
+     * @return the neighbourhood function for the offset.
+     */
+    double column(int dy) { return columns[dy]; }
+}
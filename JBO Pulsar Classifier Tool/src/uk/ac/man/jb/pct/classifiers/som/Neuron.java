@@ -134,12 +134,16 @@ public class Neuron extends SerializableBaseObject
     {
 	double sum = 0;
 
+	//The learning rate and neighbourhood function depend only on the
+	//iteration and the position of the winner, so compute them once.
+	//Learning rate                     //Gaussian neighbourhood function.
+	double factor = (Math.exp(-iteration / 1000) * 0.1) * Gauss(winner, iteration);
+
 	//For each of the connections
 	for (int i = 0; i < weights.length; i++)
 	{
 	    //Calculate the change to be made to the connection weights.
-	    //Learning rate                     //Gaussian neighbourhood function.
-	    double delta = (Math.exp(-iteration / 1000) * 0.1) * Gauss(winner, iteration) * (pattern[i] - weights[i]);
+	    double delta = factor * (pattern[i] - weights[i]);
 
 	    //increment the connection weight.
 	    weights[i] += delta;
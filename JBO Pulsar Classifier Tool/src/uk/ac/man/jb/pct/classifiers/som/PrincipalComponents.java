@@ -0,0 +1,247 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	PrincipalComponents.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+/**
+ * Finds the principal components of a set of patterns, the directions in which
+ * the patterns vary the most, as used to initialise a map linearly.
+ *
+ * The mean and covariance of the patterns are accumulated one pattern at a time,
+ * in a single pass (Welford's method), without holding the patterns. The leading
+ * components are then the leading eigenvectors of the covariance matrix, which are
+ * found one at a time by power iteration, removing each one found from the matrix
+ * before looking for the next. Only a few components are needed, and the matrix is
+ * only as wide as a pattern, so this is quick.
+ *
+ * @author Rob Lyon
+ */
+final class PrincipalComponents
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The most iterations used to find each component, and the change in
+     * the component below which it is taken to have been found.
+     */
+    private static final int MAX_ITERATIONS = 1000;
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * The number of attributes per pattern.
+     */
+    private final int attributes;
+
+    /**
+     * The number of patterns added.
+     */
+    private int count = 0;
+
+    /**
+     * The mean of the patterns added.
+     */
+    private final double[] mean;
+
+    /**
+     * The sums of the products of the patterns' deviations from the mean, indexed [i][j].
+     */
+    private final double[][] comoments;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param a the number of attributes per pattern.
+     */
+    PrincipalComponents(int a)
+    {
+	attributes = a;
+	mean = new double[a];
+	comoments = new double[a][a];
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Adds a pattern to the mean and covariance.
+     * @param pattern the pattern.
+     */
+    void add(double[] pattern)
+    {
+	count++;
+
+	// The deviation from the old mean, then from the new mean.
+	double[] before = new double[attributes];
+
+	for (int i = 0; i < attributes; i++)
+	{
+	    before[i] = pattern[i] - mean[i];
+	    mean[i] += before[i] / count;
+	}
+
+	for (int i = 0; i < attributes; i++)
+	    for (int j = 0; j < attributes; j++)
+		comoments[i][j] += before[i] * (pattern[j] - mean[j]);
+    }
+
+    /**
+     * @return the mean of the patterns added.
+     */
+    double[] mean() { return mean.clone(); }
+
+    /**
+     * Finds the leading principal components of the patterns added.
+     * @param components the number of components to find.
+     * @param variances filled with the variance of the patterns along each component.
+     * @return the components, unit vectors, in order of decreasing variance.
+     */
+    double[][] components(int components, double[] variances)
+    {
+	double[][] covariance = new double[attributes][attributes];
+
+	for (int i = 0; i < attributes; i++)
+	    for (int j = 0; j < attributes; j++)
+		covariance[i][j] = count > 1 ? comoments[i][j] / (count - 1) : 0;
+
+	double[][] vectors = new double[components][];
+
+	for (int c = 0; c < components; c++)
+	{
+	    vectors[c] = leadingEigenvector(covariance, c);
+	    variances[c] = Math.max(0, rayleigh(covariance, vectors[c]));
+
+	    // Remove the component, so that the next one found is the next largest.
+	    for (int i = 0; i < attributes; i++)
+		for (int j = 0; j < attributes; j++)
+		    covariance[i][j] -= variances[c] * vectors[c][i] * vectors[c][j];
+	}
+
+	return vectors;
+    }
+
+    /**
+     * Finds the eigenvector of a symmetric matrix with the largest eigenvalue, by power iteration.
+     * @param matrix the matrix.
+     * @param start the attribute to start from, which should differ for each component.
+     * @return the eigenvector, a unit vector.
+     */
+    private double[] leadingEigenvector(double[][] matrix, int start)
+    {
+	// Start from a vector leaning towards one attribute, so that it
+	// isn't orthogonal to the eigenvector being looked for.
+	double[] v = new double[attributes];
+
+	for (int i = 0; i < attributes; i++)
+	    v[i] = 1;
+	v[start % attributes] += attributes;
+	normalise(v);
+
+	for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++)
+	{
+	    double[] next = multiply(matrix, v);
+
+	    if (!normalise(next))
+		return v; // No variance left.
+
+	    double change = 0;
+	    for (int i = 0; i < attributes; i++)
+		change += (next[i] - v[i]) * (next[i] - v[i]);
+
+	    v = next;
+
+	    if (change < TOLERANCE)
+		break;
+	}
+
+	return v;
+    }
+
+    /**
+     * @param matrix a symmetric matrix.
+     * @param v a unit vector.
+     * @return the variance along the vector (v' M v).
+     */
+    private double rayleigh(double[][] matrix, double[] v)
+    {
+	double[] mv = multiply(matrix, v);
+	double sum = 0;
+
+	for (int i = 0; i < attributes; i++)
+	    sum += v[i] * mv[i];
+
+	return sum;
+    }
+
+    /**
+     * @param matrix a matrix.
+     * @param v a vector.
+     * @return the product of the matrix and the vector.
+     */
+    private double[] multiply(double[][] matrix, double[] v)
+    {
+	double[] result = new double[attributes];
+
+	for (int i = 0; i < attributes; i++)
+	    for (int j = 0; j < attributes; j++)
+		result[i] += matrix[i][j] * v[j];
+
+	return result;
+    }
+
+    /**
+     * Scales a vector to unit length.
+     * @param v the vector.
+     * @return false if the vector has no length, and can't be scaled.
+     */
+    private static boolean normalise(double[] v)
+    {
+	double length = 0;
+
+	for (int i = 0; i < v.length; i++)
+	    length += v[i] * v[i];
+
+	length = Math.sqrt(length);
+
+	if (length == 0 || Double.isNaN(length))
+	    return false;
+
+	for (int i = 0; i < v.length; i++)
+	    v[i] /= length;
+
+	return true;
+    }
+}
@@ -26,17 +26,16 @@
 package uk.ac.man.jb.pct.classifiers.som;
 
 import java.awt.Point;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Vector;
+import java.util.List;
+import java.util.Random;
 import uk.ac.man.jb.pct.data.ClassifierStatistics;
 import uk.ac.man.jb.pct.data.I_ClassifierStatistics;
 import uk.ac.man.jb.pct.data.I_DataSet;
 import uk.ac.man.jb.pct.data.I_InputPattern;
 import uk.ac.man.jb.pct.mvc.Constants;
-import uk.ac.man.jb.pct.util.Common;
 import uk.ac.man.jb.pct.util.SerializableBaseObject;
 
 /**
@@ -60,9 +59,16 @@ public class SOMClassifier extends SerializableBaseObject
 
     /**
      * A simple secondary representation of positive pulsar instances,
-     * which can be used to build a visual heat map.
+     * which can be used to build a visual heat map. Derived from the
+     * cluster grid whenever the clusters are located.
+     * 
+     * This and the co-ordinates below are snapshots of the located clusters,
+     * unmodifiable once set or located, and the getters return unmodifiable
+     * views. They are public so that models saved field by field can still be
+     * loaded, but assigning them directly once the clusters are located does
+     * not change the classifications, use the setters instead.
      */
-    public ArrayList<FrequencyPoint> heatMap = null;
+    public List<FrequencyPoint> heatMap = null;
 
     /**
      * The positive pulsar patterns from the training data.
@@ -76,15 +82,17 @@ public class SOMClassifier extends SerializableBaseObject
 
     /**
      * The locations (co-ordinates) of positive pulsar instances from
-     * the training data in the map.
+     * the training data in the map. Derived from the cluster grid
+     * whenever the clusters are located.
      */
-    public ArrayList<Point> positiveCoords = null;
+    public List<Point> positiveCoords = null;
 
     /**
      * The locations (co-ordinates) of negative pulsar instances from
-     * the training data in the map.
+     * the training data in the map. Derived from the cluster grid
+     * whenever the clusters are located.
      */
-    public ArrayList<Point> negativeCoords = null;
+    public List<Point> negativeCoords = null;
 
     /**
      * The statisitis describing this classifier.
@@ -96,6 +104,29 @@ public class SOMClassifier extends SerializableBaseObject
      */
     private int K = 3;
 
+    /**
+     * The decisions of the classification algorithms for each neuron, built
+     * when the clusters are located, or on first use once loaded. Not persisted.
+     */
+    private volatile DecisionTable table = null;
+
+    /**
+     * The number of training patterns located at each neuron, built when the
+     * clusters are located, or from the co-ordinates once loaded. Not persisted.
+     */
+    private volatile ClusterGrid grid = null;
+
+    /**
+     * The random number generator the discreet KNN algorithms draw neighbours
+     * with, see setSeed(). Not persisted.
+     */
+    private Random random = new Random();
+
+    /**
+     * A buffer for each thread to find nearest neighbours in. Not persisted.
+     */
+    private final ThreadLocal<int[]> shells = new ThreadLocal<int[]>();
+
     //*****************************************
     //*****************************************
     //             Constructor
@@ -120,11 +151,11 @@ public class SOMClassifier extends SerializableBaseObject
     //*****************************************
 
     public SelfOrganizingMap getMap() { return this.map; }
-    public ArrayList<FrequencyPoint> getHeatMap() { return this.heatMap; }
+    public List<FrequencyPoint> getHeatMap() { return view(this.heatMap); }
     public ArrayList<I_InputPattern> getPositivePatterns() { return this.positivePatterns; }
-    public ArrayList<Point> getPositiveCoords() { return this.positiveCoords; }
+    public List<Point> getPositiveCoords() { return view(this.positiveCoords); }
     public ArrayList<I_InputPattern> getNegativePatterns() { return this.negativePatterns; }
-    public ArrayList<Point> getNegativeCoords() { return this.negativeCoords; }
+    public List<Point> getNegativeCoords() { return view(this.negativeCoords); }
     public I_ClassifierStatistics getStats() { return this.stats; }
 
     //*****************************************
@@ -133,14 +164,21 @@ public class SOMClassifier extends SerializableBaseObject
     //*****************************************
     //*****************************************
 
-    public void setMap(SelfOrganizingMap m) { this.map = m; }
-    public void setHeatMap(ArrayList<FrequencyPoint> fp) { this.heatMap = fp; }
+    public void setMap(SelfOrganizingMap m) { releaseGrid(); this.map = m; }
+    public void setHeatMap(List<FrequencyPoint> fp) { releaseGrid(); this.heatMap = snapshot(fp); }
     public void setPositivePatterns(ArrayList<I_InputPattern> pp) { this.positivePatterns = pp; }
-    public void setPositiveCoords(ArrayList<Point> pc) { this.positiveCoords = pc; }
+    public void setPositiveCoords(List<Point> pc) { releaseGrid(); this.positiveCoords = snapshot(pc); }
     public void setNegativePatterns(ArrayList<I_InputPattern> pp) { this.negativePatterns = pp; }
-    public void setNegativeCoords(ArrayList<Point> pc) { this.negativeCoords = pc; }
+    public void setNegativeCoords(List<Point> pc) { releaseGrid(); this.negativeCoords = snapshot(pc); }
     public void setStats(I_ClassifierStatistics cs) { this.stats = cs; }
 
+    /**
+     * Seeds the random number generator the discreet KNN algorithms draw neighbours
+     * with, so that their classifications can be reproduced.
+     * @param seed the seed.
+     */
+    public void setSeed(long seed) { random = new Random(seed); }
+
     //*****************************************
     //*****************************************
     //               Methods
@@ -154,8 +192,6 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public boolean locateClusters(I_DataSet t_data)
     {
-	heatMap = new ArrayList<FrequencyPoint>();
-
 	positivePatterns = new ArrayList<I_InputPattern>();
 	negativePatterns = new ArrayList<I_InputPattern>();
 
@@ -176,50 +212,94 @@ public class SOMClassifier extends SerializableBaseObject
 	    System.out.println("Positive Patterns: "+positive_patterns);
 	    System.out.println("Negative Patterns: "+negative_patterns);
 	    // Now find where these positive instances occur in the map
-	    positiveCoords = new ArrayList<Point>();
-	    negativeCoords = new ArrayList<Point>();
+	    ClusterGrid g = new ClusterGrid(map.getMapWidth());
 
 	    for(int i = 0; i < positivePatterns.size() ; i++)
-	    {
-		Neuron winner = map.getWinningNeuron(positivePatterns.get(i).getData());
-		Point p = new Point(winner.X,winner.Y);
-
-		//if(!positiveCoords.contains(p))
-		positiveCoords.add(p);
-
-		boolean recorded = false;
-
-		for(int j = 0 ; j < heatMap.size(); j++)
-		{
-		    if(heatMap.get(j).X == p.x &&
-			    heatMap.get(j).Y == p.y)
-		    {
-			heatMap.get(j).frequency++;
-			recorded = true;
-			break;
-		    }
-		}
-
-		if(!recorded) { heatMap.add(new FrequencyPoint(p.x,p.y,1)); }
-	    }
+		g.addPositive(getWinningCoordinate(positivePatterns.get(i).getData()), false);
 
 	    for(int i = 0; i < negativePatterns.size() ; i++)
-	    {
-		Neuron winner = map.getWinningNeuron(negativePatterns.get(i).getData());
-		Point p = new Point(winner.X,winner.Y);
+		g.addNegative(getWinningCoordinate(negativePatterns.get(i).getData()), false);
 
-		//if(!negativeCoords.contains(p))
-		negativeCoords.add(p);
-	    }
-
-	    Collections.sort(this.positiveCoords, new PointCompare());
-	    Collections.sort(this.negativeCoords, new PointCompare());
+	    useGrid(g);
 	    return true;
 	}
 	else
 	    return false;
     }
 
+    /**
+     * Updates the classifier with newly labelled patterns, without retraining it from
+     * scratch. The new patterns are normalised as the original training data was, the
+     * map is refined on them alone for a bounded number of low learning rate steps, and
+     * they are then located in the map and added to the existing clusters in place.
+     * 
+     * The patterns the classifier already knows about keep their recorded positions.
+     * The refinement moves the map only a little, but over many updates those positions
+     * drift from where the map would now place them, so the classifier should still be
+     * rebuilt from scratch from time to time.
+     * 
+     * @param newData the newly labelled patterns.
+     * @param steps the number of training steps to make.
+     * @param learningRate the learning rate to train with.
+     * @return true if the update succeeded, else false if the classifier has no clusters.
+     */
+    public boolean updateClusters(I_DataSet newData, int steps, double learningRate)
+    {
+	// Models saved with clusters of one class alone have no list for the other.
+	if(grid == null && positiveCoords == null && negativeCoords == null)
+	    return false;
+
+	ClusterGrid g = clusterGrid();
+
+	if(positivePatterns == null)
+	    positivePatterns = new ArrayList<I_InputPattern>();
+
+	if(negativePatterns == null)
+	    negativePatterns = new ArrayList<I_InputPattern>();
+
+	ArrayList<double[]> patterns = new ArrayList<double[]>();
+	boolean normalised = true;
+
+	for(int row = 0; row < newData.getRows();row++)
+	{
+	    double[] data = newData.getDataRow(row).getData();
+	    normalised = map.NormalisePattern(data);
+	    patterns.add(data);
+	}
+
+	if(!normalised)
+	    System.out.println("Warning: this map does not record how its training data was normalised, new patterns used as is.");
+
+	map.TrainIncremental(patterns, steps, learningRate);
+
+	int positives = 0, negatives = 0;
+
+	for(int row = 0; row < newData.getRows();row++)
+	{
+	    I_InputPattern pattern = newData.getDataRow(row);
+	    Point p = getWinningCoordinate(pattern.getData());
+
+	    if(pattern.getClassMembership().equals(Constants.PULSAR))
+	    {
+		positivePatterns.add(pattern);
+		g.addPositive(p, false);
+		positives++;
+	    }
+	    else if(pattern.getClassMembership().equals(Constants.RFI))
+	    {
+		negativePatterns.add(pattern);
+		g.addNegative(p, false);
+		negatives++;
+	    }
+	}
+
+	useGrid(g);
+
+	System.out.println("New Positive Patterns: "+positives);
+	System.out.println("New Negative Patterns: "+negatives);
+	return true;
+    }
+
     /**
      * Locates the simplified pulsar clusters in the self organising map.
      * This method does not retain all the examples that fall in a cluster,
@@ -229,8 +309,6 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public boolean locateClustersSimplified(I_DataSet t_data)
     {
-	heatMap = new ArrayList<FrequencyPoint>();
-
 	positivePatterns = new ArrayList<I_InputPattern>();
 	negativePatterns = new ArrayList<I_InputPattern>();
 
@@ -252,45 +330,17 @@ public class SOMClassifier extends SerializableBaseObject
 	    System.out.println("Positive Patterns: "+positive_patterns);
 	    System.out.println("Negative Patterns: "+negative_patterns);
 
-	    // Now find where these positive instances occur in the map
-	    positiveCoords = new ArrayList<Point>();
-	    negativeCoords = new ArrayList<Point>();
+	    // Now find where these positive instances occur in the map,
+	    // recording each position only once.
+	    ClusterGrid g = new ClusterGrid(map.getMapWidth());
 
 	    for(int i = 0; i < positivePatterns.size() ; i++)
-	    {
-		Neuron winner = map.getWinningNeuron(positivePatterns.get(i).getData());
-		Point p = new Point(winner.X,winner.Y);
-
-		if(!positiveCoords.contains(p))
-		    positiveCoords.add(p);
-
-		boolean recorded = false;
-
-		for(int j = 0 ; j < heatMap.size(); j++)
-		{
-		    if(heatMap.get(j).X == p.x &&
-			    heatMap.get(j).Y == p.y)
-		    {
-			heatMap.get(j).frequency++;
-			recorded = true;
-			break;
-		    }
-		}
-
-		if(!recorded) { heatMap.add(new FrequencyPoint(p.x,p.y,1)); }
-	    }
+		g.addPositive(getWinningCoordinate(positivePatterns.get(i).getData()), true);
 
 	    for(int i = 0; i < negativePatterns.size() ; i++)
-	    {
-		Neuron winner = map.getWinningNeuron(negativePatterns.get(i).getData());
-		Point p = new Point(winner.X,winner.Y);
+		g.addNegative(getWinningCoordinate(negativePatterns.get(i).getData()), true);
 
-		if(!negativeCoords.contains(p))
-		    negativeCoords.add(p);
-	    }
-
-	    Collections.sort(this.positiveCoords, new PointCompare());
-	    Collections.sort(this.negativeCoords, new PointCompare());
+	    useGrid(g);
 	    return true;
 	}
 	else
@@ -327,135 +377,30 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public Object[] classifyNaive(I_InputPattern p)
     {
-	Neuron winner = map.getWinningNeuron(p.getData());
-	Point coord = new Point(winner.X,winner.Y);
+	Point coord = getWinningCoordinate(p.getData());
 
-	if(positiveCoords.contains(coord))
+	if(decisionTable().isPulsar(0, coord.x, coord.y))
 	    return new Object[]{Constants.PULSAR,coord};
 	else
 	    return new Object[]{Constants.RFI,coord};
     }
 
+    /**
+     * Distance weighted KNN classification. The neighbours at the K smallest distances
+     * from the winning neuron, of the neurons won by the training patterns, each vote
+     * for their class with the reciprocal of their distance. Ties are classified as
+     * pulsars, as we don't want to throw away any potential positive examples.
+     * @param p the input pattern.
+     * @return the classification returned by this algorithm.
+     */
     public Object[] classifyKNN(I_InputPattern p)
     {
-	Neuron winner = map.getWinningNeuron(p.getData());
-	Point coord = new Point(winner.X,winner.Y);
-
-	// Stores the nearest neighbours.
-	Vector<Neighbour> neighbours = new Vector<Neighbour>();
-
-	// Calculate distances to neighbours
-	for(int i = 0; i < positiveCoords.size();i++)
-	{
-	    double distance = distanceBetweenPoints(coord.x,coord.y,positiveCoords.get(i).x,positiveCoords.get(i).y);
-	    neighbours.add(new Neighbour(distance, Constants.PULSAR));
-	}
-
-	for(int i = 0; i < negativeCoords.size();i++)
-	{
-	    double distance = distanceBetweenPoints(coord.x,coord.y,negativeCoords.get(i).x,negativeCoords.get(i).y);
-	    neighbours.add(new Neighbour(distance, Constants.RFI));
-	}
-
-	// Sort the neighbours such that element zero has the smallest distance.
-	Collections.sort(neighbours);
-
-	/*
-	for(int i =0; i < neighbours.size();i++)
-	{
-	    System.out.println("Neighbour: "+ i + " "+ neighbours.elementAt(i).toString());
-	}*/ // Debugging purposes
-
-	// Next we want to find the K-nearest neighbours. We search the list of
-	// potential neighbours for those top K unique neighbours. In the case of
-	// two neighbours with the same distance, these will both be retained.
-	int k_count =0;
-	Vector<Neighbour> k_nearest_neighbours = new Vector<Neighbour>();
-
-	for(int i =0; i < neighbours.size();i++)
-	{
-	    // if the distance measure found is unique
-	    if(!k_nearest_neighbours.contains(neighbours.elementAt(i)))
-	    {
-		// increment count of K unique neighbours found.
-		k_count++;
-
-		if(k_count > this.K)// if we have more than K unique examples found
-		    break;// break the loop
-
-		// else add the new unique neighbour
-		k_nearest_neighbours.add(neighbours.elementAt(i));		
-	    }
-	    else // the neighbour is not unique, but repeated
-		k_nearest_neighbours.add(neighbours.elementAt(i));// still keep the neighbour for majority voting 
-
-	}
-
-	// do some explicit house keeping
-	// for no other reason other than it makes me feel better :D
-	neighbours.clear();
-	neighbours = null;
-
-	double positive_weight = 0.0;// the weighting towards a positive classification
-	double negative_weight = 0.0;// the weighting towards a negative classification
-
-	/*
-	for(int i =0; i < k_nearest_neighbours.size();i++)
-	{
-	    System.out.println("Nearest Neighbour: "+ i + " "+ k_nearest_neighbours.elementAt(i).toString());
-	}*/ // Debugging purposes
-
-	// For each of the nearest neighbours found
-	for(int i =0; i < k_nearest_neighbours.size();i++)
-	{
-	    // Update the weights.
-	    if(k_nearest_neighbours.elementAt(i).getClassification().equals(Constants.PULSAR))
-	    {
-		double distance = k_nearest_neighbours.elementAt(i).getDistance();
+	Point coord = getWinningCoordinate(p.getData());
 
-		if(Double.compare(distance, 0.0)==0)
-		    positive_weight = positive_weight +1;
-		else
-		    positive_weight = positive_weight + (double)(1.0/distance);
-	    }
-	    else
-	    {
-		double distance = k_nearest_neighbours.elementAt(i).getDistance();
-
-		if(Double.compare(distance, 0.0)==0)
-		    negative_weight = negative_weight +1;
-		else
-		    negative_weight = negative_weight + (double)(1.0/distance);
-	    }
-	}
-
-	/*
-	try
-	{
-	    System.out.println("Positive Weight: "+positive_weight + " Negative Weight: "+negative_weight);
-
-	    if(Double.compare(positive_weight, negative_weight) < 0) // positive weight less than negative weight.
-		System.out.println("Class: "+Constants.RFI);
-	    else if(Double.compare(positive_weight, negative_weight) == 0) // positive weight equal to negative weight, favour positive
-		System.out.println("Class: "+Constants.PULSAR);
-	    else // positive weight greater than negative weight
-		System.out.println("Class: "+Constants.PULSAR);
-	    System.in.read();
-	}
-	catch (IOException e)
-	{
-	    e.printStackTrace();
-	}*/ //Debugging Purposes
-
-	// Now compare the weights. Whichever is greater decides the classification label
-	// in the case of a tie, positive classification is favoured, as we don't want to throw away
-	// any potential positive examples.
-	if(Double.compare(positive_weight, negative_weight) < 0) // positive weight less than negative weight.
-	    return new Object[]{ Constants.RFI, coord };
-	else if(Double.compare(positive_weight, negative_weight) == 0) // positive weight equal to negative weight, favour positive
-	    return new Object[]{Constants.PULSAR,coord};
-	else // positive weight greater than negative weight
+	if(decisionTable().isPulsar(1, coord.x, coord.y))
 	    return new Object[]{Constants.PULSAR,coord};
+	else
+	    return new Object[]{Constants.RFI,coord};
     }
 
     /**
@@ -533,176 +478,66 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public Object[] discreetKNNClassify(I_InputPattern p, int k,int tieBreakingParameter)
     {
-	Neuron winner = map.getWinningNeuron(p.getData());
-	Point coord = new Point(winner.X,winner.Y);
-
-	// Stores the nearest neighbours.
-	Vector<Neighbour> neighbours = new Vector<Neighbour>();
+	Point coord = getWinningCoordinate(p.getData());
+	DecisionTable decisions = decisionTable();
 
-	// Calculate distances to neighbours
-	for(int i = 0; i < positiveCoords.size();i++)
+	if(k > decisions.getPatterns())
 	{
-	    double distance = Common.distance(coord.getX(),coord.getY(),positiveCoords.get(i).getX(),positiveCoords.get(i).getY());
-	    neighbours.add(new Neighbour(distance, Constants.PULSAR));
-	}
-
-	for(int i = 0; i < negativeCoords.size();i++)
-	{
-	    double distance = Common.distance(coord.getX(),coord.getY(),negativeCoords.get(i).getX(),negativeCoords.get(i).getY());
-	    neighbours.add(new Neighbour(distance, Constants.RFI));
-	}
-
-	// Sort the neighbours such that element zero has the smallest distance.
-	Collections.sort(neighbours);
-
-	if(k > neighbours.size())
-	{
-	    System.out.println("K larger than number of neihbours. K "+ k + " Neihbours"+ neighbours.size());
+	    System.out.println("K larger than number of neihbours. K "+ k + " Neihbours"+ decisions.getPatterns());
 	    return null;
 	}
 
-	System.out.println("K value:"+ k);
-
-	//for(int i =0; i < neighbours.size();i++)
-	//{
-	//    System.out.println("Neighbour: "+ i + " "+ neighbours.elementAt(i).toString());
-	//} // Debugging purposes
+	// The neighbours at each of the k smallest distances, grouped by distance.
+	int[] buffer = shells(k);
+	int found = decisions.nearestShells(coord.x, coord.y, k, buffer);
+	String classification = DecisionTable.draw(buffer, found, k, tieBreakingParameter, random);
 
-	int k_count =0;
-	Vector<Neighbour> k_nearest_neighbours = new Vector<Neighbour>();
-	Vector<NearestNeighbour> knn = new Vector<NearestNeighbour>();
-
-	NearestNeighbour currentNeighbour = null;
-
-	for(int i =0; i < neighbours.size();i++)
-	{
-	    // if the distance measure found is unique
-	    if(!k_nearest_neighbours.contains(neighbours.elementAt(i)))
-	    {
-		// increment count of K unique neighbours found.
-		k_count++;
-
-		if(currentNeighbour != null)
-		{
-		    knn.add(currentNeighbour);
-		    currentNeighbour = null;
-		}
-
-		if(k_count > k)// if we have more than K unique examples found
-		    break;// break the loop
-
-
-		currentNeighbour = new NearestNeighbour(neighbours.elementAt(i).getDistance(),k_count);
-		currentNeighbour.processNeighbour(neighbours.elementAt(i));
-
-		// else add the new unique neighbour
-		k_nearest_neighbours.add(neighbours.elementAt(i));		
-	    }
-	    else // the neighbour is not unique, but repeated
-	    {
-		currentNeighbour.processNeighbour(neighbours.elementAt(i));
-		k_nearest_neighbours.add(neighbours.elementAt(i));// still keep the neighbour for majority voting 
-	    }
-
-	}
+	return new Object[]{classification,coord};
+    }
 
-	if(currentNeighbour != null )
-	{
-	    knn.add(currentNeighbour);
-	    currentNeighbour = null;
-	}
+    /**
+     * Classifies a pattern as discreetKNNClassify() does, for every combination of a
+     * number of values of K and tie breaking modes, in one pass. The winning neuron and
+     * its nearest neighbours are found once, for the largest K, and each classification
+     * then makes its own random draws from the nearest K shells of them, as a separate
+     * call to discreetKNNClassify() would have. So a sweep over many values of K costs
+     * little more than a single one.
+     * @param p the input pattern.
+     * @param kValues the values of K.
+     * @param tieBreakingParameters the tie breaking modes, as for discreetKNNClassify().
+     * @return the classifications, indexed by K then tie breaking mode, null for any
+     * value of K larger than the number of neighbours.
+     */
+    public String[][] discreetKNNClassify(I_InputPattern p, int[] kValues, int[] tieBreakingParameters)
+    {
+	Point coord = getWinningCoordinate(p.getData());
+	DecisionTable decisions = decisionTable();
+	String[][] classifications = new String[kValues.length][];
+	int largest = 0;
 
-	//for(int i =0; i < knn.size();i++)
-	 //   System.out.println("Initial KNN:"+ knn.get(i));
+	for(int k = 0; k < kValues.length; k++)
+	    if(kValues[k] <= decisions.getPatterns())
+		largest = Math.max(largest, kValues[k]);
 
-	int neighbours_chosen = 0;
-	k_nearest_neighbours.clear();
-	k_nearest_neighbours = null;
-	Vector<NearestNeighbour> final_knn = new Vector<NearestNeighbour>();
+	// The neighbours at each of the largest K smallest distances, the
+	// first k of which are the nearest neighbours for any smaller k.
+	int[] buffer = shells(largest);
+	int found = decisions.nearestShells(coord.x, coord.y, largest, buffer);
 
-	for(int i = 0 ; i < knn.size();i++)
+	for(int k = 0; k < kValues.length; k++)
 	{
-	    //System.out.println("Neighbours Chosen:" +neighbours_chosen + " k:"+k);
-	    if (neighbours_chosen == k)
-	    {
-		//System.out.println("Loop Broken");
-		break;
-	    }
-
-	    if((neighbours_chosen + knn.get(i).getFrequency()) < k )
-	    {
-		//System.out.println("Neighbours Chosen (" +neighbours_chosen + ") + freq("+knn.get(i).getFrequency()+") < "+k);
-		if(knn.get(i).getFrequency()==1)
-		{
-		    final_knn.add(knn.get(i).drawNeighbourNoReplacement());
-		    neighbours_chosen++;
-		}
-		else
-		{
-		    for(int j=0; j < knn.get(i).getFrequency();j++)
-			final_knn.add(knn.get(i).drawNeighbourNoReplacement());
-
-		    neighbours_chosen += knn.get(i).getFrequency();
-		}
-	    }
-	    else if((neighbours_chosen + knn.get(i).getFrequency()) > k )
-	    {
-		//System.out.println("Neighbours Chosen (" +neighbours_chosen + ") + freq("+knn.get(i).getFrequency()+") > "+k);
-		int diff = k - neighbours_chosen;
-
-		if(diff < knn.get(i).getFrequency())
-		    for(int j=0; j < diff;j++)
-			final_knn.add(knn.get(i).drawNeighbourNoReplacement());
+	    if(kValues[k] > decisions.getPatterns())
+		continue;
 
-		neighbours_chosen += diff;
-	    }
-	    else if((neighbours_chosen + knn.get(i).getFrequency()) == k )
-	    {
-		//System.out.println("Neighbours Chosen (" +neighbours_chosen + ") + freq("+knn.get(i).getFrequency()+") == "+k);
-		for(int j=0; j < knn.get(i).getFrequency();j++)
-		    final_knn.add(knn.get(i).drawNeighbourNoReplacement());
+	    classifications[k] = new String[tieBreakingParameters.length];
 
-		neighbours_chosen += knn.get(i).getFrequency();
-	    }
+	    for(int b = 0; b < tieBreakingParameters.length; b++)
+		classifications[k][b] = DecisionTable.draw(buffer, found, kValues[k], tieBreakingParameters[b], random);
 	}
 
-	//System.out.println("Final KNN size():" +final_knn.size());
-	//for(int i =0; i < final_knn.size();i++)
-	   // System.out.println("Post KNN:" +final_knn.get(i));
-
-	for(int i =0; i < final_knn.size();i++)
-	    if(final_knn.elementAt(i).getUnknown()>0)
-	    {
-		
-		try
-		{
-		    System.out.println("Fuckup");
-		    System.in.read();
-		}
-		catch (IOException e)
-		{
-		    // TODO Auto-generated catch block
-		    e.printStackTrace();
-		}
-		
-	    }
-	
-	// do some explicit house keeping
-	// for no other reason other than it makes me feel better :D
-	neighbours.clear();
-	neighbours = null;
-
-	String classification = "";
-
-	if(tieBreakingParameter== 0)
-	    classification = NearestNeighbour.getClassificationBTN(final_knn);
-	else if (tieBreakingParameter == 1)
-	    classification = NearestNeighbour.getClassificationBTR(final_knn);
-
-	System.out.println("Classification:"+classification);
-	return new Object[]{classification,coord};
+	return classifications;
     }
-    
+
     /**
      * This method is used to find the K-nearest neighbours. There are a number of 
      * possible ways to a) define the closest and b) choose the class to predict
@@ -770,98 +605,20 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public Object[] discreetKNNClassifyUniqueK(I_InputPattern p, int k,int tieBreakingParameter)
     {
-	Neuron winner = map.getWinningNeuron(p.getData());
-	Point coord = new Point(winner.X,winner.Y);
-
-	// Stores the nearest neighbours.
-	Vector<Neighbour> neighbours = new Vector<Neighbour>();
-
-	// Calculate distances to neighbours
-	for(int i = 0; i < positiveCoords.size();i++)
-	{
-	    double distance = Common.distance(coord.getX(),coord.getY(),positiveCoords.get(i).getX(),positiveCoords.get(i).getY());
-	    neighbours.add(new Neighbour(distance, Constants.PULSAR));
-	}
+	Point coord = getWinningCoordinate(p.getData());
+	DecisionTable decisions = decisionTable();
 
-	for(int i = 0; i < negativeCoords.size();i++)
+	if(k > decisions.getPatterns())
 	{
-	    double distance = Common.distance(coord.getX(),coord.getY(),negativeCoords.get(i).getX(),negativeCoords.get(i).getY());
-	    neighbours.add(new Neighbour(distance, Constants.RFI));
-	}
-
-	// Sort the neighbours such that element zero has the smallest distance.
-	Collections.sort(neighbours);
-
-	if(k > neighbours.size())
-	{
-	    System.out.println("K larger than number of neihbours. K "+ k + " Neihbours"+ neighbours.size());
+	    System.out.println("K larger than number of neihbours. K "+ k + " Neihbours"+ decisions.getPatterns());
 	    return null;
 	}
 
-	System.out.println("K value:"+ k);
-
-	//for(int i =0; i < neighbours.size();i++)
-	//{
-	//    System.out.println("Neighbour: "+ i + " "+ neighbours.elementAt(i).toString());
-	//} // Debugging purposes
-
-	int k_count =0;
-	Vector<Neighbour> k_nearest_neighbours = new Vector<Neighbour>();
-	Vector<NearestNeighbour> knn = new Vector<NearestNeighbour>();
-
-	NearestNeighbour currentNeighbour = null;
-
-	for(int i =0; i < neighbours.size();i++)
-	{
-	    // if the distance measure found is unique
-	    if(!k_nearest_neighbours.contains(neighbours.elementAt(i)))
-	    {
-		// increment count of K unique neighbours found.
-		k_count++;
-
-		if(currentNeighbour != null)
-		{
-		    knn.add(currentNeighbour);
-		    currentNeighbour = null;
-		}
+	// The neighbours at each of the k smallest distances, grouped by distance.
+	int[] buffer = shells(k);
+	int found = decisions.nearestShells(coord.x, coord.y, k, buffer);
+	String classification = DecisionTable.drawUnique(buffer, found, tieBreakingParameter, random);
 
-		if(k_count > k)// if we have more than K unique examples found
-		    break;// break the loop
-
-
-		currentNeighbour = new NearestNeighbour(neighbours.elementAt(i).getDistance(),k_count);
-		currentNeighbour.processNeighbour(neighbours.elementAt(i));
-
-		// else add the new unique neighbour
-		k_nearest_neighbours.add(neighbours.elementAt(i));		
-	    }
-	    else // the neighbour is not unique, but repeated
-	    {
-		currentNeighbour.processNeighbour(neighbours.elementAt(i));
-		k_nearest_neighbours.add(neighbours.elementAt(i));// still keep the neighbour for majority voting 
-	    }
-
-	}
-
-	if(currentNeighbour != null )
-	{
-	    knn.add(currentNeighbour);
-	    currentNeighbour = null;
-	}
-
-	// do some explicit house keeping
-	// for no other reason other than it makes me feel better :D
-	neighbours.clear();
-	neighbours = null;
-
-	String classification = "";
-
-	if(tieBreakingParameter== 0)
-	    classification = NearestNeighbour.getClassificationBTN(knn);
-	else if (tieBreakingParameter == 1)
-	    classification = NearestNeighbour.getClassificationBTR(knn);
-
-	System.out.println("Classification:"+classification);
 	return new Object[]{classification,coord};
     }
 
@@ -873,28 +630,12 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public Object[] classifyKNNSimplified(I_InputPattern p)
     {
-	Neuron winner = map.getWinningNeuron(p.getData());
-	Point coord = new Point(winner.X,winner.Y);
-
-	// Neighbours that are pulsars.
-	int neighbours = 0;
+	Point coord = getWinningCoordinate(p.getData());
 
-	for(int i = 0; i < positiveCoords.size();i++)
-	{
-	    double distance = distanceBetweenPoints(coord.x,coord.y,positiveCoords.get(i).x,positiveCoords.get(i).y);
-
-	    //System.out.println("Winner: ("+ coord.x + "," + coord.y+") compared to: ("+positiveCoords.get(i).x+","+positiveCoords.get(i).y+") Distance: "+distance);
-
-	    if(distance < 1.1)
-	    {
-		neighbours++;
-
-		if(neighbours >= K)
-		    return new Object[]{Constants.PULSAR,coord};
-	    }
-	}
-
-	return new Object[]{ Constants.RFI, coord };
+	if(decisionTable().isPulsar(2, coord.x, coord.y))
+	    return new Object[]{Constants.PULSAR,coord};
+	else
+	    return new Object[]{ Constants.RFI, coord };
     }
 
     /**
@@ -931,6 +672,127 @@ public class SOMClassifier extends SerializableBaseObject
      */
     public I_ClassifierStatistics getStatistics() { return stats; }
 
+    /**
+     * Creates an immutable view of the classifier, which any number of threads may
+     * classify with at once, without locking. Training the map or changing the
+     * clusters afterwards doesn't affect the view.
+     * @param seed seeds the random number generator each thread draws neighbours with.
+     * @return the view.
+     */
+    public FrozenClassifier freeze(long seed) { return new FrozenClassifier(map.copyWeights(), decisionTable(), seed); }
+
+    /**
+     * Creates an immutable view of the classifier, seeded at random. See freeze(long).
+     * @return the view.
+     */
+    public FrozenClassifier freeze() { return freeze(new Random().nextLong()); }
+
+    /**
+     * @return the decisions of the classification algorithms for each neuron,
+     * built from the located clusters if they haven't been already.
+     */
+    private DecisionTable decisionTable()
+    {
+	DecisionTable t = table;
+
+	if(t == null)
+	{
+	    t = new DecisionTable(clusterGrid(), K);
+	    table = t;
+	}
+
+	return t;
+    }
+
+    /**
+     * @param k the number of shells of nearest neighbours to be found.
+     * @return the calling thread's buffer to find them in, grown if need be.
+     */
+    private int[] shells(int k)
+    {
+	int[] buffer = shells.get();
+
+	if(buffer == null || buffer.length < 3 * k)
+	{
+	    buffer = new int[3 * Math.max(k, 0)];
+	    shells.set(buffer);
+	}
+
+	return buffer;
+    }
+
+    /**
+     * @return the number of training patterns located at each neuron, built from
+     * the co-ordinates if it hasn't been already.
+     */
+    private ClusterGrid clusterGrid()
+    {
+	ClusterGrid g = grid;
+
+	if(g == null)
+	{
+	    g = new ClusterGrid(map.getMapWidth(), positiveCoords, negativeCoords, heatMap);
+	    grid = g;
+	}
+
+	return g;
+    }
+
+    /**
+     * Replaces the located clusters, deriving the co-ordinates and heat map from
+     * the new grid.
+     * @param g the number of training patterns located at each neuron.
+     */
+    private void useGrid(ClusterGrid g)
+    {
+	heatMap = Collections.unmodifiableList(g.getHeatMap());
+	positiveCoords = Collections.unmodifiableList(g.getPositiveCoords());
+	negativeCoords = Collections.unmodifiableList(g.getNegativeCoords());
+	grid = g;
+	table = new DecisionTable(g, K);
+    }
+
+    /**
+     * @param list a list of co-ordinates or frequencies, or null.
+     * @return an unmodifiable copy of the list, or null.
+     */
+    private static <T> List<T> snapshot(List<T> list)
+    {
+	return list == null ? null : Collections.unmodifiableList(new ArrayList<T>(list));
+    }
+
+    /**
+     * @param list a list of co-ordinates or frequencies, or null.
+     * @return an unmodifiable view of the list, or null. The lists of a model
+     * loaded field by field are the ones it was saved with, not snapshots.
+     */
+    private static <T> List<T> view(List<T> list)
+    {
+	return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Drops the grid and the decisions made from it, before the co-ordinates,
+     * heat map or map they were made from are replaced.
+     */
+    private void releaseGrid()
+    {
+	grid = null;
+	table = null;
+    }
+
+    /**
+     * Finds the position in the map of the neuron that fires upon
+     * reading the specified pattern.
+     * @param pattern the input pattern data.
+     * @return the co-ordinate of the winning neuron.
+     */
+    private Point getWinningCoordinate(double[] pattern)
+    {
+	int winner = map.getWinningIndex(pattern);
+	return new Point(map.getX(winner), map.getY(winner));
+    }
+
     /**
      * Calculates the distance between two points in the 2D co-ordinate plane.
      * @param x1 Point x1.
@@ -0,0 +1,164 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	Schedule.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+/**
+ * How the learning rate and the width of the neighbourhood decay during an online
+ * training run, planned over a fixed number of training steps.
+ *
+ * The original algorithm decays both over a fixed 1000 iterations, however much data
+ * there is, and computes the learning rate with integer division, so it falls in steps
+ * of 1000 iterations. On a large training set the map is effectively frozen long before
+ * the end of the first pass, and training then runs on until the error drifts below the
+ * maximum permissible error. A schedule instead decays both smoothly, from their starting
+ * values at the first step of the run to their final values at the last, so however long
+ * the run is planned to be, all of it is spent training. Training then stops once the
+ * planned epochs have run.
+ *
+ * Three shapes are available, each taking the learning rate from START_RATE to END_RATE,
+ * and the neighbourhood width from half the map width down to END_RADIUS:
+ *
+ * Exponential:	 v(t) = v0 * (vT / v0) ^ (t / T)
+ * Linear:	 v(t) = v0 + (vT - v0) * t / T
+ * Inverse time: v(t) = v0 / (1 + t / tau), with tau chosen so that v(T) = vT
+ *
+ * Inverse time falls fastest early on, and spends longest fine tuning.
+ *
+ * @author Rob Lyon
+ */
+public class Schedule
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The schedules available.
+     */
+    public static final int ORIGINAL = 0;
+    public static final int EXPONENTIAL = 1;
+    public static final int LINEAR = 2;
+    public static final int INVERSE_TIME = 3;
+
+    /**
+     * The number of epochs a schedule is planned over, if no maximum number of epochs is set.
+     */
+    public static final int DEFAULT_EPOCHS = 20;
+
+    /**
+     * The learning rate at the start and end of a run.
+     */
+    static final double START_RATE = 0.1;
+    static final double END_RATE = 0.01;
+
+    /**
+     * The width of the neighbourhood at the end of a run. At this width a neuron
+     * next to the winner moves about one fiftieth as far as the winner.
+     */
+    static final double END_RADIUS = 0.5;
+
+    /**
+     * The shape of the schedule.
+     */
+    private final int type;
+
+    /**
+     * The iteration of the first step of the run, and the number of steps in it.
+     */
+    private final int first;
+    private final int steps;
+
+    /**
+     * The width of the neighbourhood at the start of the run.
+     */
+    private final double startRadius;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param t the shape of the schedule, one of EXPONENTIAL, LINEAR or INVERSE_TIME.
+     * @param firstIteration the iteration of the first step of the run.
+     * @param totalSteps the number of steps planned for the run.
+     * @param width the width of the map.
+     */
+    Schedule(int t, int firstIteration, int totalSteps, int width)
+    {
+	if (t != EXPONENTIAL && t != LINEAR && t != INVERSE_TIME)
+	    throw new IllegalArgumentException("Unknown schedule " + t);
+
+	type = t;
+	first = firstIteration;
+	steps = Math.max(totalSteps, 1);
+	startRadius = Math.max(width / 2.0, END_RADIUS);
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * @param iteration the training iteration.
+     * @return the learning rate at the iteration.
+     */
+    double learningRate(int iteration) { return decay(START_RATE, END_RATE, iteration); }
+
+    /**
+     * @param iteration the training iteration.
+     * @return the width of the neighbourhood at the iteration.
+     */
+    double radius(int iteration) { return decay(startRadius, END_RADIUS, iteration); }
+
+    /**
+     * @param start the value at the first step.
+     * @param end the value at the last step, and after it.
+     * @param iteration the training iteration.
+     * @return the value at the iteration.
+     */
+    private double decay(double start, double end, int iteration)
+    {
+	double t = Math.min(Math.max(iteration - first, 0), steps);
+
+	switch (type)
+	{
+	case EXPONENTIAL:
+	    return start * Math.pow(end / start, t / steps);
+	case LINEAR:
+	    return start + (end - start) * t / steps;
+	default:
+	    double tau = steps * end / (start - end);
+	    return start / (1 + t / tau);
+	}
+    }
+}
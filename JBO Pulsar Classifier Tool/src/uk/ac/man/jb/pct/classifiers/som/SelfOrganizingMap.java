@@ -25,14 +25,58 @@
  */
 package uk.ac.man.jb.pct.classifiers.som;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import uk.ac.man.jb.pct.util.SerializableBaseObject;
 
 /**
  * Class that represents a self organising map, with additional methods for classification.
  * 
+ * The connection weights of every output neuron are held in a single contiguous
+ * codebook array, in row-major order. The weights of the neuron at map position
+ * [x,y] begin at index ((x * mapWidth) + y) * attributes, so the position of a neuron
+ * is implied by where its weights are stored. This keeps the whole map in one block
+ * of memory, which the winning neuron search and the training updates walk linearly.
+ * 
+ * When more than one thread is requested, each training step is shared out across
+ * a pool of worker threads by bands of map rows. Both the winning neuron search and
+ * the weight updates are divided this way, and the results are combined in row order,
+ * so training with a given seed produces the same map regardless of the thread count.
+ * The training thread runs the first band itself, and each other band has a thread of
+ * its own for the whole training run, which meets it at a barrier before and after
+ * every step, rather than being handed a new task for each pattern. Maps too small
+ * to repay this are trained one step at a time, see setMinimumBandWeights().
+ * 
+ * The map can instead hold its weights in single precision, see setSinglePrecision().
+ * Only one of codebook and floatCodebook is in use at a time, the other is null.
+ * 
+ * As an alternative to the online algorithm, TrainBatch() trains the map using the
+ * batch algorithm, which updates every neuron at once at the end of each pass over
+ * the data. See BatchTrainer for details. TrainHogwild() trains with the online
+ * algorithm on several patterns at once, without locking, see HogwildTrainer.
+ * 
+ * Online training continues until the summed weight corrections over a pass fall to
+ * the maximum permissible error, or until one of the optional limits on the number of
+ * passes, the training time, or passes without improvement is reached. The progress
+ * of each run is recorded by a ConvergenceMonitor, see getMonitor().
+ * 
+ * By default the learning rate and neighbourhood decay as in the original algorithm,
+ * over a fixed 1000 iterations. A Schedule can instead decay them smoothly over the
+ * planned number of passes, see setSchedule().
+ * 
+ * Long training runs can write a Checkpoint every few epochs, see setCheckpoint(), and
+ * be carried on from the last one by Resume() if the process dies.
+ * 
  * @author Rob Lyon
  */
 public class SelfOrganizingMap extends SerializableBaseObject
@@ -44,9 +88,61 @@ public class SelfOrganizingMap extends SerializableBaseObject
     //*****************************************
 
     /**
-     * Stores the output neurons.
+     * The number of standard deviations either side of the mean of the training
+     * data that BuildLinear() spreads the neurons over, along each component.
+     */
+    private static final double LINEAR_SPAN = 2;
+
+    /**
+     * Stores the connection weights of the output neurons, row-major,
+     * with attributes weights per neuron.
+     */ 
+    public double[] codebook;
+
+    /**
+     * Stores the connection weights in single precision, in the same
+     * order as codebook, when the map is in single precision mode.
+     */ 
+    public float[] floatCodebook;
+
+    /**
+     * The output neurons of a map saved before the codebook was introduced. XMLDecoder
+     * may set this field directly, rather than through setOutputNeurons(), depending on
+     * the version of Java the map was saved with. The neurons are moved into the codebook
+     * when the map is first used, and the field cleared, so they aren't written out again.
+     */
+    public volatile Neuron[][] outputNeurons;
+
+    /**
+     * True if the map holds its weights, and finds winning neurons, in single precision.
+     */ 
+    public boolean singlePrecision = false;
+
+    /**
+     * The mean of each attribute of the training data, as used by NormalisePatterns().
+     * Kept so that patterns presented later can be normalised in the same way.
+     */ 
+    public double[] columnMeans;
+
+    /**
+     * True if getWinningIndex() should search a tree built over the trained weights,
+     * rather than the whole map. This finds the same neurons, but only pays off on
+     * large maps, see VantagePointTree. Training ignores it.
+     */ 
+    public boolean indexed = false;
+
+    /**
+     * True if the map was last initialised by BuildLinear(), so that it starts out
+     * ordered. Batch training then starts with a narrower neighbourhood, see BatchTrainer.
+     */
+    boolean ordered = false;
+
+    /**
+     * The most patterns whose winning neurons getWinningIndex() remembers, zero, the
+     * default, to remember none. Worth setting when the same patterns are classified
+     * many times by one map. See WinnerCache.
      */ 
-    public Neuron[][] outputNeurons;
+    public int winnerCacheSize = 0;
 
     /**
      * The current training iteration.
@@ -68,6 +164,65 @@ public class SelfOrganizingMap extends SerializableBaseObject
      */ 
     public double maximumErrorRate = 0.000001;
 
+    /**
+     * The number of threads used to train the map.
+     */ 
+    public int threads = 1;
+
+    /**
+     * The fewest weights in each band of rows when an online training step is
+     * shared between threads. Handing a step to another thread costs more than
+     * searching and updating a few thousand weights, so maps with fewer weights
+     * than this per thread are trained one step at a time on the training thread.
+     */ 
+    public int minimumBandWeights = 16384;
+
+    /**
+     * The number of passes over the data made by the batch training algorithm.
+     */ 
+    public int batchEpochs = 25;
+
+    /**
+     * The neighbourhood weight at or below which neurons are not updated during
+     * online training. Zero updates every neuron in the map on every step.
+     */ 
+    public double neighbourhoodThreshold = 0;
+
+    /**
+     * The maximum number of passes over the data made by online training, zero for no limit.
+     */ 
+    public int maxEpochs = 0;
+
+    /**
+     * The maximum time, in seconds, that online training may run for, zero for no limit.
+     */ 
+    public int maxTrainingTime = 0;
+
+    /**
+     * The number of passes over the data, without the quantization error improving,
+     * after which online training stops. Zero to never stop early.
+     */ 
+    public int patience = 0;
+
+    /**
+     * The number of patterns each worker thread claims at a time during Hogwild training.
+     */ 
+    public int miniBatchSize = 32;
+
+    /**
+     * The most mini-batches a worker thread may start beyond the oldest mini-batch still
+     * being trained on during Hogwild training, bounding how stale the weights it sees
+     * may be. Zero lets only the oldest proceed. See HogwildTrainer.
+     */ 
+    public int maxStaleness = 4;
+
+    /**
+     * How the learning rate and neighbourhood decay during online training, one of the
+     * schedules defined by Schedule. Those other than the original are planned over
+     * maxEpochs passes over the data.
+     */ 
+    public int schedule = Schedule.ORIGINAL;
+
     /**
      * The input data.
      */ 
@@ -78,6 +233,126 @@ public class SelfOrganizingMap extends SerializableBaseObject
      */ 
     private Random randomGenerator = new Random();
 
+    /**
+     * The order in which the patterns are presented during a pass over the data,
+     * as indexes into the data. Shuffled in place at the start of each pass.
+     */ 
+    private int[] order;
+
+    /**
+     * The average correction made to the weights of each neuron during the
+     * most recent training step, indexed in the same order as the codebook.
+     */ 
+    private double[] neuronError;
+
+    /**
+     * The learning rate and neighbourhood function for the current training iteration.
+     */
+    private NeighbourhoodKernel kernel = new NeighbourhoodKernel();
+
+    /**
+     * Monitors the progress of the most recent online training run.
+     */
+    private ConvergenceMonitor monitor;
+
+    /**
+     * The second closest neuron to the pattern found by the last winner search,
+     * and the distance between the pattern and the winner.
+     */
+    private int runnerUp;
+    private double winnerDistance;
+
+    /**
+     * The summed distance between each pattern and its winner, and the number of patterns
+     * whose two closest neurons are not adjacent, during the current pass over the data.
+     */
+    private double epochDistance;
+    private int epochTopographicErrors;
+
+    /**
+     * The whole map as a single band of rows, searched when training sequentially.
+     */
+    private RowBand wholeMap;
+
+    /**
+     * The pattern being trained on, in single precision.
+     */
+    private float[] floatPattern;
+
+    /**
+     * The learning rate used in place of the original algorithm's, less than zero for none.
+     */
+    private double fixedLearningRate = -1;
+
+    /**
+     * The schedule of the current online training run, null to follow the original algorithm.
+     */
+    Schedule activeSchedule;
+
+    /**
+     * The pool of threads used to train the map, null when training sequentially.
+     */ 
+    private ExecutorService workers;
+
+    /**
+     * The bands of map rows handed out to the worker threads.
+     */ 
+    private ArrayList<RowBand> bands;
+
+    /**
+     * The threads that run every band but the first during a training run.
+     */ 
+    private ArrayList<Thread> bandThreads;
+
+    /**
+     * The barriers the band threads meet the training thread at, before and after each step.
+     */ 
+    private CyclicBarrier stepStart, stepEnd;
+
+    /**
+     * The first error thrown by a band thread, null if there has been none.
+     */ 
+    private volatile Throwable bandFailure;
+
+    /**
+     * Set by cancel() to stop training early, possibly from another thread.
+     */ 
+    private volatile boolean cancelled = false;
+
+    /**
+     * The tree searched by getWinningIndex() when the map is indexed. Built when
+     * first needed, and discarded whenever the weights change.
+     */ 
+    private volatile VantagePointTree index;
+
+    /**
+     * The winning neurons found by getWinningIndex(), created when first needed.
+     */ 
+    private volatile WinnerCache winnerCache;
+
+    /**
+     * Counts the changes made to the weights, so that cached winners found
+     * with older weights are not used.
+     */ 
+    private volatile int version = 0;
+
+    /**
+     * The path training checkpoints are written to, null for none,
+     * and the number of epochs between checkpoints.
+     */ 
+    private String checkpointPath;
+    private int checkpointInterval = 1;
+
+    /**
+     * The checkpoint the next training run resumes from, null if none.
+     */ 
+    private Checkpoint resumeFrom;
+
+    /**
+     * Held while moving the output neurons of an old map into the codebook.
+     */
+    private final Object outputNeuronsLock = new Object();
+
     //*****************************************
     //*****************************************
     //              Constructor
@@ -102,8 +377,30 @@ public class SelfOrganizingMap extends SerializableBaseObject
     //*****************************************
     //*****************************************
 
-    public Neuron[][] getOutputNeurons() { return outputNeurons; }
-    public void setOutputNeurons(Neuron[][] outputNeurons) { this.outputNeurons = outputNeurons; }
+    public double[] getCodebook() { loadOutputNeurons(); return codebook; }
+    public void setCodebook(double[] codebook) { this.codebook = codebook; weightsChanged(); }
+    public float[] getFloatCodebook() { loadOutputNeurons(); return floatCodebook; }
+    public void setFloatCodebook(float[] floatCodebook) { this.floatCodebook = floatCodebook; weightsChanged(); }
+    public boolean isIndexed() { return indexed; }
+    public void setIndexed(boolean indexed) { this.indexed = indexed; }
+    public int getWinnerCacheSize() { return winnerCacheSize; }
+    public void setWinnerCacheSize(int size) { this.winnerCacheSize = size; }
+
+    /**
+     * @return the number of times getWinningIndex() has found a pattern's winner in the cache.
+     */
+    public int getWinnerCacheHits() { WinnerCache c = winnerCache; return c == null ? 0 : c.getHits(); }
+    public boolean isSinglePrecision() { return singlePrecision; }
+    public double[] getColumnMeans() { return columnMeans; }
+    public void setColumnMeans(double[] columnMeans) { this.columnMeans = columnMeans; }
+
+    /**
+     * Sets whether the map holds its weights in single precision. This should be
+     * called before Build(), use convertPrecision() to change the precision of a
+     * map whose weights have already been built.
+     * @param single true for single precision, false for double precision.
+     */
+    public void setSinglePrecision(boolean single) { this.singlePrecision = single; }
     public int getIteration() { return iteration; }
     public void setIteration(int iteration) { this.iteration = iteration; }
     public int getAttributes() { return attributes; }
@@ -112,261 +409,1210 @@ public class SelfOrganizingMap extends SerializableBaseObject
     public void setMapWidth(int mapWidth) { this.mapWidth = mapWidth; }
     public double getMaximumErrorRate() { return maximumErrorRate; }
     public void setMaximumErrorRate(double maximumErrorRate) { this.maximumErrorRate = maximumErrorRate; }
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+    public int getMinimumBandWeights() { return minimumBandWeights; }
+    public void setMinimumBandWeights(int minimumBandWeights) { this.minimumBandWeights = minimumBandWeights; }
+    public int getBatchEpochs() { return batchEpochs; }
+    public void setBatchEpochs(int batchEpochs) { this.batchEpochs = batchEpochs; }
+    public double getNeighbourhoodThreshold() { return neighbourhoodThreshold; }
+    public void setNeighbourhoodThreshold(double t) { this.neighbourhoodThreshold = t; }
+    public int getMaxEpochs() { return maxEpochs; }
+    public void setMaxEpochs(int maxEpochs) { this.maxEpochs = maxEpochs; }
+    public int getMaxTrainingTime() { return maxTrainingTime; }
+    public void setMaxTrainingTime(int seconds) { this.maxTrainingTime = seconds; }
+    public int getPatience() { return patience; }
+    public void setPatience(int patience) { this.patience = patience; }
+    public int getMiniBatchSize() { return miniBatchSize; }
+    public void setMiniBatchSize(int size) { this.miniBatchSize = size; }
+    public int getMaxStaleness() { return maxStaleness; }
+    public void setMaxStaleness(int staleness) { this.maxStaleness = staleness; }
+    public int getSchedule() { return schedule; }
+    public void setSchedule(int schedule) { this.schedule = schedule; }
+    public ConvergenceMonitor getMonitor() { return monitor; }
+    public String getCheckpointPath() { return checkpointPath; }
+    public int getCheckpointInterval() { return checkpointInterval; }
     public void setData(ArrayList<double[]> d){ this.data = d; }
 
-    //*****************************************
-    //*****************************************
-    //               Methods
-    //*****************************************
-    //*****************************************
+    /**
+     * Called whenever the weights change, or are about to, and again once training
+     * has changed them, so that neither the search tree nor the winners cached for
+     * the old weights (or found part way through training) are used again.
+     */
+    void weightsChanged()
+    {
+	index = null;
+	version++;
+    }
 
     /**
-     * Method which initialises the 2D output Map with neurons.
+     * Copies the weights of the map, and what is needed to find winners with them,
+     * into a new map that training this one leaves unchanged. The copy doesn't cache
+     * winners. Not to be called while the map is being trained.
+     * @return the copy.
      */
-    public void Build()
+    SelfOrganizingMap copyWeights()
     {
-	//setup output units as 2D map
-	outputNeurons = new Neuron[mapWidth][mapWidth];
+	loadOutputNeurons();
 
-	for (int i = 0; i < mapWidth; i++)
-	{
-	    for (int j = 0; j < mapWidth; j++)
-	    {
-		//create the output neuron
-		outputNeurons[i][j] = new Neuron(i, j, mapWidth);
+	SelfOrganizingMap copy = new SelfOrganizingMap();
+	copy.mapWidth = mapWidth;
+	copy.attributes = attributes;
+	copy.singlePrecision = singlePrecision;
+	copy.codebook = codebook == null ? null : codebook.clone();
+	copy.floatCodebook = floatCodebook == null ? null : floatCodebook.clone();
+	copy.columnMeans = columnMeans == null ? null : columnMeans.clone();
+	copy.indexed = indexed;
+	copy.winnerCacheSize = 0;
+	return copy;
+    }
 
-		//setup the number of connections for the neuron,
-		//each of which requires a weighting.
-		//For the planetary data in the application,
-		//there are 7 attributes.
-		outputNeurons[i][j].weights = new double[attributes];
+    /**
+     * Seeds the random number generator used to initialise and train the
+     * map, so that a training run can be reproduced.
+     * @param seed the seed.
+     */
+    public void setSeed(long seed) { randomGenerator = new Random(seed); }
 
-		//For each connection, initialise a random connection
-		// weight.
-		for (int k = 0; k < attributes; k++)
-		{
-		    outputNeurons[i][j].weights[k] = randomGenerator.nextDouble();
-		}
-	    }
-	}
+    /**
+     * Makes training write a checkpoint every so many epochs, replacing the last.
+     * @param path the path to write checkpoints to, null to stop writing them.
+     * @param interval the number of epochs between checkpoints.
+     */
+    public void setCheckpoint(String path, int interval)
+    {
+	checkpointPath = path;
+	checkpointInterval = Math.max(interval, 1);
     }
 
     /**
-     * Method used to normalise the input data to smooth out major statistical anomalies.
+     * Asks the map to stop training as soon as possible. This may be called from
+     * any thread. Online training stops before the next pattern, and batch training
+     * before the next epoch, leaving the map partly trained. A cancelled map stays
+     * cancelled, so any further training returns straight away.
      */
-    public void NormalisePatterns()
+    public void cancel() { cancelled = true; }
+    public boolean isCancelled() { return cancelled; }
+
+    /**
+     * Loads the connection weights from a 2D array of neurons. Maps persisted
+     * before the codebook was introduced stored their neurons this way, so this
+     * setter allows those files to still be read back in. There is deliberately
+     * no matching getter, so the neurons are not written out again.
+     * @param outputNeurons the neurons of the map, indexed [x][y].
+     */
+    public void setOutputNeurons(Neuron[][] outputNeurons)
     {
-	for (int j = 0; j < attributes; j++)
+	this.outputNeurons = outputNeurons;
+	loadOutputNeurons();
+    }
+
+    /**
+     * Moves the weights of the output neurons of an old map into the codebook, if
+     * they haven't been already. Called before the weights are first used.
+     */
+    private void loadOutputNeurons()
+    {
+	if (outputNeurons == null)
+	    return;
+
+	synchronized (outputNeuronsLock)
 	{
-	    double sum = 0;
+	    Neuron[][] neurons = outputNeurons;
 
-	    for (int i = 0; i < data.size(); i++)
-		sum += data.get(i)[j];
+	    if (neurons == null)
+		return;
 
-	    double average = sum / data.size();
+	    int width = neurons.length;
+	    int a = neurons[0][0].weights.length;
+	    double[] weights = new double[width * width * a];
 
-	    for (int i = 0; i < data.size(); i++)
-		data.get(i)[j] = data.get(i)[j] / average;
+	    for (int i = 0; i < width; i++)
+		for (int j = 0; j < width; j++)
+		    System.arraycopy(neurons[i][j].weights, 0, weights, ((i * width) + j) * a, a);
+
+	    mapWidth = width;
+	    attributes = a;
+	    codebook = weights;
+	    floatCodebook = null;
+	    singlePrecision = false;
+	    weightsChanged();
+	    outputNeurons = null;
 	}
     }
 
     /**
-     * Trains the SOM neural network.
-     * 
-     * @param maxError The maximum permissible error rate for the network.
+     * Returns a copy of the neuron at the specified position in the map.
+     * Changes made to the weights of the returned neuron are not reflected
+     * in the map.
+     * @param x the x co-ordinate of the neuron.
+     * @param y the y co-ordinate of the neuron.
+     * @return the neuron at [x,y].
      */
-    public void TrainNoRandom(double maxError)
+    public Neuron getNeuron(int x, int y)
     {
-	//set the current error level to largest
-	//permissible double value.
-	double currentError = Double.MAX_VALUE;
-
-	//While the error rate is unacceptable.
-	while (currentError > maxError)
-	{
-	    currentError = 0;
+	loadOutputNeurons();
 
-	    //Create a data structure that can store training data.
-	    ArrayList<double[]> trainingSet = new ArrayList<double[]>();
+	Neuron n = new Neuron(x, y, mapWidth);
+	n.weights = new double[attributes];
 
-	    //For each input data instance, add this to the training set.
-	    Iterator<double[]> dataSetIterator = data.iterator(); 
-	    while(dataSetIterator.hasNext()) { trainingSet.add(dataSetIterator.next()); }
-
-	    //Now we actually train the network using the data.
-	    for (int i = 0; i < data.size(); i++)
-	    {
-		//Choose a pattern at random from the training set.
-		double[] pattern = null;
-		
-		if(i == 0)
-		{
-		    //System.out.println(data.size() - 1);
-		    pattern = trainingSet.get(data.size() - 1);
-		}
-		else if(i != 0)
-		{
-		    //System.out.println(data.size() - i-1);
-		    pattern = trainingSet.get(data.size() - i-1);
-		}
-		
-		//String concat = " ";
-		//for(int z = 0; z < pattern.length ; z++)
-		//{
-		//	concat += Double.toString(pattern[z]);
-		//	concat += " ";
-		//}
+	int offset = ((x * mapWidth) + y) * attributes;
 
-		//c.output("Training on pattern: "+concat);
+	if (singlePrecision)
+	    for (int a = 0; a < attributes; a++)
+		n.weights[a] = floatCodebook[offset + a];
+	else
+	    System.arraycopy(codebook, offset, n.weights, 0, attributes);
 
-		//Train the network on the random pattern,
-		//and update the error rate.
+	return n;
+    }
 
-		//the error for the pattern about to be passed into the network
-		double patternError = 0;
+    /**
+     * @param index the index of a neuron in the codebook.
+     * @return the x co-ordinate of the neuron.
+     */
+    public int getX(int index) { return index / mapWidth; }
 
-		//Retrieve the output neuron that fires 
-		//upon reading the input pattern.
-		Neuron winner = getWinningNeuron(pattern);
-		//c.output("Winning Neuron: X:"+winner.X+" Y: " +winner.Y);
+    /**
+     * @param index the index of a neuron in the codebook.
+     * @return the y co-ordinate of the neuron.
+     */
+    public int getY(int index) { return index % mapWidth; }
 
-		//For each neuron in the 2D map space
-		for (int j = 0; j < mapWidth; j++)
-		{
-		    for (int k = 0; k < mapWidth; k++)
-		    {
-			//Calculate the corrections that need to be made
-			//to the weight of connections around each neuron. Those
-			//closest to the output neuron at position [i,j] will have their
-			//connection weights strengthened. The average corrections to connection
-			//weights is returned and added to the error rate.
-			patternError += outputNeurons[j][k].UpdateWeights(pattern, winner, iteration);
-		    }
-		}
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
 
-		//Increment the number of training iterations.
-		iteration++;
+    /**
+     * Method which initialises the 2D output Map with neurons.
+     */
+    public void Build()
+    {
+	//setup output units as 2D map, each of which
+	//requires a weighting for every attribute.
+	codebook = new double[mapWidth * mapWidth * attributes];
+	outputNeurons = null;
+	weightsChanged();
+	ordered = false;
 
-		//update the current error
-		currentError += Math.abs(patternError / (mapWidth * mapWidth));
+	//For each connection, initialise a random connection
+	// weight. Neurons are visited in the same [i,j] order
+	//as they are stored, one row of the map after another.
+	for (int k = 0; k < codebook.length; k++)
+	    codebook[k] = randomGenerator.nextDouble();
 
-		//Remove the pattern from the training set.
-		trainingSet.remove(pattern);
-	    }
+	if (singlePrecision)
+	{
+	    singlePrecision = false;
+	    convertPrecision(true);
 	}
     }
-    
+
     /**
-     * Trains the SOM neural network.
-     * 
-     * @param maxError The maximum permissible error rate for the network.
+     * Initialises the 2D output map linearly, rather than randomly. The neurons are
+     * spread evenly over the plane through the mean of the training data spanned by
+     * its first two principal components, two standard deviations either side of
+     * the mean along each. The map's x axis follows the first component, its y axis the
+     * second. So the map starts out already ordered, and roughly covering the data,
+     * rather than having to unfold from random weights. The training data should be
+     * normalised first, and no random numbers are used.
      */
-    public void Train(double maxError)
+    public void BuildLinear()
     {
-	//set the current error level to largest
-	//permissible double value.
-	double currentError = Double.MAX_VALUE;
-
-	//While the error rate is unacceptable.
-	while (currentError > maxError)
+	if (data == null || data.isEmpty())
 	{
-	    currentError = 0;
+	    Build();
+	    return;
+	}
 
-	    //Create a data structure that can store training data.
-	    ArrayList<double[]> trainingSet = new ArrayList<double[]>();
+	//One pass over the data, for its mean and covariance.
+	PrincipalComponents pca = new PrincipalComponents(attributes);
 
-	    //For each input data instance, add this to the training set.
-	    Iterator<double[]> dataSetIterator = data.iterator(); 
-	    while(dataSetIterator.hasNext()) { trainingSet.add(dataSetIterator.next()); }
+	for (int i = 0; i < data.size(); i++)
+	    pca.add(data.get(i));
 
-	    //Now we actually train the network using the data.
-	    for (int i = 0; i < data.size(); i++)
+	double[] mean = pca.mean();
+	double[] variances = new double[2];
+	double[][] components = pca.components(2, variances);
+
+	codebook = new double[mapWidth * mapWidth * attributes];
+	outputNeurons = null;
+	weightsChanged();
+	ordered = true;
+
+	for (int i = 0; i < mapWidth; i++)
+	    for (int j = 0; j < mapWidth; j++)
 	    {
-		//Choose a pattern at random from the training set.
-		double[] pattern = trainingSet.get(randomGenerator.nextInt(data.size() - i));
+		//The position of the neuron, from -1 to 1 along each axis.
+		double a = mapWidth > 1 ? 2.0 * i / (mapWidth - 1) - 1 : 0;
+		double b = mapWidth > 1 ? 2.0 * j / (mapWidth - 1) - 1 : 0;
+		a *= LINEAR_SPAN * Math.sqrt(variances[0]);
+		b *= LINEAR_SPAN * Math.sqrt(variances[1]);
 
-		//String concat = " ";
-		//for(int z = 0; z < pattern.length ; z++)
-		//{
-		//	concat += Double.toString(pattern[z]);
-		//	concat += " ";
-		//}
+		int offset = ((i * mapWidth) + j) * attributes;
 
-		//c.output("Training on pattern: "+concat);
+		for (int k = 0; k < attributes; k++)
+		    codebook[offset + k] = mean[k] + a * components[0][k] + b * components[1][k];
+	    }
 
-		//Train the network on the random pattern,
-		//and update the error rate.
+	if (singlePrecision)
+	{
+	    singlePrecision = false;
+	    convertPrecision(true);
+	}
+    }
 
-		//the error for the pattern about to be passed into the network
-		double patternError = 0;
+    /**
+     * Changes the precision the map's weights are held in. Converting to single
+     * precision rounds every weight to the nearest float.
+     * @param single true for single precision, false for double precision.
+     */
+    public void convertPrecision(boolean single)
+    {
+	loadOutputNeurons();
 
-		//Retrieve the output neuron that fires 
-		//upon reading the input pattern.
-		Neuron winner = getWinningNeuron(pattern);
-		//c.output("Winning Neuron: X:"+winner.X+" Y: " +winner.Y);
+	if (single == singlePrecision)
+	    return;
 
-		//For each neuron in the 2D map space
-		for (int j = 0; j < mapWidth; j++)
-		{
-		    for (int k = 0; k < mapWidth; k++)
-		    {
-			//Calculate the corrections that need to be made
-			//to the weight of connections around each neuron. Those
-			//closest to the output neuron at position [i,j] will have their
-			//connection weights strengthened. The average corrections to connection
-			//weights is returned and added to the error rate.
-			patternError += outputNeurons[j][k].UpdateWeights(pattern, winner, iteration);
-		    }
-		}
+	if (single)
+	{
+	    floatCodebook = new float[codebook.length];
 
-		//Increment the number of training iterations.
-		iteration++;
+	    for (int k = 0; k < codebook.length; k++)
+		floatCodebook[k] = (float) codebook[k];
 
-		//update the current error
-		currentError += Math.abs(patternError / (mapWidth * mapWidth));
+	    codebook = null;
+	}
+	else
+	{
+	    codebook = new double[floatCodebook.length];
 
-		//Remove the pattern from the training set.
-		trainingSet.remove(pattern);
-	    }
+	    for (int k = 0; k < floatCodebook.length; k++)
+		codebook[k] = floatCodebook[k];
+
+	    floatCodebook = null;
 	}
+
+	singlePrecision = single;
+	weightsChanged();
     }
 
     /**
-     * Returns the 'winning' output neuron that fires upon reading
-     * the specified input pattern.
-     * 
-     * @param pattern The input pattern.
-     * @return The winning neuron.
+     * Checks that finding winning neurons in single precision gives the same
+     * answers as double precision would. The map's weights are widened to doubles,
+     * and the winning neuron of each pattern found with both.
+     * @param patterns the patterns to check, usually the validation set.
+     * @return the fraction of the patterns given the same winning neuron,
+     * always one if the map is in double precision.
      */
-    public Neuron getWinningNeuron(double[] pattern)
+    public double checkSinglePrecision(List<double[]> patterns)
     {
-	//The neuron that will fire open reading the input pattern.
-	Neuron winner = null;
+	if (!singlePrecision || patterns.isEmpty())
+	    return 1;
 
-	//Stores the distance between the input pattern,
-	//and the closest neuron to the pattern in the 2D output 
-	//space. Initially set it to farthest possible distance away.
-	double closest = Double.MAX_VALUE;
+	SelfOrganizingMap reference = new SelfOrganizingMap();
+	reference.setMapWidth(mapWidth);
+	reference.setAttributes(attributes);
+	reference.setSinglePrecision(true);
+	reference.setFloatCodebook(floatCodebook.clone());
+	reference.convertPrecision(false);
 
-	//For each neuron in the 2D output space.
-	for (int i = 0; i < mapWidth; i++)
+	int matches = 0;
+
+	for (double[] pattern : patterns)
+	    if (getWinningIndex(pattern) == reference.getWinningIndex(pattern))
+		matches++;
+
+	return (double) matches / patterns.size();
+    }
+
+    /**
+     * Rounds a pattern to single precision.
+     * @param pattern the pattern.
+     * @param buffer an array to hold the result, or null to allocate a new one.
+     * @return the pattern in single precision.
+     */
+    static float[] toFloat(double[] pattern, float[] buffer)
+    {
+	if (buffer == null || buffer.length != pattern.length)
+	    buffer = new float[pattern.length];
+
+	for (int i = 0; i < pattern.length; i++)
+	    buffer[i] = (float) pattern[i];
+
+	return buffer;
+    }
+
+    /**
+     * Method used to normalise the input data to smooth out major statistical anomalies.
+     */
+    public void NormalisePatterns()
+    {
+	columnMeans = new double[attributes];
+
+	for (int j = 0; j < attributes; j++)
 	{
-	    for (int j = 0; j < mapWidth; j++)
+	    double sum = 0;
+
+	    for (int i = 0; i < data.size(); i++)
+		sum += data.get(i)[j];
+
+	    double average = sum / data.size();
+
+	    for (int i = 0; i < data.size(); i++)
+		data.get(i)[j] = data.get(i)[j] / average;
+
+	    columnMeans[j] = average;
+	}
+    }
+
+    /**
+     * Normalises a single pattern in place, in the same way NormalisePatterns()
+     * normalised the training data. Maps saved before the column means were
+     * recorded can't do this, and leave the pattern unchanged.
+     * @param pattern the pattern to normalise.
+     * @return true if the pattern was normalised, else false.
+     */
+    public boolean NormalisePattern(double[] pattern)
+    {
+	if (columnMeans == null)
+	    return false;
+
+	for (int j = 0; j < attributes; j++)
+	    pattern[j] = pattern[j] / columnMeans[j];
+
+	return true;
+    }
+
+    /**
+     * Refines an already trained map using new patterns only. The map is trained for
+     * a fixed number of steps, at a fixed (usually low) learning rate, cycling through
+     * the new patterns in a random order. The neighbourhood carries on shrinking from
+     * where training left off, so late in a map's life only the neurons closest to
+     * each new pattern move. The patterns should already be normalised.
+     * 
+     * @param patterns the new patterns.
+     * @param steps the number of training steps.
+     * @param learningRate the learning rate.
+     */
+    public void TrainIncremental(ArrayList<double[]> patterns, int steps, double learningRate)
+    {
+	if (patterns.isEmpty())
+	    return;
+
+	int[] indexes = new int[patterns.size()];
+
+	for (int i = 0; i < indexes.length; i++)
+	    indexes[i] = i;
+
+	loadOutputNeurons();
+	weightsChanged();
+	startWorkers();
+	fixedLearningRate = learningRate;
+	activeSchedule = null;
+
+	try
+	{
+	    for (int step = 0; step < steps && !cancelled; step++)
 	    {
-		//Find the distance between the input pattern
-		//and the weights of connections for the neuron at position [i,j] 
+		//Choose a new random order for each pass over the patterns.
+		if (step % indexes.length == 0)
+		    shuffle(indexes);
 
-		double distance = CalcEuclideanDistance(pattern, outputNeurons[i][j].weights);
+		trainOnPattern(patterns.get(indexes[step % indexes.length]));
+	    }
+	}
+	finally
+	{
+	    fixedLearningRate = -1;
+	    stopWorkers();
+	    weightsChanged();
+	}
+    }
 
-		//if the distance is less than the current closest output neuron,
-		//then we change the distance to the newer smaller value,
-		//and select the neuron at this closer distances as the winning
-		//output neuron.
-		if (distance < closest)
+    /**
+     * Trains the SOM neural network.
+     * 
+     * @param maxError The maximum permissible error rate for the network.
+     */
+    public void TrainNoRandom(double maxError)
+    {
+	loadOutputNeurons();
+	weightsChanged();
+	startWorkers();
+
+	try
+	{
+	    trainReverseOrder(maxError);
+	}
+	finally
+	{
+	    stopWorkers();
+	    weightsChanged();
+	}
+    }
+
+    /**
+     * Trains the SOM neural network, presenting the patterns in reverse
+     * order during each pass over the data.
+     * 
+     * @param maxError The maximum permissible error rate for the network.
+     */
+    private void trainReverseOrder(double maxError)
+    {
+	monitor = newMonitor();
+
+	//Until the error rate is acceptable, or the monitor
+	//decides there is no point training any further.
+	boolean stop = false;
+	while (!stop)
+	{
+	    double currentError = 0;
+	    startEpoch();
+
+	    //Now we actually train the network using the data,
+	    //taking the patterns in reverse order.
+	    for (int i = 0; i < data.size() && !cancelled; i++)
+	    {
+		double[] pattern = data.get(data.size() - i - 1);
+
+		//Train the network on the pattern,
+		//and update the error rate.
+		currentError += Math.abs(trainOnPattern(pattern) / (mapWidth * mapWidth));
+	    }
+
+	    stop = cancelled ? monitor.cancel() : endEpoch(currentError, maxError);
+	}
+    }
+    
+    /**
+     * Trains the SOM neural network.
+     * 
+     * @param maxError The maximum permissible error rate for the network.
+     */
+    public void Train(double maxError)
+    {
+	loadOutputNeurons();
+	weightsChanged();
+	startWorkers();
+
+	try
+	{
+	    trainRandomOrder(maxError);
+	}
+	finally
+	{
+	    stopWorkers();
+	    weightsChanged();
+	}
+    }
+
+    /**
+     * Trains the SOM neural network, presenting the patterns in a random
+     * order during each pass over the data. Each pattern is presented
+     * exactly once per pass, and the order is drawn from the map's random
+     * number generator, so setSeed() makes the orderings reproducible.
+     * 
+     * @param maxError The maximum permissible error rate for the network.
+     */
+    private void trainRandomOrder(double maxError)
+    {
+	monitor = newMonitor();
+
+	if (order == null || order.length != data.size())
+	{
+	    order = new int[data.size()];
+
+	    for (int i = 0; i < order.length; i++)
+		order[i] = i;
+	}
+
+	//Until the error rate is acceptable, or the monitor
+	//decides there is no point training any further.
+	boolean stop = false;
+	while (!stop)
+	{
+	    double currentError = 0;
+	    startEpoch();
+
+	    //Choose a new random order for the patterns.
+	    shuffle(order);
+
+	    //Now we actually train the network using the data.
+	    for (int i = 0; i < order.length && !cancelled; i++)
+	    {
+		double[] pattern = data.get(order[i]);
+
+		//Train the network on the random pattern,
+		//and update the error rate.
+		currentError += Math.abs(trainOnPattern(pattern) / (mapWidth * mapWidth));
+	    }
+
+	    stop = cancelled ? monitor.cancel() : endEpoch(currentError, maxError);
+	}
+    }
+
+    /**
+     * Trains the SOM neural network with the online algorithm, sharing each pass over
+     * the data between the worker threads without any locking. Each thread trains on
+     * its own mini-batches of the patterns, presented in a random order, updating the
+     * shared weights as it goes. Training stops just as Train() does.
+     * 
+     * This is much faster than Train() with several threads, as the threads synchronise
+     * only at the end of each pass, but the result is not reproducible: it depends on how
+     * the threads' updates interleave. With a single thread it is the same as Train().
+     * 
+     * @param maxError The maximum permissible error rate for the network.
+     */
+    public void TrainHogwild(double maxError)
+    {
+	loadOutputNeurons();
+	weightsChanged();
+	startWorkers();
+
+	try
+	{
+	    monitor = newMonitor();
+	    HogwildTrainer trainer = new HogwildTrainer(this, miniBatchSize, maxStaleness);
+
+	    if (order == null || order.length != data.size())
+	    {
+		order = new int[data.size()];
+
+		for (int i = 0; i < order.length; i++)
+		    order[i] = i;
+	    }
+
+	    boolean stop = false;
+	    while (!stop)
+	    {
+		//Choose a new random order for the patterns.
+		shuffle(order);
+
+		double currentError = trainer.epoch(data, order);
+		iteration += trainer.patterns;
+		epochDistance = trainer.distance;
+		epochTopographicErrors = trainer.topographicErrors;
+
+		stop = cancelled ? monitor.cancel() : endEpoch(currentError, maxError);
+	    }
+	}
+	finally
+	{
+	    stopWorkers();
+	    weightsChanged();
+	}
+    }
+
+    /**
+     * Restores the map to the state it was in when a checkpoint was written, in place
+     * of building it. The next call to the training method that wrote the checkpoint,
+     * with the same data and options, then carries on from the epoch after it.
+     * 
+     * @param path the path of the checkpoint.
+     * @throws IOException if the checkpoint can't be read, or doesn't fit the training data.
+     */
+    public void Resume(String path) throws IOException
+    {
+	Checkpoint c = Checkpoint.read(path);
+
+	if (data != null && c.order != null && c.order.length != data.size())
+	    throw new IOException("The checkpoint is of training on " + c.order.length + " patterns, not " + data.size());
+
+	mapWidth = c.mapWidth;
+	attributes = c.attributes;
+	singlePrecision = c.singlePrecision;
+	ordered = c.ordered;
+	outputNeurons = null;
+	codebook = c.codebook;
+	floatCodebook = c.floatCodebook;
+	iteration = c.iteration;
+	randomGenerator = c.random();
+	order = c.order;
+
+	if (c.columnMeans != null)
+	    columnMeans = c.columnMeans;
+
+	weightsChanged();
+	resumeFrom = c;
+
+	System.out.println("Resuming training after epoch " + c.epoch + ", iteration " + c.iteration);
+    }
+
+    /**
+     * Plans the schedule of a new online training run, and returns a monitor for it,
+     * carrying on from the checkpoint being resumed from, if there is one. A scheduled
+     * run stops once the epochs it was planned over have run.
+     * @return the monitor.
+     */
+    private ConvergenceMonitor newMonitor()
+    {
+	Checkpoint c = resumed();
+	int epochs = maxEpochs;
+	activeSchedule = null;
+
+	if (schedule != Schedule.ORIGINAL)
+	{
+	    if (epochs <= 0)
+		epochs = Schedule.DEFAULT_EPOCHS;
+
+	    //The run started before the epochs already completed, if resuming.
+	    int first = iteration - (c == null ? 0 : c.epoch * data.size());
+	    activeSchedule = new Schedule(schedule, first, epochs * data.size(), mapWidth);
+	}
+
+	ConvergenceMonitor m = new ConvergenceMonitor(epochs, maxTrainingTime, patience);
+
+	if (c != null)
+	    m.resume(c.quantizationErrors, c.topographicErrors, c.elapsed);
+
+	return m;
+    }
+
+    /**
+     * @return the checkpoint the current training run resumes from, or
+     * null if none. It is only returned once.
+     */
+    Checkpoint resumed()
+    {
+	Checkpoint c = resumeFrom;
+	resumeFrom = null;
+	return c;
+    }
+
+    /**
+     * Writes a checkpoint, if one is due. Failing to write one is reported,
+     * but doesn't stop training.
+     * @param epochs the number of epochs of the current training run completed.
+     * @param m the monitor of the current training run, null for batch training.
+     */
+    void checkpoint(int epochs, ConvergenceMonitor m)
+    {
+	if (checkpointPath == null || epochs % checkpointInterval != 0)
+	    return;
+
+	try
+	{
+	    new Checkpoint(this, epochs, m, randomGenerator, order).write(checkpointPath);
+	}
+	catch (IOException e)
+	{
+	    System.out.println("Error: Could not write checkpoint " + checkpointPath + ": " + e.getMessage());
+	}
+    }
+
+    /**
+     * Resets the errors measured during a pass over the data.
+     */
+    private void startEpoch()
+    {
+	epochDistance = 0;
+	epochTopographicErrors = 0;
+    }
+
+    /**
+     * Passes the errors measured during a pass over the data to the monitor.
+     * @param error the summed weight corrections made during the pass.
+     * @param maxError the maximum permissible error rate for the network.
+     * @return true if training should stop, else false.
+     */
+    private boolean endEpoch(double error, double maxError)
+    {
+	int patterns = Math.max(data.size(), 1);
+	boolean stop = monitor.endEpoch(error, maxError, epochDistance / patterns, (double) epochTopographicErrors / patterns);
+
+	checkpoint(monitor.getEpochs(), monitor);
+	return stop;
+    }
+
+    /**
+     * Shuffles the supplied indexes in place (Fisher-Yates), so that every
+     * ordering is equally likely, without copying or removing any elements.
+     * @param indexes the indexes to shuffle.
+     */
+    void shuffle(int[] indexes)
+    {
+	for (int i = indexes.length - 1; i > 0; i--)
+	{
+	    int j = randomGenerator.nextInt(i + 1);
+	    int swap = indexes[i];
+	    indexes[i] = indexes[j];
+	    indexes[j] = swap;
+	}
+    }
+
+    /**
+     * Trains the SOM neural network using the batch algorithm. The map is
+     * trained for batchEpochs passes over the data, or until the average
+     * correction made to the weights during a pass, once the neighbourhood
+     * has shrunk to its final size, falls below the maximum error.
+     * 
+     * @param maxError The maximum permissible error rate for the network.
+     */
+    public void TrainBatch(double maxError)
+    {
+	loadOutputNeurons();
+	weightsChanged();
+	startWorkers();
+
+	try
+	{
+	    new BatchTrainer(this).train(data, batchEpochs, maxError);
+	}
+	finally
+	{
+	    stopWorkers();
+	    weightsChanged();
+	}
+    }
+
+    /**
+     * Performs a single training step on the supplied pattern. The winning
+     * neuron is found, then the weights of every neuron in the map are moved
+     * towards the pattern according to the neighbourhood function.
+     * 
+     * @param pattern the pattern to train on.
+     * @return the sum over all neurons of the average correction made to their weights.
+     */
+    private double trainOnPattern(double[] pattern)
+    {
+	int neurons = mapWidth * mapWidth;
+
+	if (neuronError == null || neuronError.length != neurons)
+	    neuronError = new double[neurons];
+
+	if (singlePrecision)
+	    floatPattern = toFloat(pattern, floatPattern);
+
+	//Retrieve the output neuron that fires 
+	//upon reading the input pattern.
+	int winner = findWinners(pattern);
+
+	//Record the errors used to monitor training.
+	epochDistance += winnerDistance;
+
+	if (Math.abs(getX(winner) - getX(runnerUp)) > 1 || Math.abs(getY(winner) - getY(runnerUp)) > 1)
+	    epochTopographicErrors++;
+
+	//The learning rate and neighbourhood function for this iteration.
+	kernel.prepare(activeSchedule, iteration, mapWidth, neighbourhoodThreshold, fixedLearningRate);
+
+	//Update the weights of every neuron in the map.
+	if (bands == null)
+	    updateRows(pattern, getX(winner), getY(winner), 0, mapWidth);
+	else
+	{
+	    for (RowBand band : bands)
+		band.prepareUpdate(pattern, winner);
+
+	    runBands();
+	}
+
+	//the error for the pattern just passed into the network,
+	//summed in neuron order so that the result does not depend
+	//on how the rows were shared out. Neurons outside the
+	//neighbourhood were not updated, and contribute nothing.
+	double patternError = 0;
+	int reach = kernel.reach();
+	int firstRow = Math.max(0, getX(winner) - reach), endRow = Math.min(mapWidth, getX(winner) + reach + 1);
+	int firstColumn = Math.max(0, getY(winner) - reach), endColumn = Math.min(mapWidth, getY(winner) + reach + 1);
+
+	for (int j = firstRow; j < endRow; j++)
+	    for (int k = firstColumn; k < endColumn; k++)
+		patternError += neuronError[(j * mapWidth) + k];
+
+	//Increment the number of training iterations.
+	iteration++;
+
+	return patternError;
+    }
+
+    /**
+     * Moves the weights of the neurons in the specified rows of the map towards
+     * the pattern. Only neurons within the neighbourhood of the winner are visited,
+     * and the average correction made to the weights of each is recorded in neuronError.
+     * 
+     * @param pattern the pattern being trained on.
+     * @param winnerX the x co-ordinate of the winning neuron.
+     * @param winnerY the y co-ordinate of the winning neuron.
+     * @param firstRow the first row to update.
+     * @param endRow the row after the last row to update.
+     */
+    private void updateRows(double[] pattern, int winnerX, int winnerY, int firstRow, int endRow)
+    {
+	updateRows(kernel, pattern, floatPattern, neuronError, winnerX, winnerY, firstRow, endRow);
+    }
+
+    /**
+     * Moves the weights of the neurons in the specified rows of the map towards
+     * the pattern, using the supplied kernel and buffers rather than the map's
+     * own, so that several patterns may be trained on at once, see HogwildTrainer.
+     * 
+     * @param kernel the learning rate and neighbourhood function for the iteration.
+     * @param pattern the pattern being trained on.
+     * @param floatPattern the pattern in single precision, if the map is in single precision.
+     * @param neuronError receives the average correction made to the weights of each neuron.
+     * @param winnerX the x co-ordinate of the winning neuron.
+     * @param winnerY the y co-ordinate of the winning neuron.
+     * @param firstRow the first row to update.
+     * @param endRow the row after the last row to update.
+     */
+    void updateRows(NeighbourhoodKernel kernel, double[] pattern, float[] floatPattern, double[] neuronError,
+	    int winnerX, int winnerY, int firstRow, int endRow)
+    {
+	//For each neuron in the rows, calculate the corrections that
+	//need to be made to the weight of its connections. Those closest to the
+	//winning neuron will have their connection weights strengthened.
+	int reach = kernel.reach();
+	int firstColumn = Math.max(0, winnerY - reach), endColumn = Math.min(mapWidth, winnerY + reach + 1);
+	firstRow = Math.max(firstRow, winnerX - reach);
+	endRow = Math.min(endRow, winnerX + reach + 1);
+
+	for (int j = firstRow; j < endRow; j++)
+	{
+	    int dx = Math.abs(j - winnerX);
+	    double rowFactor = kernel.row(dx);
+
+	    for (int k = firstColumn; k < endColumn; k++)
+	    {
+		int n = (j * mapWidth) + k;
+		int dy = Math.abs(k - winnerY);
+
+		if (!kernel.updates(dx, dy))
 		{
-		    winner = outputNeurons[i][j];
-		    closest = distance;
+		    neuronError[n] = 0;
+		    continue;
+		}
+
+		double factor = rowFactor * kernel.column(dy);
+		double sum = 0;
+
+		if (singlePrecision)
+		{
+		    float f = (float) factor;
+
+		    for (int a = 0, offset = n * attributes; a < attributes; a++, offset++)
+		    {
+			float delta = f * (floatPattern[a] - floatCodebook[offset]);
+			floatCodebook[offset] += delta;
+			sum += delta;
+		    }
+		}
+		else
+		{
+		    for (int a = 0, offset = n * attributes; a < attributes; a++, offset++)
+		    {
+			double delta = factor * (pattern[a] - codebook[offset]);
+			codebook[offset] += delta;
+			sum += delta;
+		    }
 		}
+
+		neuronError[n] = sum / attributes;
+	    }
+	}
+    }
+
+    /**
+     * Finds the winning neuron, and the second closest neuron, for a training step.
+     * When training in parallel each band of rows reports its two closest neurons,
+     * and the bands are then compared in row order, so the winner is the same as
+     * the one getWinningIndex() would choose. The second closest neuron and the
+     * distance to the winner are left in runnerUp and winnerDistance.
+     * 
+     * @param pattern the input pattern.
+     * @return the index of the winning neuron.
+     */
+    private int findWinners(double[] pattern)
+    {
+	List<RowBand> searched = bands;
+
+	if (searched == null)
+	{
+	    if (wholeMap == null || wholeMap.endRow != mapWidth)
+		wholeMap = new RowBand(0, mapWidth);
+
+	    wholeMap.prepareSearch(pattern);
+	    wholeMap.call();
+	    searched = Collections.singletonList(wholeMap);
+	}
+	else
+	{
+	    for (RowBand band : bands)
+		band.prepareSearch(pattern);
+
+	    runBands();
+	}
+
+	int winner = -1;
+	double closest = Double.MAX_VALUE, secondClosest = Double.MAX_VALUE;
+	runnerUp = -1;
+
+	for (RowBand band : searched)
+	{
+	    if (band.closest < closest)
+	    {
+		runnerUp = winner;
+		secondClosest = closest;
+		winner = band.winner;
+		closest = band.closest;
+	    }
+	    else if (band.closest < secondClosest)
+	    {
+		runnerUp = band.winner;
+		secondClosest = band.closest;
+	    }
+
+	    if (band.secondClosest < secondClosest)
+	    {
+		runnerUp = band.runnerUp;
+		secondClosest = band.secondClosest;
+	    }
+	}
+
+	//A map with a single neuron has no runner up.
+	if (runnerUp < 0)
+	    runnerUp = winner;
+
+	winnerDistance = Math.sqrt(closest);
+	return winner;
+    }
+
+    /**
+     * Creates the pool of worker threads used during training, if more
+     * than one thread has been requested.
+     */
+    void startWorkers()
+    {
+	if (threads < 2)
+	    return;
+
+	workers = Executors.newFixedThreadPool(threads);
+
+	int bandCount = Math.min(threads, mapWidth);
+
+	if (minimumBandWeights > 0)
+	    bandCount = Math.min(bandCount, (mapWidth * mapWidth * attributes) / minimumBandWeights);
+
+	if (bandCount < 2)
+	    return;
+
+	bands = new ArrayList<RowBand>();
+
+	//Share the rows out as evenly as possible.
+	for (int b = 0; b < bandCount; b++)
+	    bands.add(new RowBand((b * mapWidth) / bandCount, ((b + 1) * mapWidth) / bandCount));
+
+	//The training thread runs the first band, the others each get a thread.
+	stepStart = new CyclicBarrier(bandCount);
+	stepEnd = new CyclicBarrier(bandCount);
+	bandFailure = null;
+	bandThreads = new ArrayList<Thread>();
+
+	for (int b = 1; b < bandCount; b++)
+	{
+	    Thread t = new BandThread(bands.get(b));
+	    t.setDaemon(true);
+	    t.start();
+	    bandThreads.add(t);
+	}
+    }
+
+    /**
+     * Shuts down the pool of worker threads used during training.
+     */
+    void stopWorkers()
+    {
+	if (workers != null)
+	    workers.shutdown();
+
+	//Interrupting a band thread breaks the barriers, which stops the rest.
+	if (bandThreads != null)
+	    for (Thread t : bandThreads)
+		t.interrupt();
+
+	workers = null;
+	bands = null;
+	bandThreads = null;
+	stepStart = stepEnd = null;
+    }
+
+    /**
+     * Runs one step of every band, the first on the calling thread and the
+     * others on their band threads, and waits for them all to complete.
+     */
+    private void runBands()
+    {
+	try
+	{
+	    stepStart.await();
+	    bands.get(0).call();
+	    stepEnd.await();
+	}
+	catch (InterruptedException e)
+	{
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("Training interrupted", e);
+	}
+	catch (BrokenBarrierException e) { throw new IllegalStateException("Training failed", bandFailure); }
+
+	if (bandFailure != null)
+	    throw new IllegalStateException("Training failed", bandFailure);
+    }
+
+    /**
+     * @return the number of threads available to run training tasks.
+     */
+    int getWorkerCount() { return workers == null ? 1 : threads; }
+
+    /**
+     * Runs the supplied training tasks, waiting for them all to complete. The
+     * tasks are shared between the worker threads if training in parallel,
+     * else they are run one after another on the calling thread.
+     * @param tasks the tasks to run.
+     */
+    void invokeTasks(List<? extends Callable<Object>> tasks)
+    {
+	try
+	{
+	    if (workers == null)
+	    {
+		for (Callable<Object> task : tasks)
+		    task.call();
+		return;
+	    }
+
+	    for (Future<Object> f : workers.invokeAll(tasks))
+		f.get();
+	}
+	catch (InterruptedException e)
+	{
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("Training interrupted", e);
+	}
+	catch (ExecutionException e) { throw new IllegalStateException("Training failed", e.getCause()); }
+	catch (RuntimeException e) { throw e; }
+	catch (Exception e) { throw new IllegalStateException("Training failed", e); }
+    }
+
+    /**
+     * Returns the 'winning' output neuron that fires upon reading
+     * the specified input pattern.
+     * 
+     * @param pattern The input pattern.
+     * @return A copy of the winning neuron.
+     */
+    public Neuron getWinningNeuron(double[] pattern)
+    {
+	int winner = getWinningIndex(pattern);
+	return getNeuron(getX(winner), getY(winner));
+    }
+
+    /**
+     * Returns the index of the 'winning' output neuron that fires upon
+     * reading the specified input pattern. Use getX() and getY() to
+     * convert the index to a map position. If the map is indexed the
+     * winner is found using the tree built over its weights. The winners
+     * of recently seen patterns are remembered, so looking the same
+     * pattern up again is quick, until the map is trained further.
+     * 
+     * @param pattern The input pattern.
+     * @return The index of the winning neuron.
+     */
+    public int getWinningIndex(double[] pattern)
+    {
+	loadOutputNeurons();
+
+	if (winnerCacheSize <= 0)
+	    return findWinningIndex(pattern);
+
+	WinnerCache cache = winnerCache;
+
+	if (cache == null || cache.capacity != winnerCacheSize)
+	{
+	    cache = new WinnerCache(winnerCacheSize);
+	    winnerCache = cache;
+	}
+
+	int current = version;
+	int winner = cache.get(pattern, current);
+
+	if (winner < 0)
+	{
+	    winner = findWinningIndex(pattern);
+	    cache.put(pattern, current, winner);
+	}
+
+	return winner;
+    }
+
+    /**
+     * Finds the index of the winning neuron, using the tree
+     * if the map is indexed, else by scanning every neuron.
+     * 
+     * @param pattern The input pattern.
+     * @return The index of the winning neuron.
+     */
+    private int findWinningIndex(double[] pattern)
+    {
+	if (!indexed)
+	    return scanWinningIndex(pattern);
+
+	//Two threads may both build the tree, but they build the same
+	//tree, and a tree is never changed once it has been built.
+	VantagePointTree tree = index;
+
+	if (tree == null)
+	{
+	    tree = new VantagePointTree(this);
+	    index = tree;
+	}
+
+	return tree.nearest(pattern);
+    }
+
+    /**
+     * Finds the index of the winning neuron by comparing the
+     * pattern with every neuron in the map.
+     * 
+     * @param pattern The input pattern.
+     * @return The index of the winning neuron.
+     */
+    int scanWinningIndex(double[] pattern)
+    {
+	//The neuron that will fire open reading the input pattern.
+	int winner = -1;
+
+	//Stores the squared distance between the input pattern,
+	//and the closest neuron to the pattern in the 2D output 
+	//space. Initially set it to farthest possible distance away.
+	//Squared distances are ordered just as distances are, so
+	//there is no need to take the square root.
+	double closest = Double.MAX_VALUE;
+
+	//In single precision, the pattern is rounded to floats too.
+	float[] p = singlePrecision ? toFloat(pattern, null) : null;
+
+	//For each neuron in the 2D output space.
+	int neurons = mapWidth * mapWidth;
+	for (int n = 0; n < neurons; n++)
+	{
+	    //Find the squared distance between the input pattern
+	    //and the weights of connections for the neuron, giving
+	    //up once the neuron can no longer be the closest.
+	    double distance = singlePrecision ? DistanceKernel.squaredDistance(p, floatCodebook, n * attributes, closest) :
+		DistanceKernel.squaredDistance(pattern, codebook, n * attributes, closest);
+
+	    //if the distance is less than the current closest output neuron,
+	    //then we change the distance to the newer smaller value,
+	    //and select the neuron at this closer distances as the winning
+	    //output neuron.
+	    if (distance < closest)
+	    {
+		winner = n;
+		closest = distance;
 	    }
 	}
 
@@ -375,18 +1621,134 @@ public class SelfOrganizingMap extends SerializableBaseObject
     }
 
     /**
-     * Calculates the Euclidean distance between each node's weight
-     * vector and the current input vector.
-     * @param inputVector The input vector of the neuron.
-     * @param weights The connection weights.
-     * @return The distance as a double.
+     * A thread that runs one band of rows for every step of a training run,
+     * until it is interrupted by stopWorkers().
+     * 
+     * @author Rob Lyon
      */
-    private double CalcEuclideanDistance(double[] inputVector, double[] weights)
+    private class BandThread extends Thread
     {
-	double distance = 0;
+	/**
+	 * The band run by the thread.
+	 */
+	private final RowBand band;
+
+	BandThread(RowBand b){ super("SOM band " + b.firstRow); band = b; }
+
+	/* (non-Javadoc)
+	 * @see java.lang.Thread#run()
+	 */
+	public void run()
+	{
+	    //The barriers are read once, a later training run has its own.
+	    CyclicBarrier start = stepStart, end = stepEnd;
+
+	    try
+	    {
+		while (true)
+		{
+		    start.await();
+
+		    try { band.call(); }
+		    catch (Throwable t)
+		    {
+			if (bandFailure == null)
+			    bandFailure = t;
+		    }
 
-	for (int i = 0; i < inputVector.length; i++){ distance += Math.pow((inputVector[i] - weights[i]), 2); }
+		    end.await();
+		}
+	    }
+	    catch (InterruptedException e) { }
+	    catch (BrokenBarrierException e) { }
+	}
+    }
 
-	return Math.sqrt(distance);
+    /**
+     * A band of consecutive map rows, processed by one of the worker threads
+     * during parallel training. Each band either searches its rows for the
+     * neurons closest to a pattern, or updates the weights of its rows. When
+     * training sequentially, a single band covering the whole map is searched.
+     * 
+     * @author Rob Lyon
+     */
+    private class RowBand implements Callable<Object>
+    {
+	/**
+	 * The first row in the band, and the row after the last.
+	 */
+	private final int firstRow, endRow;
+
+	/**
+	 * The pattern being processed.
+	 */
+	private double[] pattern;
+
+	/**
+	 * True if the band should update weights, false if it should search for the winner.
+	 */
+	private boolean update;
+
+	/**
+	 * The winning neuron for an update.
+	 */
+	private int winnerX, winnerY;
+
+	/**
+	 * The closest and second closest neurons found in the band by a search,
+	 * and their squared distances from the pattern.
+	 */
+	private int winner, runnerUp;
+	private double closest, secondClosest;
+
+	RowBand(int first, int end){ firstRow = first; endRow = end; }
+
+	void prepareSearch(double[] p){ pattern = p; update = false; }
+
+	void prepareUpdate(double[] p, int w)
+	{
+	    pattern = p;
+	    update = true;
+	    winnerX = getX(w);
+	    winnerY = getY(w);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Callable#call()
+	 */
+	public Object call()
+	{
+	    if (update)
+	    {
+		updateRows(pattern, winnerX, winnerY, firstRow, endRow);
+		return null;
+	    }
+
+	    winner = runnerUp = -1;
+	    closest = secondClosest = Double.MAX_VALUE;
+
+	    for (int n = firstRow * mapWidth; n < endRow * mapWidth; n++)
+	    {
+		//Only the two closest neurons are of interest, so the sum
+		//can be abandoned once it can't beat the second closest.
+		double distance = singlePrecision ? DistanceKernel.squaredDistance(floatPattern, floatCodebook, n * attributes, secondClosest) :
+		    DistanceKernel.squaredDistance(pattern, codebook, n * attributes, secondClosest);
+
+		if (distance < closest)
+		{
+		    runnerUp = winner;
+		    secondClosest = closest;
+		    winner = n;
+		    closest = distance;
+		}
+		else if (distance < secondClosest)
+		{
+		    runnerUp = n;
+		    secondClosest = distance;
+		}
+	    }
+
+	    return null;
+	}
     }
 }
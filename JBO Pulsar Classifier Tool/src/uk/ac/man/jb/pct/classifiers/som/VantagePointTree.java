@@ -0,0 +1,319 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	VantagePointTree.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.util.Random;
+
+/**
+ * An index over the neurons of a trained map, that finds the neuron closest to a
+ * pattern without measuring the distance to every neuron (a vantage point tree).
+ *
+ * Each node of the tree holds a neuron, the vantage point, and the median distance
+ * from it to the neurons below the node. The neurons no further away than the median
+ * go in the inside subtree, the rest in the outside subtree. When searching, the
+ * triangle inequality bounds how close any neuron in a subtree can be to the pattern,
+ * so subtrees that can't hold anything closer than the best neuron found so far are
+ * skipped. A trained map's neurons lie close to a two dimensional sheet, however many
+ * attributes the patterns have, so on large maps most of the tree is skipped.
+ *
+ * The search is exact. Distances are measured with the same kernels, and ties are
+ * broken the same way (in favour of the lowest index), as the linear scan in
+ * SelfOrganizingMap.scanWinningIndex(), so both find the same neuron. The bounds are
+ * widened very slightly, so that rounding can't cause a subtree to be wrongly skipped.
+ *
+ * The tree refers to the map's codebook, rather than copying it, so it must be built
+ * again whenever the map is trained. Once built it is only read, so it may be searched
+ * by several threads at once.
+ *
+ * @author Rob Lyon
+ */
+final class VantagePointTree
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The relative amount by which the search bounds are widened, to allow for rounding.
+     */
+    private static final double SLACK = 1e-9;
+
+    /**
+     * The weights of the neurons, only one of which is non null.
+     */
+    private final double[] codebook;
+    private final float[] floatCodebook;
+
+    /**
+     * The number of attributes per neuron.
+     */
+    private final int attributes;
+
+    /**
+     * The nodes of the tree: the neuron at each node, the median distance from that
+     * neuron to the neurons below it, and the inside and outside child nodes (-1 for none).
+     */
+    private final int[] neuron;
+    private final double[] radius;
+    private final int[] inside;
+    private final int[] outside;
+
+    /**
+     * The number of nodes built so far.
+     */
+    private int size = 0;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Builds the tree over the neurons of a map.
+     * @param map the trained map.
+     */
+    VantagePointTree(SelfOrganizingMap map)
+    {
+	codebook = map.floatCodebook == null ? map.codebook : null;
+	floatCodebook = map.floatCodebook;
+	attributes = map.attributes;
+
+	int neurons = map.mapWidth * map.mapWidth;
+	neuron = new int[neurons];
+	radius = new double[neurons];
+	inside = new int[neurons];
+	outside = new int[neurons];
+
+	int[] items = new int[neurons];
+	for (int i = 0; i < neurons; i++)
+	    items[i] = i;
+
+	// The vantage points are chosen at random, but the
+	// same tree is always built for the same weights.
+	build(items, new double[neurons], 0, neurons, new Random(0));
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Builds the subtree over some of the neurons.
+     * @param items the neurons, indexes into the codebook.
+     * @param distances space to hold the distance from the vantage point to each neuron.
+     * @param from the first neuron in items to place in the subtree.
+     * @param to one past the last neuron in items to place in the subtree.
+     * @param random chooses the vantage points.
+     * @return the index of the subtree's root node, -1 if the subtree is empty.
+     */
+    private int build(int[] items, double[] distances, int from, int to, Random random)
+    {
+	if (from >= to)
+	    return -1;
+
+	int node = size++;
+
+	swap(items, distances, from, from + random.nextInt(to - from));
+	int vantage = items[from];
+	neuron[node] = vantage;
+
+	for (int i = from + 1; i < to; i++)
+	    distances[i] = Math.sqrt(neuronDistance(vantage, items[i]));
+
+	// Split the remaining neurons about their median distance.
+	int median = (from + 1 + to) / 2;
+
+	if (median < to)
+	{
+	    select(items, distances, from + 1, to, median);
+	    radius[node] = distances[median];
+	}
+
+	inside[node] = build(items, distances, from + 1, median, random);
+	outside[node] = build(items, distances, median, to, random);
+
+	return node;
+    }
+
+    /**
+     * Finds the neuron closest to a pattern.
+     * @param pattern the pattern.
+     * @return the index of the closest neuron.
+     */
+    int nearest(double[] pattern)
+    {
+	Search search = new Search();
+	search.pattern = pattern;
+	search.floatPattern = floatCodebook == null ? null : SelfOrganizingMap.toFloat(pattern, null);
+	search.visit(0);
+	return search.winner;
+    }
+
+    /**
+     * @param a the index of a neuron.
+     * @param b the index of another neuron.
+     * @return the squared distance between the weights of the two neurons.
+     */
+    private double neuronDistance(int a, int b)
+    {
+	double sum = 0;
+
+	for (int i = 0; i < attributes; i++)
+	{
+	    double d = floatCodebook == null ? codebook[a * attributes + i] - codebook[b * attributes + i] :
+		(double) floatCodebook[a * attributes + i] - floatCodebook[b * attributes + i];
+	    sum += d * d;
+	}
+
+	return sum;
+    }
+
+    /**
+     * Partially sorts the neurons in a range by their distance from the vantage point,
+     * so that the k-th closest is at index k, with those no further away before it and
+     * those no closer after it (Hoare's selection algorithm).
+     * @param items the neurons.
+     * @param distances the distance from the vantage point to each neuron.
+     * @param from the first index of the range.
+     * @param to one past the last index of the range.
+     * @param k the index to select.
+     */
+    private static void select(int[] items, double[] distances, int from, int to, int k)
+    {
+	int lo = from, hi = to - 1;
+
+	while (lo < hi)
+	{
+	    double pivot = distances[(lo + hi) >>> 1];
+	    int i = lo, j = hi;
+
+	    while (i <= j)
+	    {
+		while (distances[i] < pivot)
+		    i++;
+		while (distances[j] > pivot)
+		    j--;
+
+		if (i <= j)
+		    swap(items, distances, i++, j--);
+	    }
+
+	    if (k <= j)
+		hi = j;
+	    else if (k >= i)
+		lo = i;
+	    else
+		return;
+	}
+    }
+
+    /**
+     * Swaps two neurons, and their distances.
+     */
+    private static void swap(int[] items, double[] distances, int i, int j)
+    {
+	int item = items[i];
+	items[i] = items[j];
+	items[j] = item;
+
+	double distance = distances[i];
+	distances[i] = distances[j];
+	distances[j] = distance;
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Search
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The state of a single search, so that the tree itself is never written to.
+     */
+    private class Search
+    {
+	double[] pattern;
+	float[] floatPattern;
+	int winner = -1;
+	double closest = Double.MAX_VALUE;
+
+	/**
+	 * Searches a subtree.
+	 * @param node the root of the subtree.
+	 */
+	void visit(int node)
+	{
+	    if (node < 0)
+		return;
+
+	    int n = neuron[node];
+	    double squared = floatCodebook == null ? DistanceKernel.squaredDistance(pattern, codebook, n * attributes, Double.MAX_VALUE) :
+		DistanceKernel.squaredDistance(floatPattern, floatCodebook, n * attributes, Double.MAX_VALUE);
+
+	    if (squared < closest || (squared == closest && n < winner))
+	    {
+		winner = n;
+		closest = squared;
+	    }
+
+	    double distance = Math.sqrt(squared);
+
+	    // Search the side of the median the pattern is on first, as
+	    // it is the most likely to hold a closer neuron, and so the
+	    // most likely to allow the other side to be skipped.
+	    if (distance < radius[node])
+	    {
+		if (mayHold(distance - radius[node], distance))
+		    visit(inside[node]);
+		if (mayHold(radius[node] - distance, distance))
+		    visit(outside[node]);
+	    }
+	    else
+	    {
+		if (mayHold(radius[node] - distance, distance))
+		    visit(outside[node]);
+		if (mayHold(distance - radius[node], distance))
+		    visit(inside[node]);
+	    }
+	}
+
+	/**
+	 * @param bound the least distance from the pattern that any neuron in a subtree can be.
+	 * @param distance the distance from the pattern to the subtree's vantage point.
+	 * @return true if the subtree may hold a neuron at least as close as the best found so far.
+	 */
+	boolean mayHold(double bound, double distance)
+	{
+	    double best = Math.sqrt(closest);
+	    return bound <= best + SLACK * (best + distance + Math.abs(bound));
+	}
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	WinnerCache.java
+ * Package: uk.ac.man.jb.pct.classifiers.som
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.classifiers.som;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the winning neurons of the patterns most recently looked up, so that
+ * looking the same pattern up again doesn't repeat the search. The classifier looks
+ * up the same patterns many times, for instance once for each value of K tried.
+ *
+ * Patterns are keyed by identity (the array, not its contents), which is cheap, and
+ * matches the way patterns are held by the data sets. Each winner is stored with the
+ * version of the map's weights it was found with, and is ignored once the map has
+ * been trained further. A hash of the pattern's contents is also stored, so that a
+ * pattern changed in place after being looked up isn't given its old winner.
+ *
+ * The cache holds at most a fixed number of patterns, discarding the least recently
+ * used pattern to make room for a new one. It may be used by several threads at once.
+ *
+ * @author Rob Lyon
+ */
+final class WinnerCache
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The most patterns the cache holds.
+     */
+    final int capacity;
+
+    /**
+     * The cached winners, least recently used first.
+     */
+    private final LinkedHashMap<Key, Winner> winners;
+
+    /**
+     * The number of lookups that found, and didn't find, a winner.
+     */
+    private int hits = 0;
+    private int misses = 0;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param size the most patterns the cache holds.
+     */
+    @SuppressWarnings("serial")
+    WinnerCache(int size)
+    {
+	capacity = size;
+
+	// Ordered by access, so the eldest entry is the least recently used.
+	winners = new LinkedHashMap<Key, Winner>(16, 0.75f, true)
+	{
+	    protected boolean removeEldestEntry(Map.Entry<Key, Winner> eldest) { return size() > capacity; }
+	};
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Looks up the winning neuron of a pattern.
+     * @param pattern the pattern.
+     * @param version the version of the map's weights.
+     * @return the index of the winning neuron, or -1 if it isn't cached.
+     */
+    synchronized int get(double[] pattern, int version)
+    {
+	Winner winner = winners.get(new Key(pattern));
+
+	if (winner == null || winner.version != version || winner.hash != Arrays.hashCode(pattern))
+	{
+	    misses++;
+	    return -1;
+	}
+
+	hits++;
+	return winner.index;
+    }
+
+    /**
+     * Stores the winning neuron of a pattern.
+     * @param pattern the pattern.
+     * @param version the version of the map's weights the winner was found with.
+     * @param index the index of the winning neuron.
+     */
+    synchronized void put(double[] pattern, int version, int index)
+    {
+	Winner winner = new Winner();
+	winner.version = version;
+	winner.hash = Arrays.hashCode(pattern);
+	winner.index = index;
+	winners.put(new Key(pattern), winner);
+    }
+
+    synchronized int getHits() { return hits; }
+    synchronized int getMisses() { return misses; }
+
+    //*****************************************
+    //*****************************************
+    //              Entries
+    //*****************************************
+    //*****************************************
+
+    /**
+     * A pattern, compared by identity.
+     */
+    private static final class Key
+    {
+	final double[] pattern;
+
+	Key(double[] p) { pattern = p; }
+
+	public int hashCode() { return System.identityHashCode(pattern); }
+
+	public boolean equals(Object o) { return o instanceof Key && ((Key) o).pattern == pattern; }
+    }
+
+    /**
+     * A cached winner.
+     */
+    private static final class Winner
+    {
+	int version;
+	int hash;
+	int index;
+    }
+}
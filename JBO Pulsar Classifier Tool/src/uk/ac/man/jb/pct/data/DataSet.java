@@ -146,7 +146,7 @@ public class DataSet implements I_DataSet
     {
 	ArrayList< double[] > primitiveData = new ArrayList<double[]>();
 	
-	for(int i = 0; i < rows; i++)
+	for(int i = 0; i < data.size(); i++)
 	    primitiveData.add(data.get(i).getData());
 	    
 	return primitiveData;
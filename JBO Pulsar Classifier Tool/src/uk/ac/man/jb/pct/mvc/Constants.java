@@ -116,6 +116,91 @@ public class Constants
      * Command line flag used to pass in the path to a file where application settings are stored.
      */
     public static final String SETTINGS_FLAG = "-settings=";
+
+    /**
+     * Command line flag used to pass in the number of threads to train with.
+     */
+    public static final String THREADS_FLAG = "-threads=";
+
+    /**
+     * Command line flag used to pass in the algorithm used to train a neural network.
+     */
+    public static final String TRAINING_FLAG = "-training=";
+
+    /**
+     * Command line flag used to pass in the neighbourhood weight below which neurons are not updated.
+     */
+    public static final String EPSILON_FLAG = "-epsilon=";
+
+    /**
+     * Command line flag used to pass in the maximum number of passes made over the training data.
+     */
+    public static final String EPOCHS_FLAG = "-epochs=";
+
+    /**
+     * Command line flag used to pass in the maximum time, in seconds, to train for.
+     */
+    public static final String TIME_FLAG = "-time=";
+
+    /**
+     * Command line flag used to pass in the number of passes without improvement after which training stops.
+     */
+    public static final String PATIENCE_FLAG = "-patience=";
+
+    /**
+     * Command line flag used to pass in the precision, 32 or 64 bit, of the neural network weights.
+     */
+    public static final String PRECISION_FLAG = "-precision=";
+
+    /**
+     * Command line flag used to pass in the number of steps to train for when updating an existing neural network.
+     */
+    public static final String UPDATE_FLAG = "-update=";
+
+    /**
+     * Command line flag used to choose whether winning neurons are found using a search tree, 1 to use one.
+     */
+    public static final String INDEX_FLAG = "-index=";
+
+    /**
+     * Command line flag used to pass in the way a neural network's weights are initialised before training.
+     */
+    public static final String INITIALISATION_FLAG = "-init=";
+
+    /**
+     * Command line flag used to pass in how many mini-batches a thread may get ahead by during Hogwild training.
+     */
+    public static final String STALENESS_FLAG = "-staleness=";
+
+    /**
+     * Command line flag used to pass in the number of worker processes to train a neural network with.
+     */
+    public static final String WORKERS_FLAG = "-workers=";
+
+    /**
+     * Command line flag used to pass in the port the coordinator of the worker processes listens on.
+     */
+    public static final String PORT_FLAG = "-port=";
+
+    /**
+     * Command line flag used to pass in the host and port of the coordinator to work for, as host:port.
+     */
+    public static final String COORDINATOR_FLAG = "-coordinator=";
+
+    /**
+     * Command line flag used to pass in the number of epochs between training checkpoints.
+     */
+    public static final String CHECKPOINT_FLAG = "-checkpoint=";
+
+    /**
+     * Command line flag used to pass in the path of a training checkpoint to resume from.
+     */
+    public static final String RESUME_FLAG = "-resume=";
+
+    /**
+     * Command line flag used to pass in how the learning rate and neighbourhood decay during online training.
+     */
+    public static final String SCHEDULE_FLAG = "-schedule=";
     
     /**
      * The command line flags.
@@ -125,7 +210,10 @@ public class Constants
 	DESIRED_ACCURACY_FLAG,COUNTRY_FLAG,CLASSIFIER_FLAG,
 	LANGUAGE_FLAG,LOGGING_FLAG,LOAD_NN_FLAG,SAVE_NN_FLAG,
 	TRAINING_SET_FLAG,VALIDATION_SET_FLAG,CLASSIFICATION_SET_FLAG,
-	OUTPUT_FILE_FLAG,MAPSIZE_FLAG,TESTS_FLAG,K_FLAG,SETTINGS_FLAG
+	OUTPUT_FILE_FLAG,MAPSIZE_FLAG,TESTS_FLAG,K_FLAG,SETTINGS_FLAG,
+	THREADS_FLAG,TRAINING_FLAG,EPSILON_FLAG,EPOCHS_FLAG,TIME_FLAG,PATIENCE_FLAG,
+	PRECISION_FLAG,UPDATE_FLAG,INDEX_FLAG,INITIALISATION_FLAG,STALENESS_FLAG,
+	WORKERS_FLAG,PORT_FLAG,COORDINATOR_FLAG,CHECKPOINT_FLAG,RESUME_FLAG,SCHEDULE_FLAG
 	};
 
     //*****************************************
@@ -138,8 +226,51 @@ public class Constants
     public static final String SEMI_AUTOMATED_TRAINING = "SEMI AUTOMATED TRAINING";
     public static final String AUTOMATED_CLASSIFICATION = "AUTOMATED CLASSIFICATION";
     public static final String AUTOMATED_TESTING = "AUTOMATED TESTING";
+    public static final String INCREMENTAL_TRAINING = "INCREMENTAL TRAINING";
+    public static final String DISTRIBUTED_TRAINING = "DISTRIBUTED TRAINING";
+    public static final String DISTRIBUTED_WORKER = "DISTRIBUTED WORKER";
     public static final String NO_ACTION = "NO ACTION";
 
+    //*****************************************
+    //*****************************************
+    //         Training algorithms
+    //*****************************************
+    //*****************************************
+
+    public static final int ONLINE_TRAINING = 0;
+    public static final int BATCH_TRAINING = 1;
+    public static final int HOGWILD_TRAINING = 2;
+
+    //*****************************************
+    //*****************************************
+    //       Initialisation methods
+    //*****************************************
+    //*****************************************
+
+    public static final int RANDOM_INITIALISATION = 0;
+    public static final int LINEAR_INITIALISATION = 1;
+
+    /**
+     * The number of epochs a linearly initialised neural network is trained
+     * for by the batch algorithm. It starts out ordered, so needs few.
+     */
+    public static final int LINEAR_BATCH_EPOCHS = 5;
+
+    /**
+     * The learning rate used when updating an existing neural network with new data.
+     */
+    public static final double INCREMENTAL_LEARNING_RATE = 0.01;
+
+    /**
+     * The port the coordinator of the worker processes listens on, unless another is given.
+     */
+    public static final int DEFAULT_PORT = 7531;
+
+    /**
+     * The extension added to the path a neural network is saved to, to give the path its training checkpoints are written to.
+     */
+    public static final String CHECKPOINT_EXTENSION = ".checkpoint";
+
     //*****************************************
     //*****************************************
     //         File path constants
@@ -117,6 +117,11 @@ public class AutoClassificationController implements I_Controller
 		// Get the number of attributes that the classifier expects
 		int attributes = classifier.getMap().getAttributes();
 
+		// Find winning neurons using a search tree? A classifier
+		// trained with one keeps using it.
+		if(input.isIndexed())
+		    classifier.getMap().setIndexed(true);
+
 		System.out.println("Details of classifier loaded:");
 		System.out.println(classifier.getStats().toString());
 		System.out.println("Number of parameters used by classifier: " + attributes);
@@ -25,11 +25,23 @@
  */
 package uk.ac.man.jb.pct.mvc.controllers;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import uk.ac.man.jb.pct.classifiers.som.SOMClassifier;
+import uk.ac.man.jb.pct.classifiers.som.Schedule;
 import uk.ac.man.jb.pct.classifiers.som.SelfOrganizingMap;
 import uk.ac.man.jb.pct.data.I_ClassifierStatistics;
 import uk.ac.man.jb.pct.data.I_DataSet;
 import uk.ac.man.jb.pct.data.PatternFileProcessor;
+import uk.ac.man.jb.pct.mvc.Constants;
 import uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData;
 import uk.ac.man.jb.pct.util.Common;
 
@@ -41,6 +53,16 @@ import uk.ac.man.jb.pct.util.Common;
  * Requires: Training set, Validation set, a desired classification accuracy,
  * and path to save the constructed network to.
  * 
+ * Several randomly initialised networks are trained at once, each with its
+ * own seed. Once one meets the desired accuracy the others are cancelled. If
+ * none do, the most accurate network is saved instead. An attempt that fails
+ * is reported and passed over.
+ * 
+ * Optionally each attempt writes a checkpoint every so many epochs, beside the path
+ * the network is to be saved to. If the process dies, training can be carried on
+ * from one of these, as a single attempt. An attempt's checkpoint is deleted once
+ * it has finished training.
+ * 
  * @author Rob Lyon
  */
 public class AutoTrainerController implements I_Controller
@@ -56,6 +78,18 @@ public class AutoTrainerController implements I_Controller
      */
     private I_CommandLineInputData input;
 
+    /**
+     * The most attempts made to generate a network meeting the desired
+     * accuracy, as we don't want to try forever.
+     */
+    private static final int MAX_ATTEMPTS = 100;
+
+    /**
+     * The most patterns whose winners each attempt's map remembers, see
+     * SelfOrganizingMap.setWinnerCacheSize(). None by default.
+     */
+    private int winnerCacheSize = 0;
+
     //*****************************************
     //*****************************************
     //             Constructor
@@ -86,6 +120,8 @@ public class AutoTrainerController implements I_Controller
      */
     public void setParameters(I_CommandLineInputData params) { this.input = params; }
 
+    public void setWinnerCacheSize(int size) { this.winnerCacheSize = size; }
+
     //*****************************************
     //*****************************************
     //               Methods
@@ -123,97 +159,21 @@ public class AutoTrainerController implements I_Controller
 		if(t_data == null | v_data == null)
 		    return;
 
-		// Ok, so to begin with, we havn't achieved
-		// the desired accuracy.
-		boolean accuracyAttained = false;
-
-		// A variable to count the number of attempts
-		// made to automatically generate the neural
-		// network. As we don't want to loop forever,
-		// set an upper limit of 100.
-		int count = 0;
-		
-		// While we haven't attained the desired accuracy...
-		while(!accuracyAttained && count < 100)
-		{
-		    // Build Map
-		    SelfOrganizingMap map = new SelfOrganizingMap(t_data.getDataAsArrayList());
-		    
-		    // How many attributes does the data have?
-		    // Find out and pass this value to the map, so that
-		    // the map can accommodate them.
-		    map.setAttributes(t_data.getColumns());
-		    
-		    // What map width to use? First check if the user
-		    // has specified a map width, else default to 10.
-		    if(this.input.getMapSize() > 1 && this.input.getMapSize() < 25)
-			map.setMapWidth(this.input.getMapSize());
-		    else
-			map.setMapWidth(10); // Default
-
-		    // Normalise Inputs
-		    map.NormalisePatterns();
-
-		    // Build map
-		    map.Build();
-
-		    // Train map
-		    map.Train(map.maximumErrorRate);
-
-		    // Find Clusters of positive pulsar instances in the map
-		    SOMClassifier classifier = new SOMClassifier(map);
-
-		    // If no clusters are found, then something has gone wrong.
-		    // Perhaps the training data has no positive instance?
-		    if(!classifier.locateClusters(t_data))
-		    {
-			System.out.println("No clusters found");
-			break; // Just break and exit.
-		    }
-
-		    // Get the type of classifier the user would like to use.
-		    // 0: Naive KNN, K = 0.
-		    // 1: KNN K = 3 (can be varied)
-		    int classifierChoice = input.getClassifier();
-		    System.out.println("Using classifier: "+classifierChoice);
-		    
-		    // Validate against validation data set
-		    if(classifierChoice < 0)
-			classifier.validate(v_data, 0);
-		    else
-			classifier.validate(v_data, classifierChoice);
-
-		    // Get Statistics
-		    I_ClassifierStatistics stats = classifier.getStatistics();
-
-		    // Now check accuracy of the map based on training
-		    // and validation data. If accuracy sufficient, save map.		    
-		    int accuracy = (int)Math.round( stats.getAccuracy() * 100 );
-		    int desiredAccuracy = (int)input.getDesiredNetworkAccuracy();
-		    int precision = (int)Math.round( stats.getPrecision() * 100 );
-		    
-		    // We want an acuracy equal to or better than the desired accuracy,
-		    // and a precision over 50 percent.
-		    if(accuracy >= desiredAccuracy && precision > 50)
-		    {
-			accuracyAttained = true;
-			System.out.println("Accuracy attained: "+accuracy);
-			System.out.println("Rounded accuracy: " + desiredAccuracy);
-			
-			// Save 
-			Common.fileDelete(input.getNetworkSavePath());
-			
-			if(SOMClassifier.write(classifier,input.getNetworkSavePath()))
-			    System.out.println("Self Organizing Map state persisted.");
-			else
-			    System.out.println("Self Organizing Map state could not be persisted!");
-		    }
-		    else { System.out.println("Current Accuracy: "+accuracy); }
-		    
-		    // Update the count of attempts to build classifier.
-		    count++;
-		}
+		// Normalise the training data once, in place.
+		double[] columnMeans = normalise(t_data);
+
+		SOMClassifier classifier = train(t_data, columnMeans, v_data);
 
+		if (classifier == null)
+		    return;
+
+		// Save 
+		Common.fileDelete(input.getNetworkSavePath());
+
+		if (SOMClassifier.write(classifier, input.getNetworkSavePath()))
+		    System.out.println("Self Organizing Map state persisted.");
+		else
+		    System.out.println("Self Organizing Map state could not be persisted!");
 	    }
 	}
 	else
@@ -221,6 +181,157 @@ public class AutoTrainerController implements I_Controller
 
     }
 
+    /**
+     * Normalises the training data in place, as every map trained on it expects.
+     * @param t_data the training data.
+     * @return the column means the data was normalised by, to be given to each map.
+     */
+    public static double[] normalise(I_DataSet t_data)
+    {
+	SelfOrganizingMap normaliser = new SelfOrganizingMap(t_data.getDataAsArrayList());
+	normaliser.setAttributes(t_data.getColumns());
+	normaliser.NormalisePatterns();
+	return normaliser.getColumnMeans();
+    }
+
+    /**
+     * Trains networks on the training data until one meets the desired accuracy on
+     * the validation data, without reading or writing any files. The training data
+     * is only read, so it may be shared with other trainers running at the same time.
+     * 
+     * @param t_data the training data, already normalised by normalise().
+     * @param columnMeans the column means returned by normalise().
+     * @param v_data the validation data.
+     * @return the first classifier to meet the desired accuracy, else the most
+     * accurate classifier, or null if no classifier could be built.
+     */
+    public SOMClassifier train(I_DataSet t_data, double[] columnMeans, I_DataSet v_data)
+    {
+	// How many attempts to run at once? Values below
+	// one use every available processor. Each attempt
+	// trains its own map on a single thread, but see below.
+	int concurrent = this.input.getThreads() > 0 ? this.input.getThreads() : Runtime.getRuntime().availableProcessors();
+
+	// A linearly initialised map trained by the batch algorithm
+	// uses no random numbers, so every attempt would be the same.
+	int attempts = MAX_ATTEMPTS;
+	boolean resuming = !Common.isEmptyString(input.getResumePath());
+
+	if (resuming)
+	{
+	    attempts = 1;
+	    System.out.println("Resuming training from " + input.getResumePath() + ", making a single attempt");
+	}
+	else if (input.getInitialisation() == Constants.LINEAR_INITIALISATION && input.getTrainingAlgorithm() == Constants.BATCH_TRAINING)
+	{
+	    attempts = 1;
+	    System.out.println("Linear initialisation with batch training is deterministic, making a single attempt");
+	}
+
+	concurrent = Math.min(concurrent, attempts);
+
+	// Hogwild training spreads each attempt over every
+	// thread instead, so the attempts are made one at a time.
+	int mapThreads = 1;
+
+	if (input.getTrainingAlgorithm() == Constants.HOGWILD_TRAINING)
+	{
+	    mapThreads = concurrent;
+	    concurrent = 1;
+	}
+
+	// Each attempt is seeded differently, from a base seed
+	// that is printed so a successful attempt can be repeated.
+	// Random() seeds itself differently every time, even for
+	// trainers started at the same moment.
+	long seed = new Random().nextLong();
+	System.out.println("Running " + attempts + " attempts, " + concurrent + " at a time, from seed " + seed);
+
+	ArrayList<double[]> patterns = t_data.getDataAsArrayList();
+	ArrayList<Attempt> running = new ArrayList<Attempt>();
+	ExecutorService pool = Executors.newFixedThreadPool(concurrent);
+	CompletionService<Attempt> completed = new ExecutorCompletionService<Attempt>(pool);
+
+	for (int i = 0; i < attempts; i++)
+	{
+	    Attempt attempt = new Attempt(i, seed + i, mapThreads, t_data, v_data, patterns, columnMeans);
+
+	    // A resumed attempt carries on writing to the checkpoint it resumed from.
+	    attempt.resume = resuming;
+	    attempt.checkpoint = resuming ? input.getResumePath() : input.getNetworkSavePath() + "." + i + Constants.CHECKPOINT_EXTENSION;
+
+	    running.add(attempt);
+	    completed.submit(attempt);
+	}
+
+	// The attempt that met the target, else the most accurate so far.
+	Attempt best = null;
+	boolean accuracyAttained = false;
+
+	try
+	{
+	    // Collect the attempts as they finish, until one meets the
+	    // target, or every attempt has been made.
+	    for (int i = 0; i < running.size() && !accuracyAttained; i++)
+	    {
+		Attempt attempt;
+
+		// An attempt that failed is no use, but the others may be.
+		try { attempt = completed.take().get(); }
+		catch (ExecutionException e)
+		{
+		    System.out.println("Error: An attempt to train the network failed: " + e.getCause());
+		    continue;
+		}
+
+		// If no clusters are found, then something has gone wrong.
+		// Perhaps the training data has no positive instance?
+		if (!attempt.clustersFound)
+		{
+		    System.out.println("No clusters found");
+		    best = null;
+		    break; // Just stop and exit.
+		}
+
+		if (attempt.classifier == null)
+		    continue; // Cancelled.
+
+		if (best == null || attempt.isBetterThan(best))
+		    best = attempt;
+
+		// We want an acuracy equal to or better than the desired accuracy,
+		// and a precision over 50 percent.
+		if (attempt.accuracy >= (int)input.getDesiredNetworkAccuracy() && attempt.precision > 50)
+		{
+		    accuracyAttained = true;
+		    best = attempt;
+		    System.out.println("Accuracy attained: " + attempt.accuracy + " (attempt " + attempt.number + ", seed " + attempt.seed + ")");
+		    System.out.println("Rounded accuracy: " + (int)input.getDesiredNetworkAccuracy());
+		}
+		else
+		    System.out.println("Current Accuracy: " + attempt.accuracy + ", precision: " + attempt.precision + " (attempt " + attempt.number + ")");
+	    }
+	}
+	catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+	finally
+	{
+	    // Cancel the attempts still queued or running. Those already
+	    // training notice at their next pattern, and return unvalidated.
+	    for (int i = 0; i < running.size(); i++)
+		running.get(i).cancel();
+
+	    pool.shutdown();
+	}
+
+	if (best == null)
+	    return null;
+
+	if (!accuracyAttained)
+	    System.out.println("Desired accuracy not attained, keeping the most accurate classifier: " + best.accuracy + " (attempt " + best.number + ", seed " + best.seed + ")");
+
+	return best.classifier;
+    }
+
     /**
      * This method validates that the variables used by this class
      * are valid.
@@ -268,6 +379,20 @@ public class AutoTrainerController implements I_Controller
 	    return false;
 	}
 
+	// Check the learning rate schedule is one that exists
+	if(input.getSchedule() < Schedule.ORIGINAL || input.getSchedule() > Schedule.INVERSE_TIME)
+	{
+	    System.out.println("Error: Learning rate schedule invalid");
+	    return false;
+	}
+
+	// Check that the checkpoint to resume from, if any, exists.
+	if(!Common.isEmptyString(input.getResumePath()) && !Common.fileExist(input.getResumePath()))
+	{
+	    System.out.println("Error: The checkpoint to resume from does not exist");
+	    return false;
+	}
+
 	// Check that the value of K passed in by the user is valid.
 	if(input.getK() < 1 | input.getK() > 10)
 	{
@@ -278,4 +403,237 @@ public class AutoTrainerController implements I_Controller
 	// If we get here, then all parameters are acceptable.
 	return true;
     }
+
+    //*****************************************
+    //*****************************************
+    //               Attempt
+    //*****************************************
+    //*****************************************
+
+    /**
+     * A single attempt to train a network: build a randomly initialised map,
+     * train it, locate its clusters, and validate the resulting classifier.
+     * Attempts run on the pool's threads, and share the (already normalised)
+     * training and validation data, which they only read.
+     */
+    private class Attempt implements Callable<Attempt>
+    {
+	/**
+	 * The number of the attempt, and the seed its map was built and trained with.
+	 */
+	int number;
+	long seed;
+
+	/**
+	 * The number of threads the map is trained with.
+	 */
+	int threads;
+
+	/**
+	 * The path checkpoints are written to, and whether to resume from it.
+	 */
+	String checkpoint;
+	boolean resume = false;
+
+	/**
+	 * The data shared by every attempt.
+	 */
+	I_DataSet t_data;
+	I_DataSet v_data;
+	ArrayList<double[]> patterns;
+	double[] columnMeans;
+
+	/**
+	 * The map being trained, null until the attempt starts.
+	 */
+	volatile SelfOrganizingMap map;
+
+	/**
+	 * Set once the attempt is no longer needed.
+	 */
+	volatile boolean cancelled = false;
+
+	/**
+	 * The results, classifier is null if the attempt was cancelled.
+	 */
+	SOMClassifier classifier = null;
+	boolean clustersFound = true;
+	int accuracy = 0;
+	int precision = 0;
+
+	Attempt(int n, long s, int th, I_DataSet t, I_DataSet v, ArrayList<double[]> p, double[] means)
+	{
+	    number = n;
+	    seed = s;
+	    threads = th;
+	    t_data = t;
+	    v_data = v;
+	    patterns = p;
+	    columnMeans = means;
+	}
+
+	/**
+	 * Cancels the attempt, stopping its map's training if it has started.
+	 */
+	void cancel()
+	{
+	    cancelled = true;
+
+	    SelfOrganizingMap m = map;
+	    if (m != null)
+		m.cancel();
+	}
+
+	/**
+	 * @param other another attempt.
+	 * @return true if this attempt is more accurate than the other, or as accurate but more precise.
+	 */
+	boolean isBetterThan(Attempt other)
+	{
+	    return accuracy > other.accuracy || (accuracy == other.accuracy && precision > other.precision);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Callable#call()
+	 */
+	public Attempt call()
+	{
+	    if (cancelled)
+		return this;
+
+	    // Build Map
+	    SelfOrganizingMap m = new SelfOrganizingMap(patterns);
+	    m.setSeed(seed);
+
+	    // Publish the map before checking for cancellation again, so
+	    // that a concurrent cancel() either sees the map or is seen here.
+	    map = m;
+	    if (cancelled)
+		return this;
+
+	    // How many attributes does the data have?
+	    // Find out and pass this value to the map, so that
+	    // the map can accommodate them.
+	    m.setAttributes(t_data.getColumns());
+
+	    // What map width to use? First check if the user
+	    // has specified a map width, else default to 10.
+	    if(input.getMapSize() > 1 && input.getMapSize() < 25)
+		m.setMapWidth(input.getMapSize());
+	    else
+		m.setMapWidth(10); // Default
+
+	    // Unless training Hogwild, the attempts are
+	    // already spread over the processors.
+	    m.setThreads(threads);
+
+	    // How far a thread may get ahead during Hogwild training.
+	    if(input.getStaleness() >= 0)
+		m.setMaxStaleness(input.getStaleness());
+
+	    // Neurons with a neighbourhood weight at or below
+	    // this are skipped during online training.
+	    m.setNeighbourhoodThreshold(input.getEpsilon());
+
+	    // Limits on how long online training may run for.
+	    m.setMaxEpochs(input.getMaxEpochs());
+	    m.setMaxTrainingTime(input.getMaxTrainingTime());
+	    m.setPatience(input.getPatience());
+
+	    // How the learning rate and neighbourhood decay.
+	    m.setSchedule(input.getSchedule());
+
+	    // Hold the weights in single precision?
+	    m.setSinglePrecision(input.isSinglePrecision());
+
+	    // Find winning neurons using a search tree once trained?
+	    m.setIndexed(input.isIndexed());
+
+	    // Remember the winners of patterns looked up more than once?
+	    m.setWinnerCacheSize(winnerCacheSize);
+
+	    // The data is already normalised.
+	    m.setColumnMeans(columnMeans);
+
+	    // Carry on from a checkpoint, or build the map, either
+	    // randomly or spread over the first two principal
+	    // components of the data.
+	    if(resume)
+	    {
+		try
+		{
+		    m.Resume(checkpoint);
+		}
+		catch(IOException e)
+		{
+		    System.out.println("Error: Could not resume training from "+checkpoint+": "+e.getMessage());
+		    return this;
+		}
+	    }
+	    else if(input.getInitialisation() == Constants.LINEAR_INITIALISATION)
+		m.BuildLinear();
+	    else
+		m.Build();
+
+	    // Being ordered already, a linearly initialised
+	    // map needs far fewer batch epochs.
+	    if(input.getInitialisation() == Constants.LINEAR_INITIALISATION)
+		m.setBatchEpochs(Constants.LINEAR_BATCH_EPOCHS);
+
+	    // Write a checkpoint every so many epochs?
+	    if(input.getCheckpointInterval() > 0)
+		m.setCheckpoint(checkpoint, input.getCheckpointInterval());
+
+	    // Train map, using the algorithm chosen by the user.
+	    if(input.getTrainingAlgorithm() == Constants.BATCH_TRAINING)
+		m.TrainBatch(m.maximumErrorRate);
+	    else if(input.getTrainingAlgorithm() == Constants.HOGWILD_TRAINING)
+		m.TrainHogwild(m.maximumErrorRate);
+	    else
+		m.Train(m.maximumErrorRate);
+
+	    // Training is over, so its checkpoint is no longer needed.
+	    if(resume || input.getCheckpointInterval() > 0)
+		Common.fileDelete(checkpoint);
+
+	    if (m.isCancelled())
+		return this;
+
+	    // Find Clusters of positive pulsar instances in the map. Its
+	    // random draws of neighbours are seeded as the map was.
+	    SOMClassifier c = new SOMClassifier(m);
+	    c.setSeed(seed);
+
+	    if(!c.locateClusters(t_data))
+	    {
+		clustersFound = false;
+		return this;
+	    }
+
+	    // Get the type of classifier the user would like to use.
+	    // 0: Naive KNN, K = 0.
+	    // 1: KNN K = 3 (can be varied)
+	    int classifierChoice = input.getClassifier();
+	    System.out.println("Using classifier: "+classifierChoice);
+
+	    // Validate against validation data set
+	    if(classifierChoice < 0)
+		c.validate(v_data, 0);
+	    else
+		c.validate(v_data, classifierChoice);
+
+	    // Check that single precision picks the same winning
+	    // neurons on the validation set as double precision would.
+	    if(m.isSinglePrecision())
+		System.out.println("Single precision winner agreement: "+m.checkSinglePrecision(v_data.getDataAsArrayList()));
+
+	    // Get Statistics, based on the validation data.
+	    I_ClassifierStatistics stats = c.getStatistics();
+	    accuracy = (int)Math.round( stats.getAccuracy() * 100 );
+	    precision = (int)Math.round( stats.getPrecision() * 100 );
+	    classifier = c;
+
+	    return this;
+	}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	DistributedTrainerController.java
+ * Package: uk.ac.man.jb.pct.mvc.controllers
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.mvc.controllers;
+
+import java.io.IOException;
+import java.util.Random;
+
+import uk.ac.man.jb.pct.classifiers.som.BatchCoordinator;
+import uk.ac.man.jb.pct.classifiers.som.SOMClassifier;
+import uk.ac.man.jb.pct.classifiers.som.SelfOrganizingMap;
+import uk.ac.man.jb.pct.data.I_DataSet;
+import uk.ac.man.jb.pct.data.PatternFileProcessor;
+import uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData;
+import uk.ac.man.jb.pct.util.Common;
+
+/**
+ * DistributedTrainerController. This class trains a SOM classifier with the batch
+ * algorithm, on training data held by a number of worker processes, each started
+ * with the DistributedWorkerController. It waits for the workers to connect, trains
+ * the map, and saves it.
+ *
+ * The training data never passes through this process, so to locate the clusters
+ * of pulsars in the map a labelled training set must be given here too, which may be
+ * just a representative part of the data the workers hold.
+ *
+ * Requires: The number of workers, and the path to save the trained network to.
+ *
+ * Optional: The port to listen on, map width, number of epochs, a labelled training
+ * set to locate the clusters with, and a validation set used to report the accuracy
+ * of the classifier.
+ *
+ * @author Rob Lyon
+ */
+public class DistributedTrainerController implements I_Controller
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The input parameters provided by the user.
+     */
+    private I_CommandLineInputData input;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Default constructor.
+     */
+    public DistributedTrainerController(I_CommandLineInputData params){ this.input = params; }
+
+    //*****************************************
+    //*****************************************
+    //               Setters
+    //*****************************************
+    //*****************************************
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.controllers.I_Controller#setParameters(uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData)
+     */
+    public void setParameters(I_CommandLineInputData params) { this.input = params; }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.controllers.I_Controller#run()
+     */
+    public void run()
+    {
+	// If there are some user inputs
+	if(input != null)
+	{
+	    // If those parameters are valid
+	    if(this.validateParameters())
+	    {
+		SelfOrganizingMap m = new SelfOrganizingMap();
+
+		// The seed is printed so the map can be trained again.
+		long seed = new Random().nextLong();
+		System.out.println("Seed: "+seed);
+		m.setSeed(seed);
+
+		if(input.getMapSize() > 1)
+		    m.setMapWidth(input.getMapSize());
+		else
+		    m.setMapWidth(10); // Default
+
+		// How many threads to update the map with? Values
+		// below one use every available processor.
+		if(this.input.getThreads() > 0)
+		    m.setThreads(this.input.getThreads());
+		else
+		    m.setThreads(Runtime.getRuntime().availableProcessors());
+
+		if(input.getMaxEpochs() > 0)
+		    m.setBatchEpochs(input.getMaxEpochs());
+
+		m.setSinglePrecision(input.isSinglePrecision());
+		m.setIndexed(input.isIndexed());
+
+		long start = System.currentTimeMillis();
+
+		try
+		{
+		    BatchCoordinator coordinator = new BatchCoordinator(m, input.getPort(), input.getWorkers());
+		    System.out.println("Waiting for "+input.getWorkers()+" workers on port "+coordinator.getPort());
+
+		    int patterns = coordinator.train(m.maximumErrorRate);
+		    System.out.println("Trained on "+patterns+" patterns in "+(System.currentTimeMillis() - start)+" ms");
+		}
+		catch(IOException e)
+		{
+		    System.out.println("Error: Distributed training failed: "+e.getMessage());
+		    return;
+		}
+
+		SOMClassifier classifier = new SOMClassifier(m);
+
+		// Locate the clusters, using labelled data normalised as the workers' was.
+		if(Common.fileExist(this.input.getPathToTrainingFile()))
+		{
+		    I_DataSet t_data = new PatternFileProcessor().process(this.input.getPathToTrainingFile());
+
+		    if(t_data == null || t_data.getColumns() != m.getAttributes())
+		    {
+			System.out.println("Error: The training set does not match the trained map");
+			return;
+		    }
+
+		    for(int r = 0; r < t_data.getRows(); r++)
+			m.NormalisePattern(t_data.getDataRow(r).getData());
+
+		    if(classifier.locateClusters(t_data) && Common.fileExist(this.input.getPathToValidationFile()))
+		    {
+			I_DataSet v_data = new PatternFileProcessor().process(this.input.getPathToValidationFile());
+
+			if(v_data != null)
+			{
+			    int classifierChoice = input.getClassifier();
+			    System.out.println("Using classifier: "+classifierChoice);
+			    classifier.validate(v_data, classifierChoice < 0 ? 0 : classifierChoice);
+			    System.out.println("Accuracy: "+Math.round(classifier.getStatistics().getAccuracy() * 100));
+			}
+		    }
+		}
+		else
+		    System.out.println("No training set given, the clusters have not been located");
+
+		// Save
+		Common.fileDelete(input.getNetworkSavePath());
+
+		if(SOMClassifier.write(classifier,input.getNetworkSavePath()))
+		    System.out.println("Self Organizing Map state persisted.");
+		else
+		    System.out.println("Self Organizing Map state could not be persisted!");
+	    }
+	}
+	else
+	    System.out.println("Error: Command Line input parameters are null");
+    }
+
+    /**
+     * This method validates that the variables used by this class
+     * are valid.
+     * @return true if the variables are valid, else false.
+     */
+    public boolean validateParameters()
+    {
+	// Check the user has asked for at least one worker
+	if(input.getWorkers() < 1)
+	{
+	    System.out.println("Error: Number of workers invalid");
+	    return false;
+	}
+
+	// Check the port is one that can be listened on
+	if(input.getPort() < 0 || input.getPort() > 65535)
+	{
+	    System.out.println("Error: Port invalid");
+	    return false;
+	}
+
+	// Check the user has provided a path to which the trained neural network can be saved
+	if(!Common.isPathValid(this.input.getNetworkSavePath()))
+	{
+	    System.out.println("Error: The path to save the trained netork to is invalid");
+	    return false;
+	}
+
+	return true;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	DistributedWorkerController.java
+ * Package: uk.ac.man.jb.pct.mvc.controllers
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.mvc.controllers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import uk.ac.man.jb.pct.classifiers.som.BatchWorker;
+import uk.ac.man.jb.pct.data.I_DataSet;
+import uk.ac.man.jb.pct.data.PatternFileProcessor;
+import uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData;
+import uk.ac.man.jb.pct.util.Common;
+
+/**
+ * DistributedWorkerController. This class holds a share of the training data of a
+ * SOM classifier being trained by the DistributedTrainerController, and works for
+ * it until training is finished. Start one for each share of the training data.
+ *
+ * Requires: The coordinator's host and port, as host:port, and the training set to
+ * work on, either a single pattern file or a directory of pattern files.
+ *
+ * Optional: The number of threads to work with.
+ *
+ * @author Rob Lyon
+ */
+public class DistributedWorkerController implements I_Controller
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The input parameters provided by the user.
+     */
+    private I_CommandLineInputData input;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Default constructor.
+     */
+    public DistributedWorkerController(I_CommandLineInputData params){ this.input = params; }
+
+    //*****************************************
+    //*****************************************
+    //               Setters
+    //*****************************************
+    //*****************************************
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.controllers.I_Controller#setParameters(uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData)
+     */
+    public void setParameters(I_CommandLineInputData params) { this.input = params; }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.controllers.I_Controller#run()
+     */
+    public void run()
+    {
+	// If there are some user inputs
+	if(input != null)
+	{
+	    // If those parameters are valid
+	    if(this.validateParameters())
+	    {
+		// Gather this worker's share of the data.
+		String path = this.input.getPathToTrainingFile();
+		String[] files = Common.isDirectory(path) ? Common.getFilePaths(path, ".pat") : new String[] { path };
+		ArrayList<double[]> data = new ArrayList<double[]>();
+
+		for(int i = 0; files != null && i < files.length; i++)
+		{
+		    I_DataSet t_data = new PatternFileProcessor().process(files[i]);
+
+		    if(t_data == null)
+		    {
+			System.out.println("Error: Could not read "+files[i]);
+			return;
+		    }
+
+		    data.addAll(t_data.getDataAsArrayList());
+		}
+
+		if(data.isEmpty())
+		{
+		    System.out.println("Error: No training data to work on");
+		    return;
+		}
+
+		System.out.println("Training Data Rows:"+data.size());
+
+		String coordinator = input.getCoordinator();
+		int separator = coordinator.lastIndexOf(':');
+
+		BatchWorker worker = new BatchWorker(data);
+
+		if(this.input.getThreads() > 0)
+		    worker.setThreads(this.input.getThreads());
+		else
+		    worker.setThreads(Runtime.getRuntime().availableProcessors());
+
+		try
+		{
+		    int epochs = worker.run(coordinator.substring(0, separator), Integer.parseInt(coordinator.substring(separator + 1)));
+		    System.out.println("Worked for "+epochs+" epochs");
+		}
+		catch(IOException e)
+		{
+		    System.out.println("Error: Could not work for the coordinator: "+e.getMessage());
+		}
+	    }
+	}
+	else
+	    System.out.println("Error: Command Line input parameters are null");
+    }
+
+    /**
+     * This method validates that the variables used by this class
+     * are valid.
+     * @return true if the variables are valid, else false.
+     */
+    public boolean validateParameters()
+    {
+	// Check the coordinator is given as host:port
+	String coordinator = input.getCoordinator();
+	int separator = coordinator.lastIndexOf(':');
+
+	try
+	{
+	    if(separator < 1 || Integer.parseInt(coordinator.substring(separator + 1)) < 1)
+		throw new NumberFormatException();
+	}
+	catch(NumberFormatException nfe)
+	{
+	    System.out.println("Error: The coordinator should be given as host:port");
+	    return false;
+	}
+
+	// Check the user has passed in a training set, or a directory of them
+	if(!Common.fileExist(this.input.getPathToTrainingFile()) && !Common.isDirectory(this.input.getPathToTrainingFile()))
+	{
+	    System.out.println("Error: Training Set invalid");
+	    return false;
+	}
+
+	return true;
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	IncrementalTrainerController.java
+ * Package: uk.ac.man.jb.pct.mvc.controllers
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.mvc.controllers;
+
+import uk.ac.man.jb.pct.classifiers.som.SOMClassifier;
+import uk.ac.man.jb.pct.data.I_DataSet;
+import uk.ac.man.jb.pct.data.PatternFileProcessor;
+import uk.ac.man.jb.pct.mvc.Constants;
+import uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData;
+import uk.ac.man.jb.pct.util.Common;
+
+/**
+ * IncrementalTrainerController. This class updates a SOM classifier, previously
+ * constructed using the AutoTrainerController class, with newly labelled data.
+ * Rather than building a new map, the existing map is refined on the new data
+ * alone for a bounded number of steps, and the new data is added to the clusters
+ * the classifier already knows about.
+ * 
+ * Requires: Path to a previously saved neural network, a training set containing
+ * only the new data, the number of training steps to make, and the path to save
+ * the updated network to.
+ * 
+ * Optional: Validation set, used to report the accuracy of the updated network.
+ * 
+ * @author Rob Lyon
+ */
+public class IncrementalTrainerController implements I_Controller
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The input parameters provided by the user.
+     */
+    private I_CommandLineInputData input;
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Default constructor.
+     */
+    public IncrementalTrainerController(I_CommandLineInputData params){ this.input = params; }
+
+    //*****************************************
+    //*****************************************
+    //               Setters
+    //*****************************************
+    //*****************************************
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.controllers.I_Controller#setParameters(uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData)
+     */
+    public void setParameters(I_CommandLineInputData params) { this.input = params; }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.controllers.I_Controller#run()
+     */
+    public void run()
+    {
+	// If there are some user inputs
+	if(input != null)
+	{
+	    // If those parameters are valid
+	    if(this.validateParameters())
+	    {
+		// Load the existing classifier.
+		SOMClassifier classifier = (SOMClassifier)SOMClassifier.read(input.getPathToSavedNetwork());
+
+		if(classifier == null)
+		{
+		    System.out.println("Error: The neural network could not be loaded");
+		    return;
+		}
+
+		// Get the new data.
+		I_DataSet t_data = new PatternFileProcessor().process(this.input.getPathToTrainingFile());
+
+		// Major error if we return at this stage. This
+		// means that the new data can't be read, or is
+		// just plain invalid.
+		if(t_data == null)
+		    return;
+
+		System.out.println("New Data Rows:"+t_data.getRows());
+		System.out.println("New Data Cols:"+t_data.getColumns());
+
+		if(t_data.getColumns() != classifier.getMap().getAttributes())
+		{
+		    System.out.println("This map cannot be updated with this data - parameter mismatch.");
+		    return;
+		}
+
+		// How many threads to train with? Values below
+		// one use every available processor.
+		if(this.input.getThreads() > 0)
+		    classifier.getMap().setThreads(this.input.getThreads());
+		else
+		    classifier.getMap().setThreads(Runtime.getRuntime().availableProcessors());
+
+		long start = System.currentTimeMillis();
+
+		if(!classifier.updateClusters(t_data, input.getUpdateSteps(), Constants.INCREMENTAL_LEARNING_RATE))
+		{
+		    System.out.println("Error: The neural network has no clusters to update");
+		    return;
+		}
+
+		System.out.println("Updated in "+(System.currentTimeMillis() - start)+" ms");
+
+		// If the user supplied validation data, report
+		// the accuracy of the updated classifier.
+		if(Common.fileExist(this.input.getPathToValidationFile()))
+		{
+		    I_DataSet v_data = new PatternFileProcessor().process(this.input.getPathToValidationFile());
+
+		    if(v_data != null)
+		    {
+			int classifierChoice = input.getClassifier();
+			System.out.println("Using classifier: "+classifierChoice);
+
+			if(classifierChoice < 0)
+			    classifier.validate(v_data, 0);
+			else
+			    classifier.validate(v_data, classifierChoice);
+
+			System.out.println("Accuracy: "+Math.round(classifier.getStatistics().getAccuracy() * 100));
+		    }
+		}
+
+		// Save 
+		Common.fileDelete(input.getNetworkSavePath());
+
+		if(SOMClassifier.write(classifier,input.getNetworkSavePath()))
+		    System.out.println("Self Organizing Map state persisted.");
+		else
+		    System.out.println("Self Organizing Map state could not be persisted!");
+	    }
+	}
+	else
+	    System.out.println("Error: Command Line input parameters are null");
+    }
+
+    /**
+     * This method validates that the variables used by this class
+     * are valid.
+     * @return true if the variables are valid, else false.
+     */
+    public boolean validateParameters()
+    {
+	// Check the path to an existing neural network
+	// points to a real file.
+	if(!Common.fileExist(this.input.getPathToSavedNetwork()))
+	{
+	    System.out.println("Error: Invalid neural network file");
+	    return false;
+	}
+
+	// Check the user has passed in a training set
+	if(!Common.isPathValid(this.input.getPathToTrainingFile()) | 
+		!Common.fileExist(this.input.getPathToTrainingFile()))
+	{
+	    System.out.println("Error: Training Set invalid");
+	    return false;
+	}
+
+	// Check the user has asked for some training steps
+	if(input.getUpdateSteps() < 1)
+	{
+	    System.out.println("Error: Number of update steps invalid");
+	    return false;
+	}
+
+	// Check the user has provided a path to which the updated neural network can be saved
+	if(!Common.isPathValid(this.input.getNetworkSavePath()))
+	{
+	    System.out.println("Error: The path to save the updated netork to is invalid");
+	    return false;
+	}
+
+	return true;
+    }
+}
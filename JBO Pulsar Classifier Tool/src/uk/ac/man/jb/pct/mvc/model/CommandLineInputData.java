@@ -118,6 +118,91 @@ public class CommandLineInputData implements I_CommandLineInputData
      */
     int k = 3;
 
+    /**
+     * The number of threads used to train a neural network.
+     */
+    int threads = 1;
+
+    /**
+     * The algorithm used to train a neural network.
+     */
+    int trainingAlgorithm = Constants.ONLINE_TRAINING;
+
+    /**
+     * The neighbourhood weight at or below which neurons are not updated during training.
+     */
+    double epsilon = 0;
+
+    /**
+     * The maximum number of passes made over the training data.
+     */
+    int maxEpochs = 0;
+
+    /**
+     * The maximum time to train for, in seconds.
+     */
+    int maxTrainingTime = 0;
+
+    /**
+     * The number of passes without improvement after which training stops.
+     */
+    int patience = 0;
+
+    /**
+     * True if the neural network holds its weights in single precision.
+     */
+    boolean singlePrecision = false;
+
+    /**
+     * The number of steps to train for when updating an existing neural network.
+     */
+    int updateSteps = -1;
+
+    /**
+     * True if the neural network finds winning neurons using a search tree.
+     */
+    boolean indexed = false;
+
+    /**
+     * The way the neural network's weights are initialised before training.
+     */
+    int initialisation = Constants.RANDOM_INITIALISATION;
+
+    /**
+     * The most mini-batches a thread may get ahead of the others by during Hogwild training, -1 for the default.
+     */
+    int staleness = -1;
+
+    /**
+     * The number of worker processes to train a neural network with.
+     */
+    int workers = 0;
+
+    /**
+     * The port the coordinator of the worker processes listens on.
+     */
+    int port = Constants.DEFAULT_PORT;
+
+    /**
+     * The host and port of the coordinator to work for, as host:port.
+     */
+    String coordinator = "";
+
+    /**
+     * The number of epochs between training checkpoints, zero for none.
+     */
+    int checkpointInterval = 0;
+
+    /**
+     * The path of the training checkpoint to resume from.
+     */
+    String resumePath = "";
+
+    /**
+     * How the learning rate and neighbourhood decay during online training.
+     */
+    int schedule = 0;
+
     /**
      * Any extra parameters not expected or pre-defined.
      */
@@ -285,6 +370,176 @@ public class CommandLineInputData implements I_CommandLineInputData
      */
     public int getK() { return this.k; }
 
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setThreads(int)
+     */
+    public void setThreads(int i) { this.threads = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getThreads()
+     */
+    public int getThreads() { return this.threads; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setTrainingAlgorithm(int)
+     */
+    public void setTrainingAlgorithm(int i) { this.trainingAlgorithm = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getTrainingAlgorithm()
+     */
+    public int getTrainingAlgorithm() { return this.trainingAlgorithm; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setEpsilon(double)
+     */
+    public void setEpsilon(double e) { this.epsilon = e; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getEpsilon()
+     */
+    public double getEpsilon() { return this.epsilon; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setMaxEpochs(int)
+     */
+    public void setMaxEpochs(int i) { this.maxEpochs = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getMaxEpochs()
+     */
+    public int getMaxEpochs() { return this.maxEpochs; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setMaxTrainingTime(int)
+     */
+    public void setMaxTrainingTime(int i) { this.maxTrainingTime = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getMaxTrainingTime()
+     */
+    public int getMaxTrainingTime() { return this.maxTrainingTime; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setPatience(int)
+     */
+    public void setPatience(int i) { this.patience = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getPatience()
+     */
+    public int getPatience() { return this.patience; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setSinglePrecision(boolean)
+     */
+    public void setSinglePrecision(boolean b) { this.singlePrecision = b; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#isSinglePrecision()
+     */
+    public boolean isSinglePrecision() { return this.singlePrecision; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setUpdateSteps(int)
+     */
+    public void setUpdateSteps(int i) { this.updateSteps = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getUpdateSteps()
+     */
+    public int getUpdateSteps() { return this.updateSteps; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setIndexed(boolean)
+     */
+    public void setIndexed(boolean b) { this.indexed = b; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#isIndexed()
+     */
+    public boolean isIndexed() { return this.indexed; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setInitialisation(int)
+     */
+    public void setInitialisation(int i) { this.initialisation = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getInitialisation()
+     */
+    public int getInitialisation() { return this.initialisation; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setStaleness(int)
+     */
+    public void setStaleness(int i) { this.staleness = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getStaleness()
+     */
+    public int getStaleness() { return this.staleness; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setWorkers(int)
+     */
+    public void setWorkers(int i) { this.workers = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getWorkers()
+     */
+    public int getWorkers() { return this.workers; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setPort(int)
+     */
+    public void setPort(int i) { this.port = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getPort()
+     */
+    public int getPort() { return this.port; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setCoordinator(java.lang.String)
+     */
+    public void setCoordinator(String s) { this.coordinator = s; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getCoordinator()
+     */
+    public String getCoordinator() { return this.coordinator; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setCheckpointInterval(int)
+     */
+    public void setCheckpointInterval(int i) { this.checkpointInterval = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getCheckpointInterval()
+     */
+    public int getCheckpointInterval() { return this.checkpointInterval; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setResumePath(java.lang.String)
+     */
+    public void setResumePath(String s) { this.resumePath = s; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getResumePath()
+     */
+    public String getResumePath() { return this.resumePath; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#setSchedule(int)
+     */
+    public void setSchedule(int i) { this.schedule = i; }
+
+    /* (non-Javadoc)
+     * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getSchedule()
+     */
+    public int getSchedule() { return this.schedule; }
+
     /* (non-Javadoc)
      * @see uk.ac.man.jb.pct.mvc.model.I_CommandLineInputData#getExtraParams()
      */
@@ -359,11 +614,14 @@ public class CommandLineInputData implements I_CommandLineInputData
      */   
     public String getActionPossibleFromInputs()
     {
-	// There are four possible automation cases:
+	// There are six possible automation cases:
 	//
 	// 1. User wants to train a network automatically
 	// 2. User wants to classify data.
 	// 3. User wants to tests the classifier
+	// 4. User wants to update a network with new data
+	// 5. User wants to train a network with worker processes
+	// 6. User wants to be one of those worker processes
 	//
 	// Each of these cases requires slightly different inputs, so this method
 	// must ascertain if the application has been provided with enough information 
@@ -372,6 +630,34 @@ public class CommandLineInputData implements I_CommandLineInputData
 	// We will try to derive which action the user wants to take by inferring
 	// from the input available the users intention.
 
+	// Case 4: Updating an existing network with new data. Checked first,
+	//         as asking for update steps makes the intention clear.
+	//
+	// Requires: Path to a previously saved neural network, training set 
+	//           containing the new data, the number of update steps,
+	//           and path to save the updated network to.
+	// Optional: Validation set, type of classifier to use.
+
+	if(!StringOps.isAStringsEmpty(this.pathToSavedNetwork,this.trainingSetPath,this.saveNeuralNetworkToPath) && this.updateSteps > 0)
+	    return Constants.INCREMENTAL_TRAINING;
+
+	// Case 6: Working for a coordinator, on a share of the training data.
+	//
+	// Requires: The coordinator's host and port, and the training set (a file,
+	//           or a directory of pattern files) to work on.
+
+	if(!StringOps.isAStringsEmpty(this.coordinator,this.trainingSetPath))
+	    return Constants.DISTRIBUTED_WORKER;
+
+	// Case 5: Coordinating worker processes that hold the training data.
+	//
+	// Requires: The number of workers, and path to save the constructed network to.
+	// Optional: A labelled training set to locate the clusters with, a
+	//           validation set, type of classifier to use.
+
+	if(!StringOps.isAStringsEmpty(this.saveNeuralNetworkToPath) && this.workers > 0)
+	    return Constants.DISTRIBUTED_TRAINING;
+
 	// Case 1: Training the network automatically.
 	//
 	// Requires: Training set, Validation set, a desired classification accuracy, 
@@ -492,6 +778,126 @@ public class CommandLineInputData implements I_CommandLineInputData
 	    }
 	    catch(NumberFormatException nfe){ this.setTests(-1); }
 	}
+	else if(arg.startsWith(Constants.THREADS_FLAG) || arg.startsWith(Constants.THREADS_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setThreads(Integer.parseInt(StringOps.trimArgument(arg, Constants.THREADS_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setThreads(1); }
+	}
+	else if(arg.startsWith(Constants.TRAINING_FLAG) || arg.startsWith(Constants.TRAINING_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setTrainingAlgorithm(Integer.parseInt(StringOps.trimArgument(arg, Constants.TRAINING_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setTrainingAlgorithm(Constants.ONLINE_TRAINING); }
+	}
+	else if(arg.startsWith(Constants.EPSILON_FLAG) || arg.startsWith(Constants.EPSILON_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setEpsilon(Double.parseDouble(StringOps.trimArgument(arg, Constants.EPSILON_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setEpsilon(0); }
+	}
+	else if(arg.startsWith(Constants.EPOCHS_FLAG) || arg.startsWith(Constants.EPOCHS_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setMaxEpochs(Integer.parseInt(StringOps.trimArgument(arg, Constants.EPOCHS_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setMaxEpochs(0); }
+	}
+	else if(arg.startsWith(Constants.TIME_FLAG) || arg.startsWith(Constants.TIME_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setMaxTrainingTime(Integer.parseInt(StringOps.trimArgument(arg, Constants.TIME_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setMaxTrainingTime(0); }
+	}
+	else if(arg.startsWith(Constants.PATIENCE_FLAG) || arg.startsWith(Constants.PATIENCE_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setPatience(Integer.parseInt(StringOps.trimArgument(arg, Constants.PATIENCE_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setPatience(0); }
+	}
+	else if(arg.startsWith(Constants.PRECISION_FLAG) || arg.startsWith(Constants.PRECISION_FLAG.toUpperCase()))
+	{
+	    this.setSinglePrecision(StringOps.trimArgument(arg, Constants.PRECISION_FLAG).trim().equals("32"));
+	}
+	else if(arg.startsWith(Constants.UPDATE_FLAG) || arg.startsWith(Constants.UPDATE_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setUpdateSteps(Integer.parseInt(StringOps.trimArgument(arg, Constants.UPDATE_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setUpdateSteps(-1); }
+	}
+	else if(arg.startsWith(Constants.INDEX_FLAG) || arg.startsWith(Constants.INDEX_FLAG.toUpperCase()))
+	{
+	    this.setIndexed(StringOps.trimArgument(arg, Constants.INDEX_FLAG).trim().equals("1"));
+	}
+	else if(arg.startsWith(Constants.INITIALISATION_FLAG) || arg.startsWith(Constants.INITIALISATION_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setInitialisation(Integer.parseInt(StringOps.trimArgument(arg, Constants.INITIALISATION_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setInitialisation(Constants.RANDOM_INITIALISATION); }
+	}
+	else if(arg.startsWith(Constants.STALENESS_FLAG) || arg.startsWith(Constants.STALENESS_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setStaleness(Integer.parseInt(StringOps.trimArgument(arg, Constants.STALENESS_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setStaleness(-1); }
+	}
+	else if(arg.startsWith(Constants.WORKERS_FLAG) || arg.startsWith(Constants.WORKERS_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setWorkers(Integer.parseInt(StringOps.trimArgument(arg, Constants.WORKERS_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setWorkers(0); }
+	}
+	else if(arg.startsWith(Constants.PORT_FLAG) || arg.startsWith(Constants.PORT_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setPort(Integer.parseInt(StringOps.trimArgument(arg, Constants.PORT_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setPort(Constants.DEFAULT_PORT); }
+	}
+	else if(arg.startsWith(Constants.COORDINATOR_FLAG) || arg.startsWith(Constants.COORDINATOR_FLAG.toUpperCase()))
+	{
+	    this.setCoordinator(StringOps.trimArgument(arg, Constants.COORDINATOR_FLAG).trim());
+	}
+	else if(arg.startsWith(Constants.CHECKPOINT_FLAG) || arg.startsWith(Constants.CHECKPOINT_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setCheckpointInterval(Integer.parseInt(StringOps.trimArgument(arg, Constants.CHECKPOINT_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setCheckpointInterval(0); }
+	}
+	else if(arg.startsWith(Constants.RESUME_FLAG) || arg.startsWith(Constants.RESUME_FLAG.toUpperCase()))
+	{
+	    this.setResumePath(StringOps.trimArgument(arg, Constants.RESUME_FLAG));
+	}
+	else if(arg.startsWith(Constants.SCHEDULE_FLAG) || arg.startsWith(Constants.SCHEDULE_FLAG.toUpperCase()))
+	{
+	    try
+	    {
+		this.setSchedule(Integer.parseInt(StringOps.trimArgument(arg, Constants.SCHEDULE_FLAG)));
+	    }
+	    catch(NumberFormatException nfe){ this.setSchedule(0); }
+	}
 	else { this.extraParams.add(arg); } // Process any extra parameters not expected later.
     }
 
@@ -514,6 +920,23 @@ public class CommandLineInputData implements I_CommandLineInputData
 		"Desired accuracy: "+this.desiredAccuracy+ "\n"+
 		"Classifier: "+this.classifier+ "\n"+
 		"Tests: "+this.tests+ "\n"+
-		"K Vlaue: "+this.k + "\n";
+		"K Vlaue: "+this.k + "\n"+
+		"Threads: "+this.threads + "\n"+
+		"Training algorithm: "+this.trainingAlgorithm + "\n"+
+		"Epsilon: "+this.epsilon + "\n"+
+		"Max epochs: "+this.maxEpochs + "\n"+
+		"Max training time: "+this.maxTrainingTime + "\n"+
+		"Patience: "+this.patience + "\n"+
+		"Single precision: "+this.singlePrecision + "\n"+
+		"Update steps: "+this.updateSteps + "\n"+
+		"Indexed: "+this.indexed + "\n"+
+		"Initialisation: "+this.initialisation + "\n"+
+		"Staleness: "+this.staleness + "\n"+
+		"Workers: "+this.workers + "\n"+
+		"Port: "+this.port + "\n"+
+		"Coordinator: "+this.coordinator + "\n"+
+		"Checkpoint interval: "+this.checkpointInterval + "\n"+
+		"Resume from: "+this.resumePath + "\n"+
+		"Schedule: "+this.schedule + "\n";
     }
 }
@@ -214,6 +214,193 @@ public interface I_CommandLineInputData
      */
     public int getK();
     
+    /**
+     * Sets the number of threads used to train a neural network.
+     * @param i the number of threads, values below one use every available processor.
+     */
+    public void setThreads(int i);
+    
+    /**
+     * @return the number of threads used to train a neural network.
+     */
+    public int getThreads();
+    
+    /**
+     * Sets the algorithm used to train a neural network.
+     * @param i the algorithm, 0 for online training, 1 for batch training, 2 for Hogwild training.
+     */
+    public void setTrainingAlgorithm(int i);
+    
+    /**
+     * @return the algorithm used to train a neural network.
+     */
+    public int getTrainingAlgorithm();
+    
+    /**
+     * Sets the neighbourhood weight at or below which neurons are not updated during training.
+     * @param e the neighbourhood weight, zero or less updates the whole map.
+     */
+    public void setEpsilon(double e);
+    
+    /**
+     * @return the neighbourhood weight at or below which neurons are not updated during training.
+     */
+    public double getEpsilon();
+    
+    /**
+     * Sets the maximum number of passes made over the training data.
+     * @param i the maximum number of passes, zero for no limit.
+     */
+    public void setMaxEpochs(int i);
+    
+    /**
+     * @return the maximum number of passes made over the training data.
+     */
+    public int getMaxEpochs();
+    
+    /**
+     * Sets the maximum time to train for.
+     * @param i the maximum time in seconds, zero for no limit.
+     */
+    public void setMaxTrainingTime(int i);
+    
+    /**
+     * @return the maximum time to train for, in seconds.
+     */
+    public int getMaxTrainingTime();
+    
+    /**
+     * Sets the number of passes over the training data without improvement after which training stops.
+     * @param i the number of passes, zero to never stop early.
+     */
+    public void setPatience(int i);
+    
+    /**
+     * @return the number of passes over the training data without improvement after which training stops.
+     */
+    public int getPatience();
+    
+    /**
+     * Sets whether the neural network holds its weights in single precision.
+     * @param b true for single (32 bit) precision, false for double (64 bit) precision.
+     */
+    public void setSinglePrecision(boolean b);
+    
+    /**
+     * @return true if the neural network holds its weights in single precision.
+     */
+    public boolean isSinglePrecision();
+    
+    /**
+     * Sets the number of steps to train for when updating an existing neural network.
+     * @param i the number of steps.
+     */
+    public void setUpdateSteps(int i);
+    
+    /**
+     * @return the number of steps to train for when updating an existing neural network.
+     */
+    public int getUpdateSteps();
+    
+    /**
+     * Sets whether the neural network finds winning neurons using a search tree.
+     * @param b true to use a search tree, false to compare every neuron.
+     */
+    public void setIndexed(boolean b);
+    
+    /**
+     * @return true if the neural network finds winning neurons using a search tree.
+     */
+    public boolean isIndexed();
+    
+    /**
+     * Sets the way the neural network's weights are initialised before training.
+     * @param i the method, 0 for random initialisation, 1 for linear initialisation.
+     */
+    public void setInitialisation(int i);
+    
+    /**
+     * @return the way the neural network's weights are initialised before training.
+     */
+    public int getInitialisation();
+    
+    /**
+     * Sets the most mini-batches a thread may get ahead of the others by during Hogwild training.
+     * @param i the number of mini-batches.
+     */
+    public void setStaleness(int i);
+    
+    /**
+     * @return the most mini-batches a thread may get ahead of the others by during Hogwild training.
+     */
+    public int getStaleness();
+    
+    /**
+     * Sets the number of worker processes to train the neural network with.
+     * @param i the number of workers.
+     */
+    public void setWorkers(int i);
+    
+    /**
+     * @return the number of worker processes to train the neural network with.
+     */
+    public int getWorkers();
+    
+    /**
+     * Sets the port the coordinator of the worker processes listens on.
+     * @param i the port.
+     */
+    public void setPort(int i);
+    
+    /**
+     * @return the port the coordinator of the worker processes listens on.
+     */
+    public int getPort();
+    
+    /**
+     * Sets the host and port of the coordinator to work for.
+     * @param s the host and port, as host:port.
+     */
+    public void setCoordinator(String s);
+    
+    /**
+     * @return the host and port of the coordinator to work for, as host:port.
+     */
+    public String getCoordinator();
+    
+    /**
+     * Sets the number of epochs between training checkpoints.
+     * @param i the number of epochs, zero for no checkpoints.
+     */
+    public void setCheckpointInterval(int i);
+    
+    /**
+     * @return the number of epochs between training checkpoints, zero for none.
+     */
+    public int getCheckpointInterval();
+    
+    /**
+     * Sets the path of the training checkpoint to resume from.
+     * @param s the path.
+     */
+    public void setResumePath(String s);
+    
+    /**
+     * @return the path of the training checkpoint to resume from.
+     */
+    public String getResumePath();
+    
+    /**
+     * Sets how the learning rate and neighbourhood decay during online training.
+     * @param i 0 for the original algorithm, 1 exponential, 2 linear, 3 inverse time.
+     */
+    public void setSchedule(int i);
+    
+    /**
+     * @return how the learning rate and neighbourhood decay during online training.
+     */
+    public int getSchedule();
+    
     /**
      * @return the extra parameters passed to the application which aren't pre-defined.
      */
@@ -0,0 +1,398 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	Benchmarks.java
+ * Package: uk.ac.man.jb.pct.test
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import uk.ac.man.jb.pct.classifiers.som.DistanceKernel;
+import uk.ac.man.jb.pct.classifiers.som.SelfOrganizingMap;
+
+/**
+ * Benchmarks.
+ * 
+ * Times the winning neuron search of the self organising map on random data, at the
+ * map sizes used by the tool, comparing the scalar and unrolled distance kernels.
+ * Then compares the linear scan with the search tree used by indexed maps, on maps
+ * from 10x10 up to 200x200, to find the map width at which the tree starts to pay off.
+ * Then times online training shared out by bands of map rows, against the number of
+ * threads. Finally compares online training with Hogwild training on a growing number
+ * of threads, for speed, and for the quantization error of held out patterns on the
+ * trained maps.
+ * Run as an application, the results are printed to the console.
+ * 
+ * @author Rob Lyon
+ */
+public class Benchmarks
+{
+    //*****************************************
+    //*****************************************
+    //               Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The number of attributes in each pattern, as in the pulsar candidate data.
+     */
+    private static final int ATTRIBUTES = 22;
+
+    /**
+     * The number of patterns searched for in each timed run.
+     */
+    private static final int PATTERNS = 2000;
+
+    /**
+     * The number of timed runs, the fastest is reported.
+     */
+    private static final int RUNS = 7;
+
+    /**
+     * Stops the JIT discarding the searches as dead code.
+     */
+    private static long sink = 0;
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Runs the benchmarks.
+     * @param args unused.
+     */
+    public static void main(String[] args)
+    {
+	kernels();
+	index();
+	bands();
+	hogwild();
+
+	if (sink == 42)
+	    System.out.println();
+    }
+
+    /**
+     * Compares the scalar and unrolled distance kernels.
+     */
+    private static void kernels()
+    {
+	int[] widths = {5, 10, 13, 16, 20, 24};
+
+	System.out.println("Map width,Scalar (ns per search),Unrolled (ns per search),Speedup");
+
+	for (int w : widths)
+	{
+	    Random r = new Random(w);
+	    double[] codebook = randomArray(r, w * w * ATTRIBUTES);
+	    double[][] patterns = new double[PATTERNS][];
+
+	    for (int i = 0; i < PATTERNS; i++)
+		patterns[i] = randomArray(r, ATTRIBUTES);
+
+	    double scalar = time(false, codebook, w * w, patterns);
+	    double unrolled = time(true, codebook, w * w, patterns);
+
+	    System.out.println(w + "," + Math.round(scalar) + "," + Math.round(unrolled) + "," + Math.round((scalar / unrolled) * 100) / 100.0);
+	}
+    }
+
+    /**
+     * Compares the linear scan with the search tree, on trained maps. A tree can't
+     * do better than a linear scan on uniformly random weights, so the maps are
+     * trained (briefly, with the batch algorithm) on patterns that, like the pulsar
+     * candidate data, have correlated attributes: random points in three dimensions,
+     * mapped linearly into 22, plus a little noise.
+     */
+    private static void index()
+    {
+	int[] widths = {10, 15, 20, 30, 50, 75, 100, 150, 200};
+
+	System.out.println();
+	System.out.println("Map width,Linear scan (ns per search),Tree (ns per search),Speedup,Tree build (ms)");
+
+	Random r = new Random(1);
+	double[] mixing = randomArray(r, ATTRIBUTES * 3);
+	ArrayList<double[]> training = correlatedPatterns(r, mixing, PATTERNS);
+	double[][] patterns = correlatedPatterns(r, mixing, PATTERNS).toArray(new double[PATTERNS][]);
+
+	for (int w : widths)
+	{
+	    SelfOrganizingMap map = new SelfOrganizingMap(training);
+	    map.setAttributes(ATTRIBUTES);
+	    map.setMapWidth(w);
+	    map.setSeed(w);
+	    map.setBatchEpochs(5);
+	    map.Build();
+	    map.TrainBatch(0);
+
+	    double linear = time(map, patterns);
+
+	    map.setIndexed(true);
+	    long start = System.nanoTime();
+	    map.getWinningIndex(patterns[0]); // Builds the tree.
+	    double build = (System.nanoTime() - start) / 1e6;
+
+	    double tree = time(map, patterns);
+
+	    System.out.println(w + "," + Math.round(linear) + "," + Math.round(tree) + "," + Math.round((linear / tree) * 100) / 100.0 + "," + Math.round(build));
+	}
+    }
+
+    /**
+     * Times online training with Train() on a growing number of threads, each
+     * training step being shared out by bands of map rows. The maps trained are
+     * the same whatever the number of threads, so only the time is reported.
+     */
+    private static void bands()
+    {
+	int[] threads = {1, 2, 4, 8};
+	int[] widths = {10, 20, 40};
+
+	System.out.println();
+	System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+	System.out.println("Map width,Threads,Train (ms),Speedup");
+
+	Random r = new Random(3);
+	double[] mixing = randomArray(r, ATTRIBUTES * 3);
+	ArrayList<double[]> training = correlatedPatterns(r, mixing, PATTERNS);
+
+	// Warm up, so the first times reported aren't those of interpreted code.
+	for (int t : threads)
+	    trainOnline(training, training, widths[widths.length - 1], 2, t, false);
+
+	for (int w : widths)
+	{
+	    double sequential = 0;
+
+	    for (int t : threads)
+	    {
+		double millis = Double.MAX_VALUE;
+
+		for (int run = 0; run < 3; run++)
+		    millis = Math.min(millis, trainOnline(training, training, w, 2, t, false)[0]);
+
+		if (t == 1)
+		    sequential = millis;
+
+		System.out.println(w + "," + t + "," + Math.round(millis) + "," + Math.round((sequential / millis) * 100) / 100.0);
+	    }
+	}
+    }
+
+    /**
+     * Compares sequential online training with Hogwild training, on the same
+     * correlated patterns as index(). The quantization error of held out
+     * patterns is reported relative to that of the sequentially trained map,
+     * as Hogwild training trades exact reproducibility for speed.
+     */
+    private static void hogwild()
+    {
+	int[] threads = {1, 2, 4, 8};
+	int width = 20, epochs = 5;
+
+	System.out.println();
+	System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+	System.out.println("Threads,Sequential (ms),Hogwild (ms),Speedup,Relative quantization error");
+
+	Random r = new Random(2);
+	double[] mixing = randomArray(r, ATTRIBUTES * 3);
+	ArrayList<double[]> training = correlatedPatterns(r, mixing, PATTERNS * 10);
+	ArrayList<double[]> heldOut = correlatedPatterns(r, mixing, PATTERNS);
+
+	for (int t : threads)
+	{
+	    double[] sequential = trainOnline(training, heldOut, width, epochs, 1, false);
+	    double[] hogwild = trainOnline(training, heldOut, width, epochs, t, true);
+
+	    System.out.println(t + "," + Math.round(sequential[0]) + "," + Math.round(hogwild[0]) + "," +
+		    Math.round((sequential[0] / hogwild[0]) * 100) / 100.0 + "," + Math.round((hogwild[1] / sequential[1]) * 1000) / 1000.0);
+	}
+    }
+
+    /**
+     * Trains a map with the online algorithm.
+     * @param training the training patterns.
+     * @param heldOut the patterns to measure the quantization error with.
+     * @param width the width of the map.
+     * @param epochs the number of passes over the training patterns.
+     * @param threads the number of threads to train with.
+     * @param hogwild true to use TrainHogwild(), false to use Train().
+     * @return the training time in milliseconds, and the mean quantization error of the held out patterns.
+     */
+    private static double[] trainOnline(ArrayList<double[]> training, ArrayList<double[]> heldOut, int width, int epochs, int threads, boolean hogwild)
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(training);
+	map.setAttributes(ATTRIBUTES);
+	map.setMapWidth(width);
+	map.setSeed(width);
+	map.setMaxEpochs(epochs);
+	map.setNeighbourhoodThreshold(0.001);
+	map.setThreads(threads);
+	map.Build();
+
+	long start = System.nanoTime();
+
+	if (hogwild)
+	    map.TrainHogwild(0);
+	else
+	    map.Train(0);
+
+	double millis = (System.nanoTime() - start) / 1e6;
+	double error = 0;
+
+	for (double[] p : heldOut)
+	{
+	    double[] weights = map.getWinningNeuron(p).weights;
+	    double sum = 0;
+
+	    for (int a = 0; a < ATTRIBUTES; a++)
+		sum += (p[a] - weights[a]) * (p[a] - weights[a]);
+
+	    error += Math.sqrt(sum);
+	}
+
+	return new double[] { millis, error / heldOut.size() };
+    }
+
+    /**
+     * Times the search for the winning neuron of each pattern.
+     * @param map the map.
+     * @param patterns the patterns to search for.
+     * @return the fastest time per search, in nanoseconds.
+     */
+    private static double time(SelfOrganizingMap map, double[][] patterns)
+    {
+	long best = Long.MAX_VALUE;
+
+	for (int run = 0; run < RUNS; run++)
+	{
+	    long start = System.nanoTime();
+
+	    for (double[] p : patterns)
+		sink += map.getWinningIndex(p);
+
+	    best = Math.min(best, System.nanoTime() - start);
+	}
+
+	return (double) best / patterns.length;
+    }
+
+    /**
+     * @param r the random number generator.
+     * @param mixing the ATTRIBUTES x 3 matrix mapping the random points into the patterns.
+     * @param count the number of patterns.
+     * @return patterns with correlated attributes.
+     */
+    private static ArrayList<double[]> correlatedPatterns(Random r, double[] mixing, int count)
+    {
+	ArrayList<double[]> patterns = new ArrayList<double[]>();
+
+	for (int i = 0; i < count; i++)
+	{
+	    double[] point = randomArray(r, 3);
+	    double[] p = new double[ATTRIBUTES];
+
+	    for (int a = 0; a < ATTRIBUTES; a++)
+		p[a] = mixing[a * 3] * point[0] + mixing[a * 3 + 1] * point[1] + mixing[a * 3 + 2] * point[2] + 0.01 * r.nextGaussian();
+
+	    patterns.add(p);
+	}
+
+	return patterns;
+    }
+
+    /**
+     * Times the search for the closest neuron to each pattern.
+     * @param unrolled true to use the unrolled kernel, false to use the scalar kernel.
+     * @param codebook the weights of the neurons.
+     * @param neurons the number of neurons.
+     * @param patterns the patterns to search for.
+     * @return the fastest time per search, in nanoseconds.
+     */
+    private static double time(boolean unrolled, double[] codebook, int neurons, double[][] patterns)
+    {
+	long best = Long.MAX_VALUE;
+
+	// The first runs warm up the JIT.
+	for (int run = 0; run < RUNS * 2; run++)
+	{
+	    long start = System.nanoTime();
+
+	    for (double[] p : patterns)
+		sink += search(unrolled, p, codebook, neurons);
+
+	    long elapsed = System.nanoTime() - start;
+
+	    if (run >= RUNS)
+		best = Math.min(best, elapsed);
+	}
+
+	return (double) best / patterns.length;
+    }
+
+    /**
+     * Finds the neuron closest to a pattern, as SelfOrganizingMap.getWinningIndex() does.
+     * @param unrolled true to use the unrolled kernel, false to use the scalar kernel.
+     * @param pattern the pattern.
+     * @param codebook the weights of the neurons.
+     * @param neurons the number of neurons.
+     * @return the index of the closest neuron.
+     */
+    private static int search(boolean unrolled, double[] pattern, double[] codebook, int neurons)
+    {
+	int winner = -1;
+	double closest = Double.MAX_VALUE;
+
+	for (int n = 0; n < neurons; n++)
+	{
+	    double distance = unrolled ? DistanceKernel.squaredDistance(pattern, codebook, n * ATTRIBUTES, closest) :
+		DistanceKernel.squaredDistanceScalar(pattern, codebook, n * ATTRIBUTES, closest);
+
+	    if (distance < closest)
+	    {
+		winner = n;
+		closest = distance;
+	    }
+	}
+
+	return winner;
+    }
+
+    /**
+     * @param r the random number generator.
+     * @param length the length of the array.
+     * @return an array of random values between zero and one.
+     */
+    private static double[] randomArray(Random r, int length)
+    {
+	double[] a = new double[length];
+
+	for (int i = 0; i < length; i++)
+	    a[i] = r.nextDouble();
+
+	return a;
+    }
+}
@@ -31,17 +31,11 @@ import java.util.List;
 import uk.ac.man.jb.pct.classifiers.som.FrequencyPoint;
 import uk.ac.man.jb.pct.classifiers.som.SOMClassifier;
 import uk.ac.man.jb.pct.classifiers.som.SelfOrganizingMap;
-import uk.ac.man.jb.pct.data.ClassifierStatistics;
 import uk.ac.man.jb.pct.data.I_ClassifierStatistics;
 import uk.ac.man.jb.pct.data.I_DataSet;
 import uk.ac.man.jb.pct.data.PatternFileProcessor;
 import uk.ac.man.jb.pct.io.Writer;
-import uk.ac.man.jb.pct.mvc.Constants;
-import uk.ac.man.jb.pct.mvc.controllers.AutoTrainerController;
-import uk.ac.man.jb.pct.mvc.model.CommandLineInputData;
 import uk.ac.man.jb.pct.util.Common;
-import uk.ac.man.jb.pct.util.StringOps;
-import com.scienceguyrob.stats.StatsDataSet;
 import com.scienceguyrob.stats.StatsOps;
 
 /**
@@ -127,28 +121,28 @@ public class Experiments
 	I_ClassifierStatistics stats = classifier.getStatistics();
 
 	// If there are more than zero positive instances.
-	if(classifier.positiveCoords.size() < 0)
+	if(classifier.getPositiveCoords().size() < 0)
 	{
 	    System.out.println("No positive co-ordinates found.");
 	    return;
 	}
 
-	System.out.println("Positive Co-ords: "+ classifier.positiveCoords.size());
+	System.out.println("Positive Co-ords: "+ classifier.getPositiveCoords().size());
 
 	double totalDistance = 0.0;
 	List<String> distances = new ArrayList<String>();
-	int totalPositive = classifier.positiveCoords.size();
+	int totalPositive = classifier.getPositiveCoords().size();
 
 	// For each positive point
 	for(int i = 0; i < totalPositive-1;i++)
 	{
 	    // Work out its distance to all other points.
-	    Point p = classifier.positiveCoords.get(i);
+	    Point p = classifier.getPositiveCoords().get(i);
 	    Writer.write(outputFilePath,",,"+p.getX()+","+p.getY()+",\n");
 
-	    for(int j = i+1; j < classifier.positiveCoords.size();j++)
+	    for(int j = i+1; j < classifier.getPositiveCoords().size();j++)
 	    {
-		Point tmp = classifier.positiveCoords.get(j);
+		Point tmp = classifier.getPositiveCoords().get(j);
 		double dist = Common.distance(p.getX(),p.getY(),tmp.getX(),tmp.getY());
 		distances.add(Double.toString(dist));
 		totalDistance += dist;
@@ -156,7 +150,7 @@ public class Experiments
 	}
 
 	// Append some details and formatting to output file.
-	Writer.write(outputFilePath,",,"+classifier.positiveCoords.get(totalPositive-1).getX()+","+classifier.positiveCoords.get(totalPositive-1).getX()+",\n");
+	Writer.write(outputFilePath,",,"+classifier.getPositiveCoords().get(totalPositive-1).getX()+","+classifier.getPositiveCoords().get(totalPositive-1).getX()+",\n");
 	Writer.write(outputFilePath,",,,,\n");
 
 	// Now calculate the statistics for these positive points.
@@ -168,7 +162,7 @@ public class Experiments
 	Writer.write(outputFilePath,",VAR,"+var+",,\n");
 	double stdev = StatsOps.StandardDeviation(com.scienceguyrob.utils.Common.convertStringListToDoubleArray(distances));
 	Writer.write(outputFilePath,",STDEV,"+stdev+",,\n");			    
-	double avg = totalDistance / (classifier.positiveCoords.size() * (classifier.positiveCoords.size() -1))/2;
+	double avg = totalDistance / (classifier.getPositiveCoords().size() * (classifier.getPositiveCoords().size() -1))/2;
 	Writer.write(outputFilePath,",AVG,"+avg+",,\n");
 	Writer.write(outputFilePath,",,,,\n");
 
@@ -181,14 +175,14 @@ public class Experiments
 
 
 	// Now we do the same for the negative co-ordinates.
-	if(classifier.negativeCoords.size() > 0)
+	if(classifier.getNegativeCoords().size() > 0)
 	{
 	    System.out.println("No negative co-ordinates found.");
 	    return;
 	}
 	Writer.write(outputFilePath,",,X,Y,\n");
 
-	System.out.println("Negative Co-ords: "+ classifier.negativeCoords.size());
+	System.out.println("Negative Co-ords: "+ classifier.getNegativeCoords().size());
 
 	totalDistance = 0.0;
 
@@ -196,15 +190,15 @@ public class Experiments
 	distances.clear();
 	distances = new ArrayList<String>();
 
-	int totalNegative = classifier.negativeCoords.size();
+	int totalNegative = classifier.getNegativeCoords().size();
 	for(int i = 0; i < totalNegative-1;i++)
 	{
-	    Point p = classifier.negativeCoords.get(i);
+	    Point p = classifier.getNegativeCoords().get(i);
 	    Writer.write(outputFilePath,",,"+p.getX()+","+p.getY()+",\n");
 
-	    for(int j = i+1; j < classifier.negativeCoords.size();j++)
+	    for(int j = i+1; j < classifier.getNegativeCoords().size();j++)
 	    {
-		Point tmp = classifier.negativeCoords.get(j);
+		Point tmp = classifier.getNegativeCoords().get(j);
 		double dist = Common.distance(p.getX(),p.getY(),tmp.getX(),tmp.getY());
 		distances.add(Double.toString(dist));
 		totalDistance += dist;
@@ -212,7 +206,7 @@ public class Experiments
 	}
 
 	// Append some details and formatting to output file.
-	Writer.write(outputFilePath,",,"+classifier.negativeCoords.get(totalNegative-1).getX()+","+classifier.negativeCoords.get(totalNegative-1).getX()+",\n");
+	Writer.write(outputFilePath,",,"+classifier.getNegativeCoords().get(totalNegative-1).getX()+","+classifier.getNegativeCoords().get(totalNegative-1).getX()+",\n");
 	Writer.write(outputFilePath,",,,,\n");
 
 	min = StatsOps.Min(com.scienceguyrob.utils.Common.convertStringListToDoubleArray(distances));
@@ -223,7 +217,7 @@ public class Experiments
 	Writer.write(outputFilePath,",VAR,"+var+",,\n");
 	stdev = StatsOps.StandardDeviation(com.scienceguyrob.utils.Common.convertStringListToDoubleArray(distances));
 	Writer.write(outputFilePath,",STDEV,"+stdev+",,\n");			    
-	avg = totalDistance / (classifier.negativeCoords.size() * (classifier.negativeCoords.size() -1))/2;
+	avg = totalDistance / (classifier.getNegativeCoords().size() * (classifier.getNegativeCoords().size() -1))/2;
 	Writer.write(outputFilePath,",AVG,"+avg+",,\n");
 	Writer.write(outputFilePath,",,,,\n");
 
@@ -240,9 +234,9 @@ public class Experiments
 
 	// Now I obtain the frequencies of the points.
 	ArrayList<FrequencyPoint> fPoints = new ArrayList<FrequencyPoint>();
-	for(int i = 0; i < classifier.positiveCoords.size();i++)
+	for(int i = 0; i < classifier.getPositiveCoords().size();i++)
 	{
-	    Point p = classifier.positiveCoords.get(i);
+	    Point p = classifier.getPositiveCoords().get(i);
 
 	    if(fPoints.size() == 0)
 		fPoints.add(new FrequencyPoint(p.x,p.y,1));
@@ -275,9 +269,9 @@ public class Experiments
 	Writer.write(outputFilePath,",X,Y,FREQ,\n");
 
 	fPoints.clear();
-	for(int i = 0; i < classifier.negativeCoords.size();i++)
+	for(int i = 0; i < classifier.getNegativeCoords().size();i++)
 	{
-	    Point p = classifier.negativeCoords.get(i);
+	    Point p = classifier.getNegativeCoords().get(i);
 
 	    if(fPoints.size() == 0)
 		fPoints.add(new FrequencyPoint(p.x,p.y,1));
@@ -349,158 +343,27 @@ public class Experiments
     }
 
     /**
-     * 
-     * @param pathToTrainingFiles
-     * @param pathToClassificationFiles
-     * @param classifier_type
-     * @param mapWidth
-     * @param k
+     * Trains ten networks for each training file, classifying every classification
+     * file with each, using a single classification algorithm. The trials are run
+     * in parallel by a ParameterSweep.
+     * @param pathToTrainingFiles the directory holding the training files.
+     * @param pathToClassificationFiles the directory holding the files to classify.
+     * @param vDataPath the path to the validation data.
+     * @param outputFilePath the path to write each classification to.
+     * @param stats_output_file the path to write the result statistics to.
+     * @param classifier_type the classification algorithm.
+     * @param mapWidth the width of the maps.
      */
-    public static void classificationTestsStaticK(String pathToTrainingFiles,String pathToClassificationFiles, int classifier_type, int mapWidth, int k)
+    public static void classificationTestsStaticK(String pathToTrainingFiles,String pathToClassificationFiles,String vDataPath,String outputFilePath,String stats_output_file, int classifier_type, int mapWidth)
     {
-	// Training and Validation Data
-	String tDataPath = "/Users/rob/git/JBO-Pulsar-Classifier/JBO Pulsar Classifier Tool/Resources/training_set_mod.pat";
-	String vDataPath = "/Users/rob/git/JBO-Pulsar-Classifier/JBO Pulsar Classifier Tool/Resources/validation_set.pat";
-
-	// The path that the temporary neural net is saved to.
-	String savedNetworkPath = "/Users/rob/DELETEMENETWORK.xml";
-	String outputFilePathRubbish = "/Users/rob/DELETEMEFILEPATH.txt";
-
-	// The path to write results to
-	String outputFilePath = "/Users/rob/RESULTS/READ.txt";
-
-	// The test data patterns to classify
-	String patternsDirectory = pathToClassificationFiles;
-
-	// The file to write result statistics to.
-	String stats_output_file = "/Users/rob/RESULTS/STATS.txt";
-	// The headers for the CSV statistics file.
-	String[] headers = {"STATS","TEST","FILE","TP","FP","TN","FN","Recall","Precision","F-Score","Specificity","NPV","MCC","Accuracy"};
-
-	// Add this information to the input object, usually
-	// used to process command line information.
-	CommandLineInputData input = new CommandLineInputData();
-	input.setPathToTrainingFile(tDataPath);
-	input.setPathToValidationFile(vDataPath);
-	input.setNetworkSavePath(savedNetworkPath);
-	input.setPathToSavedNetwork(savedNetworkPath);
-	input.setPathToOutputFile(outputFilePathRubbish);
-	input.setClassifier(classifier_type);
-	input.setDesiredNetworkAccuracy(90);
-
-	// The paths to the training files to use.
-	String[] classificationFiles = Common.getFilePaths(patternsDirectory);
-
-	String[] trainingFiles = Common.getFilePaths(pathToTrainingFiles);
-
-	if(trainingFiles.length < 1)
-	{
-	    System.out.println("No training files!");
-	    System.exit(0);
-	}
-
-	// The class used to train the neural network.
-	AutoTrainerController trainer;
-
-	// The test data to be classified.
-	I_DataSet classification_data;
-
-	for(int z = 0; z < trainingFiles.length ; z++) // For each training file
-	{
-	    if(!trainingFiles[z].toString().endsWith(".pat"))
-		continue;
-
-	    input.setPathToTrainingFile(trainingFiles[z]); // Update path to the training file
-
-	    for(int f = 0; f < classificationFiles.length;f++)// for each file of data to be classified
-	    {
-		if(!classificationFiles[f].toString().endsWith(".pat"))
-		    continue;
-
-		// Get the data
-		classification_data = new PatternFileProcessor().process(classificationFiles[f]);
-
-		for(int t=0; t < 1; t++)// do a number of tests
-		{
-		    for(int s = 0; s < 10; s++)
-		    {
-			// Delete any existing saved neural network.
-			Common.fileDelete(input.getPathToSavedNetwork());
-			// Train the network.
-			input.setMapSize(mapWidth);
-			trainer = new AutoTrainerController(input);
-			trainer.run();
-
-			// Load the trained Map back in.
-			SOMClassifier classifier = (SOMClassifier)SOMClassifier.read(input.getPathToSavedNetwork());
-			classifier.stats.calculate(); // get the performance statistics of the network.
-
-			// Get the type of classifier that the user wants to use.
-			int classifierChoice = input.getClassifier(); 
-
-			// Create an object to store the statistics collected during this test.
-			ClassifierStatistics testStats = new ClassifierStatistics();
-
-			//classify the data
-			for(int r = 0; r < classification_data.getRows(); r++) // For each pattern to be classified.
-			{
-			    // Classify the pattern.
-			    Object[] results = classifier.classify(classification_data.getDataRow(r), classifierChoice);
-			    String classification = (String) results[0].toString();
-
-			    // Here we classify the pattern using the classify, but we already know the class a priori.
-			    // So we check the classification given, with the actual class.
-			    //  CLASSIFICATION APPLIED --------------------------------- ACTUAL CLASS
-			    if( classification.equals(Constants.PULSAR) && classification_data.getDataRow(r).getClassMembership().equals(Constants.PULSAR))
-				testStats.incrementTP(); // True Positive
-			    else if(classification.equals(Constants.PULSAR) && classification_data.getDataRow(r).getClassMembership().equals(Constants.RFI))
-				testStats.incrementFP(); // False positive
-			    else if(classification.equals(Constants.RFI) && classification_data.getDataRow(r).getClassMembership().equals(Constants.PULSAR))
-				testStats.incrementFN(); // False negative
-			    else
-				testStats.incrementTN(); // True negative
-			}
-
-			// Causes the statistics object to calculate its internal metrics (i.e. F-score, precision, recall etc).
-			testStats.calculate();
-
-			// Write the output to a file.
-
-			// Describe test: 
-			String test = "Test[ td =" + trainingFiles[z] + "][ file = " + f + "][ test = " + t + "][ mapsize test (12)= " + s + "]," + classificationFiles[f] + ",";
-
-			// Provide statistics: TP, FP, TN, FN, RECALL, PRECISION, FSCORE, SPECIFICITY, NPV, MCC, ACCURACY, 
-			String stats = testStats.getTP() + "," + testStats.getFP() + "," + testStats.getTN() + "," + testStats.getFN() + "," + testStats.getRecall() + "," +
-				testStats.getPrecision() + ","+testStats.getfScore() + "," + testStats.getSpecificity() + "," +testStats.getNegativePredictiveValue() + "," +
-				testStats.getMatthewsCorrelation() + "," + testStats.getAccuracy() + ",\n";
-
-			String text = test + stats;// Simply add two parts together.
-			Writer.write(outputFilePath,text);
-
-			//clean up variables.
-			trainer = null;
-			classifier = null;
-		    }
-
-		    // Create a new object that converts the statistics collected in to CSV format.
-		    StatsDataSet statsDataSet = new StatsDataSet(outputFilePath); // Read neural network output file.
-		    String summaryStats = statsDataSet.printAsCSVWithStats(headers);
-
-		    // Write the CSV format to file.
-		    Writer.write(stats_output_file, summaryStats);
-
-		    // Delete the neural net output file, as these results have now
-		    // been written to a statistics file.
-		    Common.fileDelete(outputFilePath);
-		    Common.fileCreate(outputFilePath);
-		    System.gc();
-		}
-
-		// Explicit cleanup.
-		classification_data = null;
-		System.gc();
-	    }
-	}
+	ParameterSweep sweep = new ParameterSweep(vDataPath, outputFilePath, stats_output_file);
+	sweep.setMapWidths(new int[] {mapWidth});
+	sweep.setAlgorithm(classifier_type);
+	sweep.setTrainingFiles(Common.getFilePaths(pathToTrainingFiles));
+	sweep.setClassificationFiles(Common.getFilePaths(pathToClassificationFiles));
+	sweep.setRepeats(10);
+	sweep.setDesiredAccuracy(90);
+	sweep.run();
     }
 
     /**
@@ -508,159 +371,26 @@ public class Experiments
      * 
      * 0 = assign the class of the nearest neighbour.
      * 1 = brake ties randomly.
+     * 
+     * The trials are run in parallel by a ParameterSweep, for K = 23, 25 and 27.
      * @param pathToTrainingFiles
      * @param pathToClassificationFiles
+     * @param vDataPath the path to the validation data.
+     * @param outputFilePath the path to write each classification to.
+     * @param stats_output_file the path to write the result statistics to.
      * @param mapWidth
-     * @param k
      * @param tieBreakingParam
      */
-    public static void classificationTestsVariableK(String pathToTrainingFiles,String pathToClassificationFiles, int mapWidth, int k,int tieBreakingParam)
+    public static void classificationTestsVariableK(String pathToTrainingFiles,String pathToClassificationFiles,String vDataPath,String outputFilePath,String stats_output_file, int mapWidth,int tieBreakingParam)
     {
-	// Training and Validation Data
-	String tDataPath = "/Users/rob/git/JBO-Pulsar-Classifier/JBO Pulsar Classifier Tool/Resources/training_set_mod.pat";
-	String vDataPath = "/Users/rob/git/JBO-Pulsar-Classifier/JBO Pulsar Classifier Tool/Resources/validation_set.pat";
-
-	// The path that the temporary neural net is saved to.
-	String savedNetworkPath = "/Users/rob/DELETEMENETWORK.xml";
-	String outputFilePathRubbish = "/Users/rob/DELETEMEFILEPATH.txt";
-
-	// The path to write results to
-	String outputFilePath = "/Users/rob/RESULTS/READ.txt";
-
-	// The test data patterns to classify
-	String patternsDirectory = pathToClassificationFiles;
-
-	// The file to write result statistics to.
-	String stats_output_file = "/Users/rob/RESULTS/STATS_knn_btr.txt";
-	// The headers for the CSV statistics file.
-	String[] headers = {"STATS","TEST","FILE","TP","FP","TN","FN","Recall","Precision","F-Score","Specificity","NPV","MCC","Accuracy"};
-
-	// Add this information to the input object, usually
-	// used to process command line information. It 
-	// is not actually used here.
-	CommandLineInputData input = new CommandLineInputData();
-	input.setPathToTrainingFile(tDataPath);
-	input.setPathToValidationFile(vDataPath);
-	input.setNetworkSavePath(savedNetworkPath);
-	input.setPathToSavedNetwork(savedNetworkPath);
-	input.setPathToOutputFile(outputFilePathRubbish);
-	input.setClassifier(0);// Doesn't matter
-	input.setDesiredNetworkAccuracy(90);
-
-	// The paths to the training files to use.
-	String[] classificationFiles = Common.getFilePaths(patternsDirectory);
-
-	String[] trainingFiles = Common.getFilePaths(pathToTrainingFiles);
-
-	if(trainingFiles.length < 1)
-	{
-	    System.out.println("No training files!");
-	    System.exit(0);
-	}
-
-	// The class used to train the neural network.
-	AutoTrainerController trainer;
-
-	// The test data to be classified.
-	I_DataSet classification_data;
-
-	for(int kloop = 23 ; kloop < 28; kloop++)
-	    if( kloop % 2 != 0)
-	    {
-		for(int z = 0; z < trainingFiles.length ; z++) // For each training file
-		{
-		    if(!trainingFiles[z].toString().endsWith(".pat"))
-			continue;
-
-		    input.setPathToTrainingFile(trainingFiles[z]); // Update path to the training file
-
-		    for(int f = 0; f < classificationFiles.length;f++)// for each file of data to be classified
-		    {
-			if(!classificationFiles[f].toString().endsWith(".pat"))
-			    continue;
-
-			// Get the data
-			classification_data = new PatternFileProcessor().process(classificationFiles[f]);
-
-			for(int t=0; t < 1; t++)// do a number of tests
-			{
-			    for(int s = 0; s < 10; s++)
-			    {
-				// Delete any existing saved neural network.
-				Common.fileDelete(input.getPathToSavedNetwork());
-				// Train the network.
-				input.setMapSize(mapWidth);
-				trainer = new AutoTrainerController(input);
-				trainer.run();
-
-				// Load the trained Map back in.
-				SOMClassifier classifier = (SOMClassifier)SOMClassifier.read(input.getPathToSavedNetwork());
-				classifier.stats.calculate(); // get the performance statistics of the network.
-
-				// Create an object to store the statistics collected during this test.
-				ClassifierStatistics testStats = new ClassifierStatistics();
-
-				//classify the data
-				for(int r = 0; r < classification_data.getRows(); r++) // For each pattern to be classified.
-				{
-				    // Classify the pattern.
-				    Object[] results = classifier.discreetKNNClassify(classification_data.getDataRow(r),kloop,tieBreakingParam);
-				    String classification = (String) results[0].toString();
-
-				    // Here we classify the pattern using the classify, but we already know the class a priori.
-				    // So we check the classification given, with the actual class.
-				    //  CLASSIFICATION APPLIED --------------------------------- ACTUAL CLASS
-				    if( classification.equals(Constants.PULSAR) && classification_data.getDataRow(r).getClassMembership().equals(Constants.PULSAR))
-					testStats.incrementTP(); // True Positive
-				    else if(classification.equals(Constants.PULSAR) && classification_data.getDataRow(r).getClassMembership().equals(Constants.RFI))
-					testStats.incrementFP(); // False positive
-				    else if(classification.equals(Constants.RFI) && classification_data.getDataRow(r).getClassMembership().equals(Constants.PULSAR))
-					testStats.incrementFN(); // False negative
-				    else
-					testStats.incrementTN(); // True negative
-				}
-
-				// Causes the statistics object to calculate its internal metrics (i.e. F-score, precision, recall etc).
-				testStats.calculate();
-
-				// Write the output to a file.
-
-				// Describe test: 
-				String test = "Test[ td =" + StringOps.getFileNameFromPath(trainingFiles[z]) + "][k="+kloop+"][ file = " + f + "][ test = " + t + "][ mapsize test (12)= " + s + "]," + StringOps.getFileNameFromPath(classificationFiles[f]) + ",";
-
-				// Provide statistics: TP, FP, TN, FN, RECALL, PRECISION, FSCORE, SPECIFICITY, NPV, MCC, ACCURACY, 
-				String stats = testStats.getTP() + "," + testStats.getFP() + "," + testStats.getTN() + "," + testStats.getFN() + "," + testStats.getRecall() + "," +
-					testStats.getPrecision() + ","+testStats.getfScore() + "," + testStats.getSpecificity() + "," +testStats.getNegativePredictiveValue() + "," +
-					testStats.getMatthewsCorrelation() + "," + testStats.getAccuracy() + ",\n";
-
-				String text = test + stats;// Simply add two parts together.
-				Writer.write(outputFilePath,text);
-
-				//clean up variables.
-				trainer = null;
-				classifier = null;
-			    }
-
-			    // Create a new object that converts the statistics collected in to CSV format.
-			    StatsDataSet statsDataSet = new StatsDataSet(outputFilePath); // Read neural network output file.
-			    String summaryStats = statsDataSet.printAsCSVWithStats(headers);
-
-			    // Write the CSV format to file.
-			    Writer.write(stats_output_file, summaryStats);
-
-			    // Delete the neural net output file, as these results have now
-			    // been written to a statistics file.
-			    Common.fileDelete(outputFilePath);
-			    Common.fileCreate(outputFilePath);
-			    System.gc();
-			}
-
-			// Explicit cleanup.
-			classification_data = null;
-			System.gc();
-		    }
-		}
-		System.gc();
-	    }
+	ParameterSweep sweep = new ParameterSweep(vDataPath, outputFilePath, stats_output_file);
+	sweep.setMapWidths(new int[] {mapWidth});
+	sweep.setKValues(new int[] {23, 25, 27});
+	sweep.setTieBreaking(new int[] {tieBreakingParam});
+	sweep.setTrainingFiles(Common.getFilePaths(pathToTrainingFiles));
+	sweep.setClassificationFiles(Common.getFilePaths(pathToClassificationFiles));
+	sweep.setRepeats(10);
+	sweep.setDesiredAccuracy(90);
+	sweep.run();
     }
 }
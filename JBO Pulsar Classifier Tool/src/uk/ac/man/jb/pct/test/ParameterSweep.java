@@ -0,0 +1,543 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	ParameterSweep.java
+ * Package: uk.ac.man.jb.pct.test
+ * Created:	Oct 18, 2026
+ * Author:	Rob Lyon
+ *
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.man.jb.pct.classifiers.som.SOMClassifier;
+import uk.ac.man.jb.pct.data.ClassifierStatistics;
+import uk.ac.man.jb.pct.data.I_DataSet;
+import uk.ac.man.jb.pct.data.PatternFileProcessor;
+import uk.ac.man.jb.pct.io.Writer;
+import uk.ac.man.jb.pct.mvc.Constants;
+import uk.ac.man.jb.pct.mvc.controllers.AutoTrainerController;
+import uk.ac.man.jb.pct.mvc.model.CommandLineInputData;
+import uk.ac.man.jb.pct.util.Common;
+import uk.ac.man.jb.pct.util.StringOps;
+import com.scienceguyrob.stats.StatsDataSet;
+
+/**
+ * ParameterSweep.
+ *
+ * Runs a grid of classification experiments over map width, K, tie breaking mode
+ * and training file, with a number of repeats of each, spread over a pool of threads.
+ *
+ * A trial trains one network for a map width and training file, then classifies every
+ * classification file with it, for every K and tie breaking mode. So each network is
+ * trained once, however many values of K and tie breaking modes are being tried, and
+ * each pattern's nearest neighbours are found once for all of them. The
+ * training, validation and classification files are each parsed once, then shared
+ * by every trial, which only read them.
+ *
+ * Alternatively a sweep can classify with a single one of the classifier's algorithms,
+ * via setAlgorithm(), in which case K and the tie breaking modes are not used.
+ *
+ * Each network remembers the winners of the patterns it has looked up, so a file that
+ * is both validated against and classified is only searched for once per network.
+ *
+ * A value of K larger than the number of patterns a network located has no
+ * classifications, so it is skipped for that network, and the others are kept.
+ *
+ * Each classification made by a trial is written to the results file as soon as the
+ * trial finishes. Once every repeat for a map width and training file has finished,
+ * the results are summarised (one block per K, tie breaking mode and classification
+ * file) in the same CSV layout as the other experiments, via StatsDataSet, and appended
+ * to the statistics file. Blocks are appended in the order they complete.
+ *
+ * @author Rob Lyon
+ */
+public class ParameterSweep
+{
+    //*****************************************
+    //*****************************************
+    //              Variables
+    //*****************************************
+    //*****************************************
+
+    /**
+     * The headers for the CSV statistics file.
+     */
+    public static final String[] HEADERS = {"STATS","TEST","FILE","TP","FP","TN","FN","Recall","Precision","F-Score","Specificity","NPV","MCC","Accuracy"};
+
+    /**
+     * The grid to sweep over.
+     */
+    private int[] mapWidths = {10};
+    private int[] kValues = {3};
+    private int[] tieBreaking = {0};
+    private String[] trainingFiles = {};
+    private String[] classificationFiles = {};
+
+    /**
+     * The classification algorithm passed to SOMClassifier.classify(), or below zero
+     * to classify by discreetKNNClassify() for every K and tie breaking mode.
+     */
+    private int algorithm = -1;
+
+    /**
+     * The validation data networks are trained against.
+     */
+    private String validationFile;
+
+    /**
+     * The number of networks to train for each map width and training file.
+     */
+    private int repeats = 10;
+
+    /**
+     * The accuracy each network should reach on the validation data.
+     */
+    private int desiredAccuracy = 90;
+
+    /**
+     * The number of trials to run at once, below 1 uses all processors.
+     */
+    private int threads = 0;
+
+    /**
+     * The most patterns whose winners each network remembers.
+     */
+    private int winnerCacheSize = 65536;
+
+    /**
+     * The file each classification is written to, and the file the summaries are appended to.
+     */
+    private String resultsPath;
+    private String statsPath;
+
+    /**
+     * The parsed validation and classification data, keyed by path.
+     */
+    private HashMap<String, I_DataSet> data = new HashMap<String, I_DataSet>();
+
+    /**
+     * The parsed training data, keyed by path. The training data is normalised,
+     * with the column means it was normalised by kept alongside.
+     */
+    private HashMap<String, I_DataSet> training = new HashMap<String, I_DataSet>();
+    private HashMap<String, double[]> columnMeans = new HashMap<String, double[]>();
+
+    /**
+     * The results of the trials still running for each map width and training file,
+     * keyed by group then by K, tie breaking mode and classification file.
+     */
+    private HashMap<String, LinkedHashMap<String, ArrayList<String>>> pending = new HashMap<String, LinkedHashMap<String, ArrayList<String>>>();
+
+    /**
+     * The number of trials still running for each map width and training file.
+     */
+    private HashMap<String, Integer> remaining = new HashMap<String, Integer>();
+
+    //*****************************************
+    //*****************************************
+    //             Constructor
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Primary constructor.
+     * @param v the path to the validation data.
+     * @param results the path to write each classification to.
+     * @param stats the path to append the summary statistics to.
+     */
+    public ParameterSweep(String v, String results, String stats)
+    {
+	validationFile = v;
+	resultsPath = results;
+	statsPath = stats;
+    }
+
+    //*****************************************
+    //*****************************************
+    //               Setters
+    //*****************************************
+    //*****************************************
+
+    public void setMapWidths(int[] widths) { this.mapWidths = widths; }
+    public void setKValues(int[] k) { this.kValues = k; }
+    public void setTieBreaking(int[] modes) { this.tieBreaking = modes; }
+    public void setTrainingFiles(String[] files) { this.trainingFiles = patternFiles(files); }
+    public void setClassificationFiles(String[] files) { this.classificationFiles = patternFiles(files); }
+    public void setRepeats(int repeats) { this.repeats = repeats; }
+    public void setDesiredAccuracy(int accuracy) { this.desiredAccuracy = accuracy; }
+    public void setThreads(int threads) { this.threads = threads; }
+    public void setAlgorithm(int algorithm) { this.algorithm = algorithm; }
+    public void setWinnerCacheSize(int size) { this.winnerCacheSize = size; }
+
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    /**
+     * Runs the sweep, returning once every trial has finished.
+     */
+    public void run()
+    {
+	if(trainingFiles.length < 1)
+	{
+	    System.out.println("No training files!");
+	    return;
+	}
+
+	// Parse every file once, up front.
+	data.put(validationFile, new PatternFileProcessor().process(validationFile));
+
+	for(int z = 0; z < trainingFiles.length; z++)
+	{
+	    I_DataSet t_data = new PatternFileProcessor().process(trainingFiles[z]);
+	    columnMeans.put(trainingFiles[z], AutoTrainerController.normalise(t_data));
+	    training.put(trainingFiles[z], t_data);
+	}
+
+	// A file also used for validation shares its patterns, so the winners
+	// found while validating are remembered when it is classified.
+	for(int f = 0; f < classificationFiles.length; f++)
+	    if(!data.containsKey(classificationFiles[f]))
+		data.put(classificationFiles[f], new PatternFileProcessor().process(classificationFiles[f]));
+
+	int concurrent = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	ExecutorService pool = Executors.newFixedThreadPool(concurrent);
+
+	System.out.println("Sweeping " + mapWidths.length * trainingFiles.length * repeats + " trials, " + concurrent + " at a time");
+
+	for(int w = 0; w < mapWidths.length; w++)
+	    for(int z = 0; z < trainingFiles.length; z++)
+	    {
+		remaining.put(group(mapWidths[w], trainingFiles[z]), repeats);
+
+		for(int s = 0; s < repeats; s++)
+		    pool.execute(new Trial(mapWidths[w], trainingFiles[z], s));
+	    }
+
+	pool.shutdown();
+
+	try { pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS); }
+	catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Records the results of a finished trial. Once it is the last trial for its map
+     * width and training file, the results for that group are summarised.
+     * @param group the map width and training file of the trial.
+     * @param results the rows of the trial, keyed by K, tie breaking mode and classification file.
+     */
+    private synchronized void finished(String group, LinkedHashMap<String, String> results)
+    {
+	LinkedHashMap<String, ArrayList<String>> cells = pending.get(group);
+
+	if(cells == null)
+	{
+	    cells = new LinkedHashMap<String, ArrayList<String>>();
+	    pending.put(group, cells);
+	}
+
+	for(Map.Entry<String, String> result : results.entrySet())
+	{
+	    Writer.write(resultsPath, result.getValue());
+
+	    ArrayList<String> rows = cells.get(result.getKey());
+
+	    if(rows == null)
+	    {
+		rows = new ArrayList<String>();
+		cells.put(result.getKey(), rows);
+	    }
+
+	    rows.add(result.getValue());
+	}
+
+	int left = remaining.get(group) - 1;
+	remaining.put(group, left);
+
+	if(left > 0)
+	    return;
+
+	for(ArrayList<String> rows : cells.values())
+	    summarise(rows);
+
+	pending.remove(group);
+	System.out.println("Finished " + group);
+    }
+
+    /**
+     * Appends the summary statistics of a set of rows to the statistics file.
+     * @param rows the rows, in CSV format.
+     */
+    private void summarise(ArrayList<String> rows)
+    {
+	// StatsDataSet reads its rows from a file.
+	File tmp;
+	try { tmp = File.createTempFile("sweep", ".csv"); }
+	catch (IOException e)
+	{
+	    System.out.println("Error: Could not create a temporary file to summarise results in");
+	    return;
+	}
+
+	for(int i = 0; i < rows.size(); i++)
+	    Writer.write(tmp.getPath(), rows.get(i));
+
+	StatsDataSet statsDataSet = new StatsDataSet(tmp.getPath());
+	Writer.write(statsPath, statsDataSet.printAsCSVWithStats(HEADERS));
+
+	Common.fileDelete(tmp.getPath());
+    }
+
+    /**
+     * @param width the map width.
+     * @param trainingFile the training file.
+     * @return a key for the map width and training file.
+     */
+    private static String group(int width, String trainingFile)
+    {
+	return "[ td =" + StringOps.getFileNameFromPath(trainingFile) + "][ w = " + width + "]";
+    }
+
+    /**
+     * @param files the paths to some files, or null for none.
+     * @return the paths of just the files that are .pat pattern files.
+     */
+    private static String[] patternFiles(String[] files)
+    {
+	ArrayList<String> patterns = new ArrayList<String>();
+
+	if(files == null)
+	    return new String[0];
+
+	for(int i = 0; i < files.length; i++)
+	    if(files[i].endsWith(".pat"))
+		patterns.add(files[i]);
+
+	return patterns.toArray(new String[patterns.size()]);
+    }
+
+    //*****************************************
+    //*****************************************
+    //                Trial
+    //*****************************************
+    //*****************************************
+
+    /**
+     * A single trial: train a network for a map width and training file, then
+     * classify every classification file with it, for every K and tie breaking mode.
+     */
+    private class Trial implements Runnable
+    {
+	int width;
+	String trainingFile;
+	int repeat;
+
+	Trial(int w, String t, int s)
+	{
+	    width = w;
+	    trainingFile = t;
+	    repeat = s;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run()
+	{
+	    LinkedHashMap<String, String> results = new LinkedHashMap<String, String>();
+
+	    try
+	    {
+		// Train the network. The trials are already spread over
+		// the processors, so each trains on a single thread.
+		CommandLineInputData input = new CommandLineInputData();
+		input.setMapSize(width);
+		input.setThreads(1);
+		input.setClassifier(algorithm < 0 ? 0 : algorithm);
+		input.setDesiredNetworkAccuracy(desiredAccuracy);
+
+		AutoTrainerController trainer = new AutoTrainerController(input);
+		trainer.setWinnerCacheSize(winnerCacheSize);
+
+		SOMClassifier classifier = trainer.train(training.get(trainingFile), columnMeans.get(trainingFile), data.get(validationFile));
+
+		if(classifier == null)
+		{
+		    System.out.println("No network could be trained for " + group(width, trainingFile) + ", repeat " + repeat);
+		    return;
+		}
+
+		for(int f = 0; f < classificationFiles.length; f++)
+		{
+		    String file = StringOps.getFileNameFromPath(classificationFiles[f]);
+
+		    if(algorithm >= 0)
+		    {
+			String cell = "[algorithm = " + algorithm + "]," + file;
+			results.put(cell, row(cell, classify(classifier, data.get(classificationFiles[f]))));
+			continue;
+		    }
+
+		    ClassifierStatistics[][] fileStats = sweep(classifier, data.get(classificationFiles[f]));
+
+		    for(int k = 0; k < kValues.length; k++)
+		    {
+			// K is larger than the number of patterns this network located.
+			if(fileStats[k] == null)
+			{
+			    System.out.println("Skipping K = " + kValues[k] + " for " + group(width, trainingFile) + ", repeat " + repeat + ", too few patterns located");
+			    continue;
+			}
+
+			for(int b = 0; b < tieBreaking.length; b++)
+			{
+			    String cell = "[k=" + kValues[k] + "][ tie = " + tieBreaking[b] + "]," + file;
+			    results.put(cell, row(cell, fileStats[k][b]));
+			}
+		    }
+		}
+	    }
+	    catch (RuntimeException e)
+	    {
+		System.out.println("Error: Trial " + group(width, trainingFile) + ", repeat " + repeat + " failed");
+		e.printStackTrace();
+	    }
+	    finally { finished(group(width, trainingFile), results); }
+	}
+
+	/**
+	 * @param cell the K, tie breaking mode and classification file, or algorithm and
+	 * classification file, of the classifications.
+	 * @param testStats the statistics of the classifications.
+	 * @return the row describing the classifications, in CSV format.
+	 */
+	String row(String cell, ClassifierStatistics testStats)
+	{
+	    // Describe test:
+	    String test = "Test" + group(width, trainingFile) + "[ repeat = " + repeat + "]" + cell + ",";
+
+	    // Provide statistics: TP, FP, TN, FN, RECALL, PRECISION, FSCORE, SPECIFICITY, NPV, MCC, ACCURACY,
+	    String stats = testStats.getTP() + "," + testStats.getFP() + "," + testStats.getTN() + "," + testStats.getFN() + "," + testStats.getRecall() + "," +
+		    testStats.getPrecision() + ","+testStats.getfScore() + "," + testStats.getSpecificity() + "," +testStats.getNegativePredictiveValue() + "," +
+		    testStats.getMatthewsCorrelation() + "," + testStats.getAccuracy() + ",\n";
+
+	    return test + stats;
+	}
+
+	/**
+	 * Classifies a set of patterns whose class is already known, with the algorithm
+	 * the sweep was given.
+	 * @param classifier the classifier.
+	 * @param classification_data the patterns.
+	 * @return the statistics of the classifications.
+	 */
+	ClassifierStatistics classify(SOMClassifier classifier, I_DataSet classification_data)
+	{
+	    // Create an object to store the statistics collected during this test.
+	    ClassifierStatistics testStats = new ClassifierStatistics();
+
+	    for(int r = 0; r < classification_data.getRows(); r++) // For each pattern to be classified.
+	    {
+		String classification = classifier.classify(classification_data.getDataRow(r), algorithm)[0].toString();
+		count(testStats, classification, classification_data.getDataRow(r).getClassMembership());
+	    }
+
+	    testStats.calculate();
+	    return testStats;
+	}
+
+	/**
+	 * Classifies a set of patterns whose class is already known, for every K and
+	 * tie breaking mode, in a single pass over the patterns.
+	 * @param classifier the classifier.
+	 * @param classification_data the patterns.
+	 * @return the statistics of the classifications, indexed by K then tie breaking mode,
+	 * null for any value of K larger than the number of patterns the classifier located.
+	 */
+	ClassifierStatistics[][] sweep(SOMClassifier classifier, I_DataSet classification_data)
+	{
+	    // Create objects to store the statistics collected during this test.
+	    ClassifierStatistics[][] testStats = new ClassifierStatistics[kValues.length][tieBreaking.length];
+
+	    for(int k = 0; k < kValues.length; k++)
+		for(int b = 0; b < tieBreaking.length; b++)
+		    testStats[k][b] = new ClassifierStatistics();
+
+	    for(int r = 0; r < classification_data.getRows(); r++) // For each pattern to be classified.
+	    {
+		// Classify the pattern, for every K and tie breaking mode at once.
+		String[][] results = classifier.discreetKNNClassify(classification_data.getDataRow(r),kValues,tieBreaking);
+		String actual = classification_data.getDataRow(r).getClassMembership();
+
+		for(int k = 0; k < kValues.length; k++)
+		{
+		    // No classifications for a K larger than the number of patterns located.
+		    if(results[k] == null)
+		    {
+			testStats[k] = null;
+			continue;
+		    }
+
+		    for(int b = 0; b < tieBreaking.length; b++)
+			count(testStats[k][b], results[k][b], actual);
+		}
+	    }
+
+	    // Causes the statistics objects to calculate their internal metrics (i.e. F-score, precision, recall etc).
+	    for(int k = 0; k < kValues.length; k++)
+		for(int b = 0; testStats[k] != null && b < tieBreaking.length; b++)
+		    testStats[k][b].calculate();
+
+	    return testStats;
+	}
+
+	/**
+	 * Counts a classification of a pattern whose class is already known.
+	 * @param testStats the statistics to count the classification in.
+	 * @param classification the classification applied.
+	 * @param actual the actual class of the pattern.
+	 */
+	void count(ClassifierStatistics testStats, String classification, String actual)
+	{
+	    // Here we classify the pattern using the classify, but we already know the class a priori.
+	    // So we check the classification given, with the actual class.
+	    //  CLASSIFICATION APPLIED --------------------------------- ACTUAL CLASS
+	    if( classification.equals(Constants.PULSAR) && actual.equals(Constants.PULSAR))
+		testStats.incrementTP(); // True Positive
+	    else if(classification.equals(Constants.PULSAR) && actual.equals(Constants.RFI))
+		testStats.incrementFP(); // False positive
+	    else if(classification.equals(Constants.RFI) && actual.equals(Constants.PULSAR))
+		testStats.incrementFN(); // False negative
+	    else
+		testStats.incrementTN(); // True negative
+	}
+    }
+}
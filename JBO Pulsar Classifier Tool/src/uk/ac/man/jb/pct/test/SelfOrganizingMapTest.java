@@ -0,0 +1,1403 @@
+/**
+ *
+ * This file is part of the JBO Pulsar Classifier Tool application.
+ *
+ * The JBO Pulsar Classifier Tool is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The JBO Pulsar Classifier Tool is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the JBO Pulsar Classifier Tool.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	SelfOrganizingMapTest.java
+ * Package: uk.ac.man.jb.pct.test
+ * Created:	18th October 2026
+ * Author:	Rob Lyon
+ * 
+ * Contact:	robert.lyon@cs.man.ac.uk
+ * Web:		<http://www.scienceguyrob.com> or <http://www.jb.man.ac.uk>
+ */
+package uk.ac.man.jb.pct.test;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import uk.ac.man.jb.pct.classifiers.som.BatchCoordinator;
+import uk.ac.man.jb.pct.classifiers.som.BatchWorker;
+import uk.ac.man.jb.pct.classifiers.som.DistanceKernel;
+import uk.ac.man.jb.pct.classifiers.som.FrequencyPoint;
+import uk.ac.man.jb.pct.classifiers.som.FrozenClassifier;
+import uk.ac.man.jb.pct.classifiers.som.SOMClassifier;
+import uk.ac.man.jb.pct.classifiers.som.Schedule;
+import uk.ac.man.jb.pct.classifiers.som.SelfOrganizingMap;
+import uk.ac.man.jb.pct.data.DataSet;
+import uk.ac.man.jb.pct.data.InputPattern;
+import uk.ac.man.jb.pct.mvc.Constants;
+import uk.ac.man.jb.pct.mvc.controllers.AutoTrainerController;
+import uk.ac.man.jb.pct.util.SerializableBaseObject;
+
+/**
+ * SelfOrganizingMapTest, tests the training of the self organizing map.
+ * 
+ * @author Rob Lyon
+ */
+public class SelfOrganizingMapTest
+{
+    //*****************************************
+    //*****************************************
+    //               Methods
+    //*****************************************
+    //*****************************************
+
+    @Test
+    public void testParallelTrainingMatchesSequential()
+    {
+	SelfOrganizingMap sequential = trainMap(1);
+	SelfOrganizingMap parallel = trainMap(4);
+
+	org.junit.Assert.assertEquals(sequential.getIteration(), parallel.getIteration());
+	org.junit.Assert.assertArrayEquals(sequential.getCodebook(), parallel.getCodebook(), 0.0);
+    }
+
+    @Test
+    public void testTruncatedNeighbourhoodMatchesSequential()
+    {
+	SelfOrganizingMap sequential = trainMap(1, 0.001);
+	SelfOrganizingMap parallel = trainMap(3, 0.001);
+
+	org.junit.Assert.assertEquals(sequential.getIteration(), parallel.getIteration());
+	org.junit.Assert.assertArrayEquals(sequential.getCodebook(), parallel.getCodebook(), 0.0);
+    }
+
+    @Test
+    public void testTrainingStopsAtMaxEpochs()
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(createData(200, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(7);
+	map.setSeed(42);
+	map.setMaxEpochs(3);
+	map.Build();
+	map.Train(0);
+
+	org.junit.Assert.assertEquals(3, map.getMonitor().getEpochs());
+	org.junit.Assert.assertEquals(600, map.getIteration());
+
+	// The map should get better at quantizing the data as it trains.
+	java.util.ArrayList<Double> errors = map.getMonitor().getQuantizationErrors();
+	org.junit.Assert.assertTrue(errors.get(2) < errors.get(0));
+    }
+
+    @Test
+    public void testScheduledTrainingRunsItsPlannedEpochs()
+    {
+	int[] schedules = { Schedule.EXPONENTIAL, Schedule.LINEAR, Schedule.INVERSE_TIME };
+
+	for (int i = 0; i < schedules.length; i++)
+	{
+	    SelfOrganizingMap map = new SelfOrganizingMap(createData(200, 5, 1));
+	    map.setAttributes(5);
+	    map.setMapWidth(7);
+	    map.setSeed(42);
+	    map.setSchedule(schedules[i]);
+	    map.Build();
+	    map.Train(0);
+
+	    // With no maximum set, the schedule is planned over the default number of epochs.
+	    org.junit.Assert.assertEquals(Schedule.DEFAULT_EPOCHS, map.getMonitor().getEpochs());
+	    org.junit.Assert.assertEquals(200 * Schedule.DEFAULT_EPOCHS, map.getIteration());
+
+	    java.util.ArrayList<Double> errors = map.getMonitor().getQuantizationErrors();
+	    org.junit.Assert.assertTrue(errors.get(errors.size() - 1) < errors.get(0));
+	}
+    }
+
+    @Test
+    public void testDistanceKernelsMatchTheScalarKernel()
+    {
+	Random r = new Random(11);
+
+	// Every length of tail left over by the blocks of four, at several
+	// neurons along the codebook, with bounds either side of the distance.
+	for (int attributes = 1; attributes <= 9; attributes++)
+	{
+	    double[] pattern = new double[attributes];
+	    double[] codebook = new double[attributes * 5];
+	    float[] floatPattern = new float[attributes];
+	    float[] floatCodebook = new float[codebook.length];
+
+	    for (int a = 0; a < attributes; a++)
+	    {
+		floatPattern[a] = (float) (r.nextDouble() * 4 - 2);
+		pattern[a] = floatPattern[a];
+	    }
+
+	    for (int w = 0; w < codebook.length; w++)
+	    {
+		floatCodebook[w] = (float) (r.nextDouble() * 4 - 2);
+		codebook[w] = floatCodebook[w];
+	    }
+
+	    for (int offset = 0; offset < codebook.length; offset += attributes)
+	    {
+		double distance = DistanceKernel.squaredDistanceScalar(pattern, codebook, offset, Double.MAX_VALUE);
+		double[] bounds = {Double.MAX_VALUE, distance * 2, distance * (1 + 1e-9), distance, distance * 0.5, distance * 0.1, 0};
+
+		for (int b = 0; b < bounds.length; b++)
+		{
+		    String cell = attributes + " attributes, neuron " + (offset / attributes) + ", bound " + bounds[b];
+		    assertWithinBound(cell, distance, bounds[b], 1e-12, DistanceKernel.squaredDistanceScalar(pattern, codebook, offset, bounds[b]));
+		    assertWithinBound(cell, distance, bounds[b], 1e-12, DistanceKernel.squaredDistance(pattern, codebook, offset, bounds[b]));
+		    assertWithinBound(cell, distance, bounds[b], 1e-5, DistanceKernel.squaredDistance(floatPattern, floatCodebook, offset, bounds[b]));
+		}
+	    }
+	}
+    }
+
+    /**
+     * Checks the result of a distance kernel: the distance itself when it is below the
+     * bound, else a partial sum that has reached the bound, but not passed the distance.
+     * @param cell describes the case being checked.
+     * @param distance the squared distance.
+     * @param bound the bound the kernel was given.
+     * @param error the relative error allowed, as the kernels add in different orders.
+     * @param result the result of the kernel.
+     */
+    static void assertWithinBound(String cell, double distance, double bound, double error, double result)
+    {
+	double tolerance = distance * error;
+
+	if (distance < bound - tolerance)
+	    org.junit.Assert.assertEquals(cell, distance, result, tolerance);
+	else
+	{
+	    org.junit.Assert.assertTrue(cell + ": " + result, result >= bound - tolerance);
+	    org.junit.Assert.assertTrue(cell + ": " + result, result <= distance + tolerance);
+	}
+    }
+
+    @Test
+    public void testSinglePrecisionWinnersMatchDoublePrecision()
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(createData(200, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(7);
+	map.setSeed(42);
+	map.setSinglePrecision(true);
+	map.setMaxEpochs(5);
+	map.Build();
+	map.Train(0);
+
+	org.junit.Assert.assertNull(map.getCodebook());
+	org.junit.Assert.assertTrue(map.checkSinglePrecision(createData(500, 5, 2)) > 0.99);
+
+	// Widening the weights back to double precision loses nothing.
+	float[] weights = map.getFloatCodebook().clone();
+	map.convertPrecision(false);
+
+	for (int k = 0; k < weights.length; k++)
+	    org.junit.Assert.assertEquals(weights[k], map.getCodebook()[k], 0.0);
+    }
+
+    @Test
+    public void testBatchTrainingIndependentOfThreads()
+    {
+	SelfOrganizingMap sequential = trainBatchMap(1);
+	SelfOrganizingMap parallel = trainBatchMap(3);
+
+	org.junit.Assert.assertArrayEquals(sequential.getCodebook(), parallel.getCodebook(), 0.0);
+    }
+
+    @Test
+    public void testIndexedWinnersMatchLinearScan()
+    {
+	for (int precision = 0; precision < 2; precision++)
+	{
+	    SelfOrganizingMap map = new SelfOrganizingMap(createData(300, 6, 1));
+	    map.setAttributes(6);
+	    map.setMapWidth(15);
+	    map.setSeed(7);
+	    map.setSinglePrecision(precision == 1);
+	    map.setBatchEpochs(5);
+	    map.Build();
+	    map.TrainBatch(0);
+
+	    // Search for random patterns, and for the neurons' own weights.
+	    ArrayList<double[]> patterns = createData(1000, 6, 2);
+	    for (int n = 0; n < 15 * 15; n++)
+		patterns.add(map.getNeuron(map.getX(n), map.getY(n)).weights);
+
+	    for (double[] p : patterns)
+	    {
+		map.setIndexed(false);
+		int linear = map.getWinningIndex(p);
+		map.setIndexed(true);
+		org.junit.Assert.assertEquals(linear, map.getWinningIndex(p));
+	    }
+	}
+    }
+
+    @Test
+    public void testCachedWinnersFollowTheWeights()
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(createData(200, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(8);
+	map.setSeed(3);
+	map.setMaxEpochs(2);
+	map.setWinnerCacheSize(65536);
+	map.Build();
+	map.Train(0);
+
+	ArrayList<double[]> patterns = createData(300, 5, 2);
+	int[] winners = new int[patterns.size()];
+
+	for (int i = 0; i < patterns.size(); i++)
+	    winners[i] = map.getWinningIndex(patterns.get(i));
+
+	// Looking the same patterns up again only hits the cache.
+	for (int i = 0; i < patterns.size(); i++)
+	    org.junit.Assert.assertEquals(winners[i], map.getWinningIndex(patterns.get(i)));
+
+	org.junit.Assert.assertEquals(patterns.size(), map.getWinnerCacheHits());
+
+	// A pattern changed in place, and every pattern once the map
+	// has been trained further, are searched for again.
+	patterns.get(0)[0] += 10;
+	map.Train(0);
+
+	for (int i = 0; i < patterns.size(); i++)
+	{
+	    int cached = map.getWinningIndex(patterns.get(i));
+	    map.setWinnerCacheSize(0);
+	    org.junit.Assert.assertEquals(map.getWinningIndex(patterns.get(i)), cached);
+	    map.setWinnerCacheSize(65536);
+	}
+    }
+
+    @Test
+    public void testWinnersFoundDuringTrainingAreNotKept() throws InterruptedException
+    {
+	final SelfOrganizingMap map = new SelfOrganizingMap(createData(2000, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(10);
+	map.setSeed(42);
+	map.setWinnerCacheSize(65536);
+	map.Build();
+
+	Thread training = new Thread()
+	{
+	    public void run() { map.Train(-1); }
+	};
+
+	// Look patterns up while the map is being trained.
+	ArrayList<double[]> patterns = createData(300, 5, 2);
+	training.start();
+	Thread.sleep(200);
+
+	for (int i = 0; i < patterns.size(); i++)
+	    map.getWinningIndex(patterns.get(i));
+
+	map.cancel();
+	training.join();
+
+	// Once training has finished, they are searched for again.
+	for (int i = 0; i < patterns.size(); i++)
+	{
+	    int cached = map.getWinningIndex(patterns.get(i));
+	    map.setWinnerCacheSize(0);
+	    org.junit.Assert.assertEquals(map.getWinningIndex(patterns.get(i)), cached);
+	    map.setWinnerCacheSize(65536);
+	}
+
+	org.junit.Assert.assertEquals(0, map.getWinnerCacheHits());
+    }
+
+    @Test
+    public void testLinearInitialisationFollowsTheData()
+    {
+	// Data stretched along (1,1,0), and less so along (0,0,1).
+	Random r = new Random(5);
+	ArrayList<double[]> data = new ArrayList<double[]>();
+
+	for (int i = 0; i < 500; i++)
+	{
+	    double a = r.nextGaussian() * 3, b = r.nextGaussian();
+	    data.add(new double[] { 1 + a, 2 + a, 3 + b });
+	}
+
+	SelfOrganizingMap first = new SelfOrganizingMap(data);
+	first.setAttributes(3);
+	first.setMapWidth(6);
+	first.setSeed(1);
+	first.BuildLinear();
+
+	SelfOrganizingMap second = new SelfOrganizingMap(data);
+	second.setAttributes(3);
+	second.setMapWidth(6);
+	second.setSeed(2);
+	second.BuildLinear();
+
+	// No random numbers are used.
+	org.junit.Assert.assertArrayEquals(first.getCodebook(), second.getCodebook(), 0.0);
+
+	// The x axis of the map follows the direction the data varies the most
+	// in, the y axis the next, and the middle of the map sits at the mean.
+	double[] start = first.getNeuron(0, 0).weights;
+	double[] alongX = first.getNeuron(5, 0).weights;
+	double[] alongY = first.getNeuron(0, 5).weights;
+
+	double x = Math.abs(alongX[0] - start[0]), y = Math.abs(alongY[2] - start[2]);
+
+	org.junit.Assert.assertTrue(x > 2 * y);
+	org.junit.Assert.assertEquals(x, Math.abs(alongX[1] - start[1]), 0.05 * x);
+	org.junit.Assert.assertEquals(0, alongX[2] - start[2], 0.05 * x);
+	org.junit.Assert.assertEquals(0, alongY[0] - start[0], 0.05 * y);
+
+	double[] corner = first.getNeuron(5, 5).weights;
+	org.junit.Assert.assertEquals(3, (start[2] + corner[2]) / 2, 0.2);
+    }
+
+    @Test
+    public void testHogwildTrainingMatchesSequentialQuality()
+    {
+	// On one thread, or with no staleness allowed, the
+	// patterns are trained on in order, as by Train().
+	SelfOrganizingMap sequential = trainHogwildMap(1, 4, false);
+	org.junit.Assert.assertArrayEquals(sequential.getCodebook(), trainHogwildMap(1, 4, true).getCodebook(), 0.0);
+	org.junit.Assert.assertArrayEquals(sequential.getCodebook(), trainHogwildMap(4, 0, true).getCodebook(), 0.0);
+
+	// Otherwise the result varies, but should quantize the data about as well.
+	SelfOrganizingMap hogwild = trainHogwildMap(4, 4, true);
+	org.junit.Assert.assertEquals(sequential.getIteration(), hogwild.getIteration());
+
+	double expected = sequential.getMonitor().getQuantizationErrors().get(4);
+	double actual = hogwild.getMonitor().getQuantizationErrors().get(4);
+	org.junit.Assert.assertEquals(expected, actual, 0.1 * expected);
+    }
+
+    @Test
+    public void testDistributedBatchTrainingMatchesBatchTraining() throws Exception
+    {
+	// The same data, trained on in one place, and shared between two workers.
+	SelfOrganizingMap local = new SelfOrganizingMap(createData(300, 5, 1));
+	local.setAttributes(5);
+	local.setMapWidth(7);
+	local.setSeed(42);
+	local.NormalisePatterns();
+	local.Build();
+	local.TrainBatch(local.maximumErrorRate);
+
+	ArrayList<double[]> data = createData(300, 5, 1);
+	BatchWorker first = new BatchWorker(new ArrayList<double[]>(data.subList(0, 100)));
+	BatchWorker second = new BatchWorker(new ArrayList<double[]>(data.subList(100, 300)));
+	second.setThreads(2);
+
+	SelfOrganizingMap distributed = new SelfOrganizingMap();
+	distributed.setMapWidth(7);
+	distributed.setSeed(42);
+
+	BatchCoordinator coordinator = new BatchCoordinator(distributed, 0, 2);
+	int[] epochs = new int[2];
+
+	// The workers wait for each other to connect, so each needs its own thread.
+	Thread firstThread = startWorker(first, coordinator.getPort(), epochs, 0);
+	Thread secondThread = startWorker(second, coordinator.getPort(), epochs, 1);
+
+	org.junit.Assert.assertEquals(300, coordinator.train(distributed.maximumErrorRate));
+	firstThread.join();
+	secondThread.join();
+
+	org.junit.Assert.assertEquals(distributed.getBatchEpochs(), epochs[0]);
+	org.junit.Assert.assertEquals(distributed.getBatchEpochs(), epochs[1]);
+	org.junit.Assert.assertEquals(local.getIteration(), distributed.getIteration());
+	org.junit.Assert.assertArrayEquals(local.getColumnMeans(), distributed.getColumnMeans(), 1e-12);
+	org.junit.Assert.assertArrayEquals(local.getCodebook(), distributed.getCodebook(), 1e-9);
+    }
+
+    @Test(timeout = 10000)
+    public void testDistributedTrainingTimesOutStalledWorkers() throws Exception
+    {
+	// A worker that never connects.
+	BatchCoordinator coordinator = new BatchCoordinator(new SelfOrganizingMap(), 0, 1);
+	coordinator.setTimeout(200);
+
+	try
+	{
+	    coordinator.train(0);
+	    org.junit.Assert.fail("Training should time out waiting for the worker");
+	}
+	catch (java.io.IOException e) { org.junit.Assert.assertEquals("Only 0 of 1 workers connected within 200ms", e.getMessage()); }
+
+	// A worker that connects, but never replies.
+	coordinator = new BatchCoordinator(new SelfOrganizingMap(), 0, 1);
+	coordinator.setTimeout(200);
+	java.net.Socket silent = new java.net.Socket("localhost", coordinator.getPort());
+
+	try
+	{
+	    coordinator.train(0);
+	    org.junit.Assert.fail("Training should time out waiting for the worker to reply");
+	}
+	catch (java.io.IOException e) { org.junit.Assert.assertEquals("Worker 0 did not reply within 200ms", e.getMessage()); }
+	finally { silent.close(); }
+    }
+
+    @Test
+    public void testResumedTrainingMatchesUninterruptedTraining() throws Exception
+    {
+	java.io.File file = java.io.File.createTempFile("som", ".checkpoint");
+	file.deleteOnExit();
+
+	// The last checkpoint of each run is from part way through it, so
+	// carrying on from it should finish with exactly the same map.
+	SelfOrganizingMap online = new SelfOrganizingMap(createData(200, 5, 1));
+	online.setAttributes(5);
+	online.setMapWidth(7);
+	online.setSeed(42);
+	online.setMaxEpochs(6);
+	online.setCheckpoint(file.getPath(), 4);
+	online.Build();
+	online.Train(0);
+
+	SelfOrganizingMap resumed = new SelfOrganizingMap(createData(200, 5, 1));
+	resumed.setMaxEpochs(6);
+	resumed.Resume(file.getPath());
+	org.junit.Assert.assertEquals(800, resumed.getIteration());
+	resumed.Train(0);
+
+	org.junit.Assert.assertEquals(6, resumed.getMonitor().getEpochs());
+	org.junit.Assert.assertEquals(online.getIteration(), resumed.getIteration());
+	org.junit.Assert.assertArrayEquals(online.getCodebook(), resumed.getCodebook(), 0.0);
+	org.junit.Assert.assertEquals(online.getMonitor().getQuantizationErrors(), resumed.getMonitor().getQuantizationErrors());
+
+	SelfOrganizingMap batch = new SelfOrganizingMap(createData(200, 5, 1));
+	batch.setAttributes(5);
+	batch.setMapWidth(7);
+	batch.setSeed(42);
+	batch.setCheckpoint(file.getPath(), 10);
+	batch.Build();
+	batch.TrainBatch(0);
+
+	resumed = new SelfOrganizingMap(createData(200, 5, 1));
+	resumed.Resume(file.getPath());
+	resumed.TrainBatch(0);
+
+	org.junit.Assert.assertEquals(batch.getIteration(), resumed.getIteration());
+	org.junit.Assert.assertArrayEquals(batch.getCodebook(), resumed.getCodebook(), 0.0);
+    }
+
+    @Test
+    public void testDecisionTableFollowsTheClusters()
+    {
+	SelfOrganizingMap map = trainBatchMap(1);
+	SOMClassifier classifier = new SOMClassifier(map);
+	InputPattern pattern = new InputPattern("test", createData(1, 5, 7).get(0), Constants.PULSAR);
+
+	int winner = map.getWinningIndex(pattern.getData());
+	Point w = new Point(map.getX(winner), map.getY(winner));
+	Point n = new Point(w.x == 0 ? 1 : w.x - 1, w.y);
+
+	// One pulsar at the winner, outvoted by two RFI next to it.
+	ArrayList<Point> positives = new ArrayList<Point>();
+	ArrayList<Point> negatives = new ArrayList<Point>();
+	positives.add(w);
+	negatives.add(n);
+	negatives.add(n);
+	classifier.setPositiveCoords(positives);
+	classifier.setNegativeCoords(negatives);
+
+	org.junit.Assert.assertEquals(Constants.PULSAR, classifier.classify(pattern, 0)[0]);
+	org.junit.Assert.assertEquals(Constants.RFI, classifier.classify(pattern, 1)[0]);
+	org.junit.Assert.assertEquals(Constants.RFI, classifier.classify(pattern, 2)[0]);
+	org.junit.Assert.assertEquals(w, classifier.classify(pattern, 1)[1]);
+
+	// New clusters must replace the decisions made from the old ones.
+	positives = new ArrayList<Point>();
+	positives.add(w);
+	positives.add(w);
+	positives.add(n);
+	classifier.setPositiveCoords(positives);
+
+	org.junit.Assert.assertEquals(Constants.PULSAR, classifier.classify(pattern, 1)[0]);
+	org.junit.Assert.assertEquals(Constants.PULSAR, classifier.classify(pattern, 2)[0]);
+
+	classifier.setPositiveCoords(new ArrayList<Point>());
+	org.junit.Assert.assertEquals(Constants.RFI, classifier.classify(pattern, 0)[0]);
+    }
+
+    @Test
+    public void testOnePassKSweepMatchesEachK()
+    {
+	SelfOrganizingMap map = trainBatchMap(1);
+	SOMClassifier classifier = new SOMClassifier(map);
+	InputPattern pattern = new InputPattern("test", createData(1, 5, 7).get(0), Constants.PULSAR);
+
+	int winner = map.getWinningIndex(pattern.getData());
+	Point w = new Point(map.getX(winner), map.getY(winner));
+	Point n = new Point(w.x == 0 ? 1 : w.x - 1, w.y);
+
+	// Three pulsars at the winner and one RFI next to it, so no draw is left to chance.
+	ArrayList<Point> positives = new ArrayList<Point>();
+	ArrayList<Point> negatives = new ArrayList<Point>();
+	positives.add(w);
+	positives.add(w);
+	positives.add(w);
+	negatives.add(n);
+	classifier.setPositiveCoords(positives);
+	classifier.setNegativeCoords(negatives);
+
+	int[] kValues = { 1, 3, 4, 7 };
+	int[] tieBreaking = { 0, 1 };
+	String[][] sweep = classifier.discreetKNNClassify(pattern, kValues, tieBreaking);
+
+	for (int k = 0; k < 3; k++)
+	    for (int b = 0; b < tieBreaking.length; b++)
+	    {
+		org.junit.Assert.assertEquals(Constants.PULSAR, sweep[k][b]);
+		org.junit.Assert.assertEquals(classifier.discreetKNNClassify(pattern, kValues[k], tieBreaking[b])[0], sweep[k][b]);
+	    }
+
+	// There are only four neighbours.
+	org.junit.Assert.assertNull(sweep[3]);
+	org.junit.Assert.assertNull(classifier.discreetKNNClassify(pattern, 7, 0));
+    }
+
+    @Test
+    public void testDiscreetKNNMatchesSortingEveryNeighbour()
+    {
+	SelfOrganizingMap map = trainBatchMap(1);
+	SOMClassifier classifier = new SOMClassifier(map);
+
+	// Mixed classes at equal distances around the centre, the diagonals and the
+	// corners, and several patterns at a single neuron.
+	int[][] pulsars = { {2, 3}, {4, 3}, {2, 2}, {0, 0}, {0, 0}, {5, 1}, {6, 0} };
+	int[][] rfi = { {3, 2}, {3, 4}, {4, 4}, {2, 4}, {6, 6}, {1, 5}, {1, 5}, {3, 3} };
+	ArrayList<Point> positives = new ArrayList<Point>();
+	ArrayList<Point> negatives = new ArrayList<Point>();
+
+	for (int i = 0; i < pulsars.length; i++)
+	    positives.add(new Point(pulsars[i][0], pulsars[i][1]));
+
+	for (int i = 0; i < rfi.length; i++)
+	    negatives.add(new Point(rfi[i][0], rfi[i][1]));
+
+	classifier.setPositiveCoords(positives);
+	classifier.setNegativeCoords(negatives);
+
+	int[] kValues = { 1, 2, 3, 5, 8, 15 };
+	int[] tieBreaking = { 0, 1 };
+
+	// The classifier and the reference draw from generators seeded alike,
+	// in the same order, so their classifications agree exactly.
+	classifier.setSeed(17);
+	Random reference = new Random(17);
+
+	for (int x = 0; x < map.getMapWidth(); x++)
+	    for (int y = 0; y < map.getMapWidth(); y++)
+	    {
+		InputPattern pattern = new InputPattern("n", map.getNeuron(x, y).weights, Constants.RFI);
+		ArrayList<int[]> shells = sortedShells(new Point(x, y), positives, negatives);
+
+		String[][] sweep = classifier.discreetKNNClassify(pattern, kValues, tieBreaking);
+
+		for (int k = 0; k < kValues.length; k++)
+		    for (int b = 0; b < tieBreaking.length; b++)
+			org.junit.Assert.assertEquals(drawFromSorted(shells, kValues[k], tieBreaking[b], reference), sweep[k][b]);
+
+		// Each neuron is its own winner.
+		org.junit.Assert.assertEquals(new Point(x, y), classifier.discreetKNNClassify(pattern, 1, 0)[1]);
+		drawFromSorted(shells, 1, 0, reference);
+
+		for (int k = 0; k < kValues.length; k++)
+		    for (int b = 0; b < tieBreaking.length; b++)
+		    {
+			String cell = "(" + x + "," + y + ") k=" + kValues[k] + " tie=" + tieBreaking[b];
+			org.junit.Assert.assertEquals(cell, drawFromSorted(shells, kValues[k], tieBreaking[b], reference),
+				classifier.discreetKNNClassify(pattern, kValues[k], tieBreaking[b])[0]);
+			org.junit.Assert.assertEquals(cell, voteOfSorted(shells, kValues[k], tieBreaking[b], reference),
+				classifier.discreetKNNClassifyUniqueK(pattern, kValues[k], tieBreaking[b])[0]);
+		    }
+	    }
+    }
+
+    /**
+     * Finds the shells of neighbours of a neuron as the KNN algorithms originally did,
+     * by sorting every located pattern by its distance from the neuron.
+     * @param winner the neuron.
+     * @param positives the positions of the pulsars.
+     * @param negatives the positions of the RFI.
+     * @return the number of pulsars and RFI at each distance, nearest first.
+     */
+    static ArrayList<int[]> sortedShells(Point winner, ArrayList<Point> positives, ArrayList<Point> negatives)
+    {
+	ArrayList<double[]> neighbours = new ArrayList<double[]>();
+
+	for (Point p : positives)
+	    neighbours.add(new double[] { winner.distance(p), 1 });
+
+	for (Point p : negatives)
+	    neighbours.add(new double[] { winner.distance(p), 0 });
+
+	java.util.Collections.sort(neighbours, new java.util.Comparator<double[]>()
+	{
+	    public int compare(double[] a, double[] b) { return Double.compare(a[0], b[0]); }
+	});
+
+	ArrayList<int[]> shells = new ArrayList<int[]>();
+
+	for (int i = 0; i < neighbours.size(); i++)
+	{
+	    if (i == 0 || Double.compare(neighbours.get(i)[0], neighbours.get(i - 1)[0]) != 0)
+		shells.add(new int[2]);
+
+	    shells.get(shells.size() - 1)[neighbours.get(i)[1] > 0 ? 0 : 1]++;
+	}
+
+	return shells;
+    }
+
+    /**
+     * Classifies as discreetKNNClassify() originally did: k neighbours drawn without
+     * replacement, nearest shell first, then a majority vote.
+     * @param shells the shells, as sortedShells() finds them.
+     * @param k the number of neighbours.
+     * @param tie the tie breaking mode.
+     * @param random the random number generator.
+     * @return the classification.
+     */
+    static String drawFromSorted(ArrayList<int[]> shells, int k, int tie, Random random)
+    {
+	int positive = 0, negative = 0;
+	String nearest = null;
+
+	for (int s = 0; s < shells.size() && positive + negative < k; s++)
+	{
+	    int p = shells.get(s)[0], n = shells.get(s)[1];
+
+	    while (p + n > 0 && positive + negative < k)
+	    {
+		boolean pulsar = random.nextInt(p + n) < p;
+
+		if (pulsar) { p--; positive++; }
+		else { n--; negative++; }
+
+		if (nearest == null)
+		    nearest = pulsar ? Constants.PULSAR : Constants.RFI;
+	    }
+	}
+
+	return decide(positive, negative, tie, nearest, random);
+    }
+
+    /**
+     * Classifies as discreetKNNClassifyUniqueK() originally did: one neighbour
+     * drawn from each of the nearest k shells, then a majority vote.
+     * @param shells the shells, as sortedShells() finds them.
+     * @param k the number of shells.
+     * @param tie the tie breaking mode.
+     * @param random the random number generator.
+     * @return the classification.
+     */
+    static String voteOfSorted(ArrayList<int[]> shells, int k, int tie, Random random)
+    {
+	int positive = 0, negative = 0;
+
+	for (int s = 0; s < Math.min(k, shells.size()); s++)
+	{
+	    if (random.nextInt(shells.get(s)[0] + shells.get(s)[1]) < shells.get(s)[0])
+		positive++;
+	    else
+		negative++;
+	}
+
+	String nearest = null;
+
+	if (positive == negative && tie == 0)
+	    nearest = random.nextInt(shells.get(0)[0] + shells.get(0)[1]) < shells.get(0)[0] ? Constants.PULSAR : Constants.RFI;
+
+	return decide(positive, negative, tie, nearest, random);
+    }
+
+    /**
+     * @param positive the votes for the pulsar class.
+     * @param negative the votes for the RFI class.
+     * @param tie the tie breaking mode.
+     * @param nearest the class given to a tie broken by the nearest neighbour.
+     * @param random the random number generator.
+     * @return the majority class, else the class the tie is broken to.
+     */
+    static String decide(int positive, int negative, int tie, String nearest, Random random)
+    {
+	if (negative > positive)
+	    return Constants.RFI;
+	else if (positive > negative)
+	    return Constants.PULSAR;
+	else if (tie == 0)
+	    return nearest;
+
+	double d = random.nextDouble();
+
+	while (Double.compare(d, 0.5) == 0)
+	    d = random.nextDouble();
+
+	return Double.compare(d, 0.5) > 0 ? Constants.PULSAR : Constants.RFI;
+    }
+
+    @Test
+    public void testClustersRecordEveryPattern()
+    {
+	SelfOrganizingMap map = trainBatchMap(1);
+	ArrayList<double[]> data = createData(60, 5, 3);
+	DataSet labelled = new DataSet("test", 5);
+	int[] pulsars = new int[map.getMapWidth() * map.getMapWidth()];
+
+	for (int i = 0; i < data.size(); i++)
+	{
+	    labelled.addRow(new InputPattern("p" + i, data.get(i), i % 3 == 0 ? Constants.PULSAR : Constants.RFI));
+
+	    if (i % 3 == 0)
+		pulsars[map.getWinningIndex(data.get(i))]++;
+	}
+
+	SOMClassifier classifier = new SOMClassifier(map);
+	classifier.locateClusters(labelled);
+
+	// The public fields are filled straight away, as before, without a getter being called.
+	org.junit.Assert.assertEquals(20, classifier.positiveCoords.size());
+	org.junit.Assert.assertEquals(40, classifier.negativeCoords.size());
+	org.junit.Assert.assertNotNull(classifier.heatMap);
+	org.junit.Assert.assertEquals(20, classifier.getPositiveCoords().size());
+	org.junit.Assert.assertEquals(40, classifier.getNegativeCoords().size());
+
+	// They are snapshots, which can't be changed behind the classifier's back.
+	try
+	{
+	    classifier.positiveCoords.add(new Point(0, 0));
+	    org.junit.Assert.fail("The co-ordinates can be modified");
+	}
+	catch (UnsupportedOperationException e) { }
+
+	try
+	{
+	    classifier.getHeatMap().clear();
+	    org.junit.Assert.fail("The heat map can be modified");
+	}
+	catch (UnsupportedOperationException e) { }
+
+	// Sorted by row then column, each position as often as a pulsar landed there.
+	for (int i = 0; i < 20; i++)
+	{
+	    Point p = classifier.getPositiveCoords().get(i);
+	    org.junit.Assert.assertTrue(pulsars[(p.x * map.getMapWidth()) + p.y] > 0);
+
+	    if (i > 0)
+	    {
+		Point q = classifier.getPositiveCoords().get(i - 1);
+		org.junit.Assert.assertTrue(q.x < p.x || (q.x == p.x && q.y <= p.y));
+	    }
+	}
+
+	int frequencies = 0;
+
+	for (FrequencyPoint f : classifier.getHeatMap())
+	{
+	    org.junit.Assert.assertEquals(pulsars[(f.X * map.getMapWidth()) + f.Y], f.frequency);
+	    frequencies += f.frequency;
+	}
+
+	org.junit.Assert.assertEquals(20, frequencies);
+
+	// The simplified clusters record each position once, but still count every pulsar.
+	classifier.locateClustersSimplified(labelled);
+	org.junit.Assert.assertEquals(classifier.heatMap.size(), classifier.positiveCoords.size());
+    }
+
+    @Test
+    public void testFrozenClassifierIsSafeToShare() throws Exception
+    {
+	final SelfOrganizingMap map = trainBatchMap(1);
+	map.setIndexed(true);
+	ArrayList<double[]> data = createData(60, 5, 3);
+	DataSet labelled = new DataSet("test", 5);
+
+	for (int i = 0; i < data.size(); i++)
+	    labelled.addRow(new InputPattern("p" + i, data.get(i), i % 3 == 0 ? Constants.PULSAR : Constants.RFI));
+
+	SOMClassifier classifier = new SOMClassifier(map);
+	classifier.locateClusters(labelled);
+
+	final ArrayList<InputPattern> patterns = new ArrayList<InputPattern>();
+	for (double[] pattern : createData(200, 5, 11))
+	    patterns.add(new InputPattern("t", pattern, Constants.RFI));
+
+	// What the classifier says before it is frozen, and what the
+	// frozen view says given the same random number generators.
+	final FrozenClassifier frozen = classifier.freeze(42);
+	final Object[][] expected = new Object[4][patterns.size()];
+
+	for (int i = 0; i < patterns.size(); i++)
+	{
+	    for (int a = 0; a < 3; a++)
+	    {
+		expected[a][i] = classifier.classify(patterns.get(i), a)[0];
+		org.junit.Assert.assertEquals(expected[a][i], frozen.classify(patterns.get(i), a)[0]);
+	    }
+
+	    expected[3][i] = frozen.discreetKNNClassify(patterns.get(i), 5, 1, new Random(i))[0];
+	}
+
+	// Many threads classify at once, while the map is trained further.
+	final java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+	final java.util.concurrent.atomic.AtomicInteger failures = new java.util.concurrent.atomic.AtomicInteger();
+	Thread[] threads = new Thread[9];
+
+	for (int t = 0; t < threads.length; t++)
+	{
+	    final boolean trainer = t == 0;
+
+	    threads[t] = new Thread()
+	    {
+		public void run()
+		{
+		    try
+		    {
+			start.await();
+
+			for (int round = 0; round < 20; round++)
+			{
+			    if (trainer)
+			    {
+				map.TrainIncremental(createData(50, 5, round), 50, 0.5);
+				continue;
+			    }
+
+			    for (int i = 0; i < patterns.size(); i++)
+			    {
+				for (int a = 0; a < 3; a++)
+				    if (!expected[a][i].equals(frozen.classify(patterns.get(i), a)[0]))
+					failures.incrementAndGet();
+
+				if (!expected[3][i].equals(frozen.discreetKNNClassify(patterns.get(i), 5, 1, new Random(i))[0]))
+				    failures.incrementAndGet();
+
+				Object label = frozen.discreetKNNClassify(patterns.get(i), 5, 0)[0];
+				if (!Constants.PULSAR.equals(label) && !Constants.RFI.equals(label))
+				    failures.incrementAndGet();
+			    }
+			}
+		    }
+		    catch (Throwable e)
+		    {
+			e.printStackTrace();
+			failures.incrementAndGet();
+		    }
+		}
+	    };
+
+	    threads[t].start();
+	}
+
+	start.countDown();
+
+	for (int t = 0; t < threads.length; t++)
+	    threads[t].join();
+
+	org.junit.Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void testModelsSavedBeforeTheCodebookStillClassify()
+    {
+	// Saved by the original Neuron[][] classes, on Java 6 as properties,
+	// and on a later Java as public fields set through getField.
+	// The winners and classifications are those the original classes gave.
+	// The first model has no negative clusters, so its KNN classifications
+	// are not checked.
+	assertClassifiesAsBefore("Resources/test_network_accuracy_96.xml", 5,
+		new int[] { 161, 91, 71, 104, 161, 104, 148, 148, 149, 104, 137, 18, 161, 91, 18, 117, 149, 6, 104, 149,
+			    91, 161, 149, 9, 138, 161, 161, 91, 31, 149, 149, 18, 137, 7, 19, 19, 22, 161, 161, 139 },
+		new String[] { "RRRRRRRRRRRPRRPRRPRRRRRRRRRRPRRPRPPPRRRR", null,
+			       "RRRRRRRRRRRPRRPRRPRRRRRRRRRRPRRPRRPPRRRR" });
+
+	assertClassifiesAsBefore("Resources/test_network_3x3_fields.xml", 1,
+		new int[] { 2, 4, 4, 6, 6, 2, 1, 3, 2, 7, 5, 7, 5, 8, 4, 8, 8, 7, 3, 1,
+			    6, 1, 6, 1, 2, 8, 2, 1, 7, 6, 4, 1, 8, 6, 2, 6, 0, 8, 8, 2 },
+		new String[] { "PPPRRPPRPRRRRRPRRRRPRPRPPRPPRRPPRRPRRRRP", "PRRRRPPRPRPRPRRRRRRPRPRPPRPPRRRPRRPRRRRP",
+			       "PRRRRPPRPRPRPRRRRRRPRPRPPRPPRRRPRRPRRRRP" });
+    }
+
+    @Test
+    public void testUpdatedClustersMatchLocatedClusters()
+    {
+	SelfOrganizingMap map = trainBatchMap(1);
+	DataSet before = labelledData(60, 3);
+	DataSet after = labelledData(30, 4);
+	DataSet combined = labelledData(60, 3);
+
+	for (int i = 0; i < after.getRows(); i++)
+	    combined.addRow(after.getDataRow(i));
+
+	// Without any training steps, updating the clusters with the new patterns
+	// is the same as locating the clusters of all of the patterns at once.
+	SOMClassifier updated = new SOMClassifier(map);
+	updated.locateClusters(before);
+	org.junit.Assert.assertTrue(updated.updateClusters(after, 0, 0.05));
+
+	SOMClassifier located = new SOMClassifier(map);
+	located.locateClusters(combined);
+
+	org.junit.Assert.assertEquals(located.getPositiveCoords(), updated.getPositiveCoords());
+	org.junit.Assert.assertEquals(located.getNegativeCoords(), updated.getNegativeCoords());
+	org.junit.Assert.assertEquals(heatMap(located, 7), heatMap(updated, 7));
+	org.junit.Assert.assertEquals(combined.getRows(), updated.getPositivePatterns().size() + updated.getNegativePatterns().size());
+
+	// Training moves the map towards the new patterns, which are then located in it,
+	// while the patterns already known about keep their positions.
+	double error = quantizationError(map, after);
+	ArrayList<Point> positives = new ArrayList<Point>(updated.getPositiveCoords());
+	ArrayList<Point> negatives = new ArrayList<Point>(updated.getNegativeCoords());
+	String heat = heatMap(updated, 7);
+
+	updated.updateClusters(after, 200, 0.05);
+	org.junit.Assert.assertTrue(quantizationError(map, after) < error);
+
+	located = new SOMClassifier(map);
+	located.locateClusters(after);
+	positives.addAll(located.getPositiveCoords());
+	negatives.addAll(located.getNegativeCoords());
+
+	org.junit.Assert.assertEquals(sorted(positives), updated.getPositiveCoords());
+	org.junit.Assert.assertEquals(sorted(negatives), updated.getNegativeCoords());
+	org.junit.Assert.assertEquals(updated.getPositiveCoords().size(), frequencies(updated));
+	org.junit.Assert.assertFalse(heat.equals(heatMap(updated, 7)));
+    }
+
+    @Test
+    public void testIncrementalTrainerUpdatesPositiveOnlyClusters() throws java.io.IOException
+    {
+	// The saved classifier has positive clusters, but no negative
+	// co-ordinates or patterns, which the update has to create.
+	String model = new java.io.File("Resources/test_network_accuracy_96.xml").getCanonicalPath();
+	String data = new java.io.File("Resources/validation_set.pat").getCanonicalPath();
+	java.io.File saved = java.io.File.createTempFile("updated", ".xml");
+	saved.deleteOnExit();
+
+	SOMClassifier original = (SOMClassifier) SerializableBaseObject.read(model);
+	org.junit.Assert.assertNull(original.getNegativeCoords());
+
+	uk.ac.man.jb.pct.mvc.model.CommandLineInputData input = new uk.ac.man.jb.pct.mvc.model.CommandLineInputData();
+	input.setPathToSavedNetwork(model);
+	input.setPathToTrainingFile(data);
+	input.setNetworkSavePath(saved.getCanonicalPath());
+	input.setUpdateSteps(50);
+	input.setThreads(1);
+	new uk.ac.man.jb.pct.mvc.controllers.IncrementalTrainerController(input).run();
+
+	SOMClassifier updated = (SOMClassifier) SerializableBaseObject.read(saved.getCanonicalPath());
+	org.junit.Assert.assertNotNull(updated);
+
+	// The validation set holds 30 pulsars among its 340 patterns.
+	org.junit.Assert.assertEquals(original.getPositiveCoords().size() + 30, updated.getPositiveCoords().size());
+	org.junit.Assert.assertEquals(310, updated.getNegativeCoords().size());
+	org.junit.Assert.assertEquals(310, updated.getNegativePatterns().size());
+	org.junit.Assert.assertEquals(frequencies(original) + 30, frequencies(updated));
+    }
+
+    @Test
+    public void testParameterSweepSkipsKLargerThanThePatternsLocated() throws java.io.IOException
+    {
+	String data = new java.io.File("Resources/validation_set.pat").getCanonicalPath();
+
+	// Every K and tie breaking mode, with K = 1000 larger than the 340 patterns
+	// located, so a row for each of the others, from each repeat, and a block for each.
+	String[] paths = sweep(data, -1, new int[] {1, 3, 1000});
+	org.junit.Assert.assertEquals(2 * 2 * 2, lines(paths[0], "Test"));
+	org.junit.Assert.assertEquals(2 * 2, lines(paths[1], "STATS,"));
+
+	// A single algorithm, so a row from each repeat, and a single block.
+	paths = sweep(data, 0, new int[] {1000});
+	org.junit.Assert.assertEquals(2, lines(paths[0], "Test"));
+	org.junit.Assert.assertEquals(1, lines(paths[1], "STATS,"));
+    }
+
+    /**
+     * Runs a sweep of two repeats of a 5x5 map, trained on and classifying some data.
+     * @param data the path of the data.
+     * @param algorithm the algorithm to classify with, or below zero for every K.
+     * @param k the values of K, with both tie breaking modes.
+     * @return the paths of the results and statistics files.
+     */
+    static String[] sweep(String data, int algorithm, int[] k) throws java.io.IOException
+    {
+	java.io.File results = java.io.File.createTempFile("sweep", ".txt");
+	java.io.File stats = java.io.File.createTempFile("sweep", ".csv");
+	results.deleteOnExit();
+	stats.deleteOnExit();
+
+	ParameterSweep sweep = new ParameterSweep(data, results.getCanonicalPath(), stats.getCanonicalPath());
+	sweep.setMapWidths(new int[] {5});
+	sweep.setKValues(k);
+	sweep.setTieBreaking(new int[] {0, 1});
+	sweep.setAlgorithm(algorithm);
+	sweep.setTrainingFiles(new String[] {data});
+	sweep.setClassificationFiles(new String[] {data});
+	sweep.setRepeats(2);
+	sweep.setDesiredAccuracy(0);
+	sweep.setThreads(2);
+	sweep.run();
+
+	return new String[] {results.getCanonicalPath(), stats.getCanonicalPath()};
+    }
+
+    /**
+     * @param path the path of a file.
+     * @param prefix a prefix.
+     * @return the number of lines in the file starting with the prefix.
+     */
+    static int lines(String path, String prefix) throws java.io.IOException
+    {
+	java.io.BufferedReader in = new java.io.BufferedReader(new java.io.FileReader(path));
+	int count = 0;
+
+	try
+	{
+	    for (String line = in.readLine(); line != null; line = in.readLine())
+		if (line.startsWith(prefix))
+		    count++;
+	}
+	finally { in.close(); }
+
+	return count;
+    }
+
+    @Test
+    public void testCancelStopsATrainingMap() throws InterruptedException
+    {
+	final SelfOrganizingMap map = new SelfOrganizingMap(createData(2000, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(10);
+	map.setSeed(42);
+	map.Build();
+
+	// No error is below zero, so only cancelling stops training.
+	Thread training = new Thread()
+	{
+	    public void run() { map.Train(-1); }
+	};
+
+	training.start();
+	Thread.sleep(200);
+	org.junit.Assert.assertTrue(training.isAlive());
+
+	map.cancel();
+	training.join(10000);
+	org.junit.Assert.assertFalse(training.isAlive());
+	org.junit.Assert.assertTrue(map.isCancelled());
+    }
+
+    @Test
+    public void testAutoTrainerKeepsTheFirstAcceptableAttempt() throws java.io.IOException
+    {
+	String path = new java.io.File("Resources/validation_set.pat").getCanonicalPath();
+	uk.ac.man.jb.pct.data.I_DataSet t_data = new uk.ac.man.jb.pct.data.PatternFileProcessor().process(path);
+	uk.ac.man.jb.pct.data.I_DataSet v_data = new uk.ac.man.jb.pct.data.PatternFileProcessor().process(path);
+	double[] columnMeans = AutoTrainerController.normalise(t_data);
+
+	uk.ac.man.jb.pct.mvc.model.CommandLineInputData input = new uk.ac.man.jb.pct.mvc.model.CommandLineInputData();
+	input.setMapSize(5);
+	input.setThreads(3);
+	input.setClassifier(0);
+	input.setDesiredNetworkAccuracy(85);
+
+	// The controller reports each attempt as it is collected.
+	java.io.PrintStream out = System.out;
+	java.io.ByteArrayOutputStream report = new java.io.ByteArrayOutputStream();
+	SOMClassifier classifier;
+
+	System.setOut(new java.io.PrintStream(report, true));
+	try { classifier = new AutoTrainerController(input).train(t_data, columnMeans, v_data); }
+	finally { System.setOut(out); }
+
+	org.junit.Assert.assertNotNull(classifier);
+
+	int accuracy = (int) Math.round(classifier.getStatistics().getAccuracy() * 100);
+	int precision = (int) Math.round(classifier.getStatistics().getPrecision() * 100);
+	org.junit.Assert.assertTrue(accuracy >= 85 && precision > 50);
+
+	// Collecting stopped at the first attempt to meet the target, the one returned,
+	// and the attempts still running were cancelled rather than all 100 being made.
+	String[] lines = report.toString().split("\n");
+	int attained = 0;
+	int collected = 0;
+
+	for (int i = 0; i < lines.length; i++)
+	{
+	    if (lines[i].startsWith("Accuracy attained: "))
+	    {
+		attained++;
+		org.junit.Assert.assertTrue(lines[i].startsWith("Accuracy attained: " + accuracy + " "));
+	    }
+	    else if (lines[i].startsWith("Current Accuracy: "))
+		org.junit.Assert.assertEquals(0, attained);
+
+	    if (lines[i].startsWith("Using classifier: "))
+		collected++;
+	}
+
+	org.junit.Assert.assertEquals(1, attained);
+	org.junit.Assert.assertTrue(collected < 100);
+    }
+
+    /**
+     * Creates labelled random data, one pattern in three a pulsar.
+     * @param rows the number of patterns.
+     * @param seed the seed for the random data.
+     * @return the data.
+     */
+    static DataSet labelledData(int rows, long seed)
+    {
+	ArrayList<double[]> data = createData(rows, 5, seed);
+	DataSet labelled = new DataSet("test", 5);
+
+	for (int i = 0; i < data.size(); i++)
+	    labelled.addRow(new InputPattern("p" + i, data.get(i), i % 3 == 0 ? Constants.PULSAR : Constants.RFI));
+
+	return labelled;
+    }
+
+    /**
+     * @param map a map.
+     * @param data patterns.
+     * @return the average distance between each pattern and its winning neuron.
+     */
+    static double quantizationError(SelfOrganizingMap map, DataSet data)
+    {
+	double error = 0;
+
+	for (int i = 0; i < data.getRows(); i++)
+	{
+	    double[] pattern = data.getDataRow(i).getData();
+	    double[] weights = map.getWinningNeuron(pattern).weights;
+	    double d = 0;
+
+	    for (int a = 0; a < pattern.length; a++)
+		d += (pattern[a] - weights[a]) * (pattern[a] - weights[a]);
+
+	    error += Math.sqrt(d);
+	}
+
+	return error / data.getRows();
+    }
+
+    /**
+     * @param points positions in the map.
+     * @return the positions, sorted by row then column.
+     */
+    static ArrayList<Point> sorted(ArrayList<Point> points)
+    {
+	java.util.Collections.sort(points, new java.util.Comparator<Point>()
+	{
+	    public int compare(Point a, Point b) { return a.x != b.x ? a.x - b.x : a.y - b.y; }
+	});
+
+	return points;
+    }
+
+    /**
+     * @param classifier a classifier.
+     * @param width the width of its map.
+     * @return the heat map of the classifier, as the frequency at each neuron in turn.
+     */
+    static String heatMap(SOMClassifier classifier, int width)
+    {
+	int[] frequencies = new int[width * width];
+
+	for (FrequencyPoint f : classifier.getHeatMap())
+	    frequencies[(f.X * width) + f.Y] += f.frequency;
+
+	return java.util.Arrays.toString(frequencies);
+    }
+
+    /**
+     * @param classifier a classifier.
+     * @return the sum of the frequencies in the heat map of the classifier.
+     */
+    static int frequencies(SOMClassifier classifier)
+    {
+	int total = 0;
+
+	for (FrequencyPoint f : classifier.getHeatMap())
+	    total += f.frequency;
+
+	return total;
+    }
+
+    /**
+     * Loads a classifier saved by the original classes, and checks that it finds the
+     * same winners, and classifies random patterns the same way, as they did.
+     * @param path the path of the saved classifier.
+     * @param scale the patterns' attributes are drawn uniformly from zero to scale.
+     * @param winners the index of the winning neuron of each pattern.
+     * @param labels the classifications of each algorithm, P for pulsar and R for RFI,
+     * or null to not check an algorithm.
+     */
+    static void assertClassifiesAsBefore(String path, double scale, int[] winners, String[] labels)
+    {
+	SOMClassifier classifier = (SOMClassifier) SerializableBaseObject.read(path);
+	SelfOrganizingMap map = classifier.getMap();
+	org.junit.Assert.assertNotNull(map.getCodebook());
+	org.junit.Assert.assertNull(map.outputNeurons);
+	
+
+	for (int algorithm = 0; algorithm < labels.length; algorithm++)
+	{
+	    Random r = new Random(5);
+
+	    for (int i = 0; i < winners.length; i++)
+	    {
+		double[] pattern = new double[map.getAttributes()];
+
+		for (int a = 0; a < pattern.length; a++)
+		    pattern[a] = r.nextDouble() * scale;
+
+		org.junit.Assert.assertEquals(winners[i], map.getWinningIndex(pattern));
+
+		if (labels[algorithm] != null)
+		{
+		    Object label = classifier.classify(new InputPattern("t", pattern, Constants.RFI), algorithm)[0];
+		    org.junit.Assert.assertEquals(labels[algorithm].charAt(i) == 'P' ? Constants.PULSAR : Constants.RFI, label);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Runs a batch worker on a new thread.
+     * @param worker the worker.
+     * @param port the port the coordinator is listening on.
+     * @param epochs receives the number of epochs worked.
+     * @param index the index in epochs to store the number of epochs worked at.
+     * @return the thread.
+     */
+    static Thread startWorker(final BatchWorker worker, final int port, final int[] epochs, final int index)
+    {
+	Thread thread = new Thread()
+	{
+	    public void run()
+	    {
+		try
+		{
+		    epochs[index] = worker.run("localhost", port);
+		}
+		catch (java.io.IOException e) { e.printStackTrace(); }
+	    }
+	};
+
+	thread.start();
+	return thread;
+    }
+
+    /**
+     * Trains a small map on random data for five epochs with the online algorithm.
+     * @param threads the number of threads to train with.
+     * @param staleness the staleness bound for Hogwild training.
+     * @param hogwild true to use TrainHogwild(), false to use Train().
+     * @return the trained map.
+     */
+    static SelfOrganizingMap trainHogwildMap(int threads, int staleness, boolean hogwild)
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(createData(2000, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(8);
+	map.setThreads(threads);
+	map.setSeed(42);
+	map.setMaxEpochs(5);
+	map.setMiniBatchSize(16);
+	map.setMaxStaleness(staleness);
+	map.Build();
+
+	if (hogwild)
+	    map.TrainHogwild(0);
+	else
+	    map.Train(0);
+
+	return map;
+    }
+
+    /**
+     * Trains a small map on random data with the batch algorithm.
+     * @param threads the number of threads to train with.
+     * @return the trained map.
+     */
+    static SelfOrganizingMap trainBatchMap(int threads)
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(createData(200, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(7);
+	map.setThreads(threads);
+	map.setSeed(42);
+	map.Build();
+	map.TrainBatch(map.maximumErrorRate);
+	return map;
+    }
+
+    /**
+     * Trains a small map on random data with a fixed seed.
+     * @param threads the number of threads to train with.
+     * @return the trained map.
+     */
+    static SelfOrganizingMap trainMap(int threads) { return trainMap(threads, 0); }
+
+    /**
+     * Trains a small map on random data with a fixed seed.
+     * @param threads the number of threads to train with.
+     * @param epsilon the neighbourhood weight at or below which neurons are not updated.
+     * @return the trained map.
+     */
+    static SelfOrganizingMap trainMap(int threads, double epsilon)
+    {
+	SelfOrganizingMap map = new SelfOrganizingMap(createData(200, 5, 1));
+	map.setAttributes(5);
+	map.setMapWidth(7);
+	map.setThreads(threads);
+	map.setMinimumBandWeights(0); // Share every step out, small as the map is.
+	map.setNeighbourhoodThreshold(epsilon);
+	map.setSeed(42);
+	map.Build();
+	map.Train(map.maximumErrorRate);
+	return map;
+    }
+
+    /**
+     * Creates random training data.
+     * @param rows the number of patterns.
+     * @param attributes the number of attributes in each pattern.
+     * @param seed the seed for the random data.
+     * @return the data.
+     */
+    static ArrayList<double[]> createData(int rows, int attributes, long seed)
+    {
+	Random r = new Random(seed);
+	ArrayList<double[]> data = new ArrayList<double[]>();
+
+	for (int i = 0; i < rows; i++)
+	{
+	    double[] pattern = new double[attributes];
+
+	    for (int a = 0; a < attributes; a++)
+		pattern[a] = r.nextDouble();
+
+	    data.add(pattern);
+	}
+
+	return data;
+    }
+}
@@ -25,12 +25,18 @@
  */
 package uk.ac.man.jb.pct.util;
 
+import java.beans.Encoder;
+import java.beans.Expression;
+import java.beans.PersistenceDelegate;
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -98,6 +104,7 @@ public class SerializableBaseObject extends Thread
 	try
 	{
 	    XMLEncoder encoder = new XMLEncoder(new BufferedOutputStream( new FileOutputStream(path)));
+	    encoder.setPersistenceDelegate(Collections.unmodifiableList(new ArrayList<Object>()).getClass(), new UnmodifiableListDelegate());
 	    encoder.writeObject(obj);
 	    encoder.close();
 	    return true;
@@ -121,4 +128,37 @@ public class SerializableBaseObject extends Thread
 	}
 	catch(Exception e){System.out.println(e.toString());return null;}
     }
+
+    /**
+     * Writes an unmodifiable list as an ArrayList of its elements, which is
+     * read back in its place. XMLEncoder can't write the list itself, as it
+     * can't see the list the unmodifiable view wraps.
+     */
+    private static class UnmodifiableListDelegate extends PersistenceDelegate
+    {
+	/* (non-Javadoc)
+	 * @see java.beans.PersistenceDelegate#mutatesTo(java.lang.Object, java.lang.Object)
+	 */
+	protected boolean mutatesTo(Object oldInstance, Object newInstance)
+	{
+	    // Not equals(), as the elements need not define it.
+	    return newInstance instanceof ArrayList;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.beans.PersistenceDelegate#instantiate(java.lang.Object, java.beans.Encoder)
+	 */
+	protected Expression instantiate(Object oldInstance, Encoder out)
+	{
+	    return new Expression(oldInstance, ArrayList.class, "new", new Object[] { new ArrayList<Object>((List<?>) oldInstance) });
+	}
+
+	/* (non-Javadoc)
+	 * @see java.beans.PersistenceDelegate#initialize(java.lang.Class, java.lang.Object, java.lang.Object, java.beans.Encoder)
+	 */
+	protected void initialize(Class<?> type, Object oldInstance, Object newInstance, Encoder out)
+	{
+	    // The elements were all written with the list.
+	}
+    }
 }